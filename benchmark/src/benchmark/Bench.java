@@ -0,0 +1,203 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small benchmark harness measuring throughput and allocation of a single operation
+ * on the current thread.
+ * <p>
+ * Each benchmark runs {@link #WARMUP_ITERATIONS} warm-up iterations followed by
+ * {@link #MEASURED_ITERATIONS} measured iterations. An iteration calls the operation
+ * repeatedly until {@link #ITERATION_MILLIS} have passed, and always at least once.
+ * Allocation is read from the JVM's per-thread allocation counter, so it covers every
+ * object the operation creates. Results are folded into {@link #sink} so the JIT cannot
+ * remove the work.
+ * <p>
+ * The iteration counts and time can be changed with the {@code bench.warmup},
+ * {@code bench.iterations} and {@code bench.millis} system properties.
+ */
+public class Bench {
+
+    /** The number of iterations run before measuring. */
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 3);
+
+    /** The number of iterations measured. */
+    private static final int MEASURED_ITERATIONS = Integer.getInteger("bench.iterations", 5);
+
+    /** The minimum length of an iteration in milliseconds. */
+    private static final long ITERATION_MILLIS = Long.getLong("bench.millis", 1000);
+
+    /** The JVM's thread bean, which can report the bytes allocated by a thread. */
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Output printed by the code under test is discarded while measuring. */
+    private static final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    /** Collects the results of every operation. */
+    private static volatile int sink;
+
+    /**
+     * An operation to benchmark.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @return Any result of the operation, consumed by the harness.
+         * @throws Exception If the operation fails.
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * An operation that completes asynchronously, on threads other than the caller's.
+     */
+    @FunctionalInterface
+    public interface AsyncOperation {
+        /**
+         * Starts the operation once.
+         *
+         * @return A future completing when the operation is done.
+         */
+        CompletableFuture<?> start();
+    }
+
+    /**
+     * Prints the header of the results table.
+     */
+    public static void printHeader() {
+        System.out.printf(Locale.ROOT, "%-44s %9s %12s %12s %14s %12s%n",
+                "Benchmark", "Rows", "ms/op", "ops/s", "alloc B/op", "alloc MB/s");
+    }
+
+    /**
+     * Runs a benchmark and prints one row of results.
+     *
+     * @param name      The name of the benchmark.
+     * @param rows      The number of rows in the synthetic data.
+     * @param operation The operation to measure.
+     */
+    public static void run(String name, int rows, Operation operation) {
+        PrintStream out = System.out;
+        System.setOut(discard);
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                iterate(operation);
+            }
+
+            long ops = 0;
+            long nanos = 0;
+            long bytes = 0;
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                long[] result = iterate(operation);
+                ops += result[0];
+                nanos += result[1];
+                bytes += result[2];
+            }
+
+            double seconds = nanos / 1e9;
+            out.printf(Locale.ROOT, "%-44s %9d %12.4f %12.1f %14.0f %12.1f%n",
+                    name, rows, nanos / 1e6 / ops, ops / seconds, (double) bytes / ops, bytes / 1e6 / seconds);
+        } catch (Exception e) {
+            out.println(name + " failed:");
+            e.printStackTrace();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Runs a benchmark of an asynchronous operation, keeping up to {@code inFlight}
+     * operations running at once, and prints one row of results. Allocation happens on
+     * other threads, so it is not reported.
+     *
+     * @param name      The name of the benchmark.
+     * @param rows      The number of rows in the synthetic data.
+     * @param inFlight  The number of operations kept running at once.
+     * @param operation The operation to measure.
+     * @return The measured operations per second, or 0 if the benchmark failed.
+     */
+    public static double runAsync(String name, int rows, int inFlight, AsyncOperation operation) {
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                iterateAsync(inFlight, operation);
+            }
+
+            long ops = 0;
+            long nanos = 0;
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                long[] result = iterateAsync(inFlight, operation);
+                ops += result[0];
+                nanos += result[1];
+            }
+
+            double opsPerSecond = ops / (nanos / 1e9);
+            System.out.printf(Locale.ROOT, "%-44s %9d %12.4f %12.1f %14s %12s%n",
+                    name, rows, nanos / 1e6 / ops, opsPerSecond, "-", "-");
+            return opsPerSecond;
+        } catch (Exception e) {
+            System.out.println(name + " failed:");
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Runs one iteration of an asynchronous operation. Operations are started until
+     * {@link #ITERATION_MILLIS} have passed, then the iteration waits for them all.
+     *
+     * @param inFlight  The number of operations kept running at once.
+     * @param operation The operation to run.
+     * @return The number of completed operations and the time taken in nanoseconds.
+     * @throws InterruptedException If interrupted while waiting for an operation.
+     */
+    private static long[] iterateAsync(int inFlight, AsyncOperation operation) throws InterruptedException {
+        Semaphore permits = new Semaphore(inFlight);
+        AtomicLong completed = new AtomicLong();
+        long deadline = ITERATION_MILLIS * 1_000_000;
+        long start = System.nanoTime();
+        do {
+            permits.acquire();
+            operation.start().whenComplete((value, error) -> {
+                completed.incrementAndGet();
+                permits.release();
+            });
+        } while (System.nanoTime() - start < deadline);
+        permits.acquire(inFlight); // wait for the operations still running
+        return new long[] { completed.get(), System.nanoTime() - start };
+    }
+
+    /**
+     * Runs one iteration of an operation.
+     *
+     * @param operation The operation to run.
+     * @return The number of calls, the time taken in nanoseconds and the bytes allocated.
+     * @throws Exception If the operation fails.
+     */
+    private static long[] iterate(Operation operation) throws Exception {
+        long thread = Thread.currentThread().getId();
+        long deadline = ITERATION_MILLIS * 1_000_000;
+        long startBytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long ops = 0;
+        long elapsed;
+        int result = 0;
+        do {
+            Object value = operation.run();
+            result += System.identityHashCode(value);
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < deadline);
+        long bytes = threads.getThreadAllocatedBytes(thread) - startBytes;
+        sink += result;
+        return new long[] { ops, elapsed, bytes };
+    }
+}
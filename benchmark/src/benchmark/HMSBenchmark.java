@@ -0,0 +1,357 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import accounts.DoctorsAcc;
+import accounts.Login;
+import accounts.PatientsAcc;
+import appointment.Appointment;
+import appointment.AppointmentManager;
+import main.SystemInitialisation;
+import schedule.Schedule;
+import schedule.ScheduleManager;
+import user.Doctor;
+import user.Role;
+import user.User;
+import utility.CSVread;
+import utility.CSVwrite;
+import utility.IDGenerator;
+import utility.PasswordHasher;
+
+/**
+ * Benchmarks the CSV readers and writer and the hot paths of the managers against
+ * synthetic data of 10k, 100k and 1M rows.
+ * <p>
+ * For each size the data is generated once under {@code hms-benchmark/<rows>} in the
+ * temporary folder, then the benchmarks run in a new JVM whose working folder is
+ * {@code hms-benchmark/<rows>/src}. The application finds the synthetic data there
+ * through its usual {@code ../Data} paths, and every size starts from a fresh heap.
+ * <p>
+ * Usage, from the {@code benchmark} folder after compiling {@code src} into
+ * {@code ../src/bin}:
+ *
+ * <pre>
+ * javac -cp ../src/bin -d bin src/benchmark/*.java
+ * java -cp bin:../src/bin benchmark.HMSBenchmark [rows...]
+ * </pre>
+ */
+public class HMSBenchmark {
+
+    /** The sizes benchmarked when none are given. */
+    private static final int[] DEFAULT_ROWS = { 10_000, 100_000, 1_000_000 };
+
+    /** Passed to the forked JVM to run the benchmarks for one size. */
+    private static final String FORK = "--fork";
+
+    /** The number of time slots every thread tries to book in the contention benchmark. */
+    private static final int CONTENDED_SLOTS = 4_000;
+
+    /** The maximum heap of the forked JVM, enough for every store at 1M rows. */
+    private static final String FORK_HEAP = System.getProperty("bench.heap", "-Xmx3g");
+
+    /**
+     * Generates the synthetic data for each size and benchmarks it in a forked JVM.
+     *
+     * @param args The numbers of rows to benchmark, or {@code --fork <rows>} inside
+     *             the forked JVM.
+     * @throws Exception If the data cannot be generated or the fork fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals(FORK)) {
+            runBenchmarks(Integer.parseInt(args[1]));
+            return;
+        }
+
+        int[] sizes = DEFAULT_ROWS;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i].replace("_", ""));
+            }
+        }
+
+        File root = new File(System.getProperty("java.io.tmpdir"), "hms-benchmark");
+        for (int rows : sizes) {
+            File dir = new File(root, String.valueOf(rows));
+            File workDir = new File(dir, "src");
+            if (!isCurrent(dir)) {
+                System.out.println("Generating " + rows + " rows in " + dir);
+                SyntheticData.generate(new File(dir, "Data"), rows);
+            }
+            workDir.mkdirs();
+
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add(FORK_HEAP);
+            for (String property : new String[] { "bench.warmup", "bench.iterations", "bench.millis",
+                    "hms.password.iterations", "hms.password.threads", "hms.password.queue" }) {
+                if (System.getProperty(property) != null) {
+                    command.add("-D" + property + "=" + System.getProperty(property));
+                }
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(HMSBenchmark.class.getName());
+            command.add(FORK);
+            command.add(String.valueOf(rows));
+
+            int exitCode = new ProcessBuilder(command).directory(workDir).inheritIO().start().waitFor();
+            if (exitCode != 0) {
+                System.out.println("Benchmarks for " + rows + " rows failed with exit code " + exitCode);
+            }
+        }
+    }
+
+    /**
+     * Loads the synthetic data and runs every benchmark for one size.
+     *
+     * @param rows The number of rows in the synthetic data.
+     * @throws IOException          If a scratch file cannot be created.
+     * @throws InterruptedException If interrupted while waiting for a benchmark thread.
+     */
+    private static void runBenchmarks(int rows) throws IOException, InterruptedException {
+        DoctorsAcc.setFilePaths();
+        PatientsAcc.setFilePaths();
+        AppointmentManager.setFilePaths();
+        ScheduleManager.setFilePaths();
+        DoctorsAcc.loadDoctors(true);
+        PatientsAcc.loadPatients(true);
+        AppointmentManager.loadAppointments(true);
+        ScheduleManager.loadSchedules(true);
+
+        System.out.println();
+        Bench.printHeader();
+
+        // CSVread
+        Bench.run("CSVread.readCSV (Patient)", rows, () -> CSVread.readCSV(
+                path("PatientsOriginal"), userMapping(true), "Patient"));
+        Bench.run("CSVread.readCSV (Doctor)", rows, () -> CSVread.readCSV(
+                path("DoctorsOriginal"), userMapping(false), "Doctor"));
+        Bench.run("CSVread.readApptCSV", rows, () -> CSVread.readApptCSV(
+                path("AppointmentOriginal"), mapping("AppointmentID", "PatientID", "DoctorID", "Date", "Time",
+                        "Status", "ConsultationNotes", "PrescribedMedications", "ServiceType")));
+        Bench.run("CSVread.readScheduleCSV", rows, () -> CSVread.readScheduleCSV(
+                path("ScheduleOriginal"), mapping("Doctor ID", "Date", "Time Slots")));
+        Bench.run("CSVread.readLeaveCSV", rows, () -> CSVread.readLeaveCSV(
+                path("LeaveOriginal"), mapping("leaveID", "staffID", "date", "status", "reason")));
+        Bench.run("CSVread.readMedicalRecordCSV", rows, () -> CSVread.readMedicalRecordCSV(
+                path("MedicalRecordOriginal"), mapping("MedicalR ID", "Doctor ID", "Patient ID", "Diagnoses",
+                        "Prescriptions", "Treatment Plan", "Prescription Status")));
+        Bench.run("CSVread.readReplenishCSV", rows, () -> CSVread.readReplenishCSV(
+                path("ReplenishOriginal"), mapping("RequestID", "Medicine", "Quantity", "RequestedBy",
+                        "RequestDate", "Status", "ApprovalDate")));
+        Bench.run("CSVread.readItemCSV", rows, () -> CSVread.readItemCSV(
+                path("InventoryOriginal"), mapping("Medicine Name", "Initial Stock", "Low Stock Level Alert")));
+
+        // CSVwrite, into scratch copies so the synthetic data is left untouched
+        List<Appointment> appointments = AppointmentManager.getAllAppointments();
+        List<User> patients = PatientsAcc.getPatients();
+        String apptScratch = scratchCopy("AppointmentOriginal");
+        String patientScratch = scratchCopy("PatientsOriginal");
+        Bench.run("CSVwrite.writeCSVList (Appointment)", rows, () -> {
+            CSVwrite.writeCSVList(apptScratch, appointments);
+            return apptScratch;
+        });
+        Bench.run("CSVwrite.writeCSVList (Patient)", rows, () -> {
+            CSVwrite.writeCSVList(patientScratch, patients);
+            return patientScratch;
+        });
+
+        // manager hot paths, cycling through the doctors and patients
+        int doctorCount = SyntheticData.doctorCount(rows);
+        String[] doctorIDs = new String[doctorCount];
+        Doctor[] doctors = new Doctor[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctorIDs[i] = SyntheticData.doctorID(i);
+            doctors[i] = DoctorsAcc.findDoctorById(doctorIDs[i]);
+        }
+        int[] next = { 0 };
+
+        Bench.run("AppointmentManager.getAppointmentsByDoctor", rows, () -> AppointmentManager
+                .getAppointmentsByDoctor(doctorIDs[next[0]++ % doctorCount]));
+
+        LocalDate today = LocalDate.now();
+        LocalTime[] times = { LocalTime.of(9, 0), LocalTime.of(10, 30), LocalTime.of(13, 0), LocalTime.of(18, 0) };
+        Bench.run("ScheduleManager.checkValidSchedule", rows, () -> {
+            int i = next[0]++;
+            return ScheduleManager.checkValidSchedule(SyntheticData.date(today, i % rows, rows),
+                    times[i % times.length], doctors[i % doctorCount]);
+        });
+
+        Bench.run("IDGenerator.generateID (Appointment)", rows, () -> IDGenerator.generateID(
+                "AP", appointments, Appointment::getAppointmentID, 3));
+
+        Login login = new Login(Role.Patient);
+        Bench.run("Login.authenticate (Patient ID)", rows, () -> {
+            int i = next[0]++ % rows;
+            return login.authenticate(new Scanner(
+                    SyntheticData.patientID(i) + "\n" + SyntheticData.patientPassword(i) + "\n"));
+        });
+
+        // password verification throughput with every worker of the pool busy
+        String storedHash = PatientsAcc.findPatientById(SyntheticData.patientID(0)).getPassword();
+        int workers = PasswordHasher.THREADS;
+        double loginsPerSecond = Bench.runAsync("PasswordHasher.verifyAsync (" + workers + " threads)", rows,
+                workers * 2, () -> PasswordHasher.verifyAsync(SyntheticData.patientPassword(0), storedHash));
+        int cores = Math.min(workers, Runtime.getRuntime().availableProcessors());
+        System.out.printf(Locale.ROOT, "  %d PBKDF2 iterations: %.1f logins/s on %d cores, %.1f logins/s per core%n",
+                PasswordHasher.ITERATIONS, loginsPerSecond, cores, loginsPerSecond / cores);
+
+        benchmarkSlotContention(rows);
+    }
+
+    /**
+     * Benchmarks booking under contention. Several threads try to book the same time
+     * slots at once, each in a different order, and every slot must be booked exactly
+     * once. Prints one row of results and the number of bookings and double bookings.
+     * The time slots booked are taken out of the synthetic schedules.
+     *
+     * @param rows The number of rows in the synthetic data.
+     * @throws IOException          If the updated files cannot be created.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    private static void benchmarkSlotContention(int rows) throws IOException, InterruptedException {
+        // bookings are recorded in the change logs of the updated files, so create those first
+        for (String store : new String[] { "Appointment", "Schedule" }) {
+            Files.copy(new File(path(store + "Original")).toPath(), new File(path(store + "Updated")).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        int threadCount = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        List<String[]> slots = new ArrayList<>();
+        for (Schedule schedule : ScheduleManager.getSchedules()) {
+            for (LocalTime time : schedule.getTimeSlots()) {
+                slots.add(new String[] { schedule.getDoctorID(), schedule.getDate().toString(), time.toString() });
+            }
+            if (slots.size() >= CONTENDED_SLOTS) {
+                break;
+            }
+        }
+
+        Map<String, AtomicInteger> bookings = new ConcurrentHashMap<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int offset = t * slots.size() / threadCount;
+            String patientID = SyntheticData.patientID(t);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < slots.size(); i++) {
+                    String[] slot = slots.get((offset + i) % slots.size());
+                    attempts.incrementAndGet();
+                    if (AppointmentManager.scheduleAppointment(slot[0], patientID, LocalDate.parse(slot[1]),
+                            LocalTime.parse(slot[2]))) {
+                        bookings.computeIfAbsent(String.join(" ", slot), key -> new AtomicInteger()).incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - begin;
+
+        long doubleBooked = bookings.values().stream().filter(count -> count.get() > 1).count();
+        System.out.printf(Locale.ROOT, "%-44s %9d %12.4f %12.1f %14s %12s%n",
+                "scheduleAppointment, contended (" + threadCount + " threads)", rows,
+                nanos / 1e6 / attempts.get(), attempts.get() / (nanos / 1e9), "-", "-");
+        System.out.printf(Locale.ROOT, "  %d contended slots: %d booked, %d double-booked%n",
+                slots.size(), bookings.size(), doubleBooked);
+    }
+
+    /**
+     * Checks whether the synthetic data in a folder exists and its patient passwords were
+     * hashed at the current cost, so that logging in does not hash them again.
+     *
+     * @param dir The folder of one size.
+     * @return {@code true} if the data can be reused.
+     * @throws IOException If the patient file cannot be read.
+     */
+    private static boolean isCurrent(File dir) throws IOException {
+        File patients = new File(dir, "Data/Original/Patient_List.csv");
+        if (!new File(dir, "Data/Original/Appt_List.csv").exists() || !patients.exists()) {
+            return false;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(patients))) {
+            reader.readLine(); // header
+            String first = reader.readLine();
+            return first != null && first.contains("pbkdf2$" + PasswordHasher.ITERATIONS + "$");
+        }
+    }
+
+    /**
+     * Returns the path of a data file as seen from the working folder.
+     *
+     * @param key The key of the file in {@link SystemInitialisation}.
+     * @return The path.
+     */
+    private static String path(String key) {
+        return SystemInitialisation.getFilePath(key);
+    }
+
+    /**
+     * Copies a data file to a scratch file that can be overwritten.
+     *
+     * @param key The key of the file in {@link SystemInitialisation}.
+     * @return The path of the scratch file.
+     * @throws IOException If the file cannot be copied.
+     */
+    private static String scratchCopy(String key) throws IOException {
+        File scratch = new File(key + "-scratch.csv");
+        Files.copy(new File(path(key)).toPath(), scratch.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return scratch.getPath();
+    }
+
+    /**
+     * Builds a column mapping with the given columns in order.
+     *
+     * @param columns The column names.
+     * @return The mapping of each column name to its index.
+     */
+    private static Map<String, Integer> mapping(String... columns) {
+        Map<String, Integer> mapping = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            mapping.put(columns[i], i);
+        }
+        return mapping;
+    }
+
+    /**
+     * Builds the column mapping of a user file.
+     *
+     * @param patient Whether the file holds patients, which have extra columns.
+     * @return The mapping of each column name to its index.
+     */
+    private static Map<String, Integer> userMapping(boolean patient) {
+        return patient
+                ? mapping("hospitalID", "name", "role", "gender", "age", "password", "dateOB", "bloodType",
+                        "contactInfo")
+                : mapping("hospitalID", "name", "role", "gender", "age", "password");
+    }
+}
@@ -0,0 +1,247 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import accounts.PatientsAcc;
+import main.HMSApp;
+import main.HMSServer;
+import main.SystemInitialisation;
+import medicalrecord.MedicalRecordManager;
+
+/**
+ * Load tests the server mode with many concurrent sessions.
+ * <p>
+ * Synthetic data is generated under {@code hms-loadtest/<rows>} in the temporary folder,
+ * then a new JVM whose working folder is {@code hms-loadtest/<rows>/src} starts an
+ * {@link HMSServer} and connects the given number of simulated users to it at once.
+ * Nine in ten log in as patients and view their medical records, appointments and past
+ * outcomes; the rest log in as doctors and view their schedule and appointments. Every
+ * user then logs out and exits. The test reports the sessions per second, the session
+ * latencies, the number of sessions that did not complete and the counters of the
+ * cache of patients' medical records.
+ * <p>
+ * The data is generated afresh for every run, since the sessions change it. Passwords
+ * are hashed at 10,000 iterations unless {@code -Dhms.password.iterations} is given, as
+ * the test measures the sessions rather than hashing, and the verification queue is as
+ * long as the number of sessions, so that a burst of logins waits instead of being
+ * refused.
+ * <p>
+ * Usage, from the {@code benchmark} folder after compiling {@code src} into
+ * {@code ../src/bin}:
+ *
+ * <pre>
+ * javac -cp ../src/bin -d bin src/benchmark/*.java
+ * java -cp bin:../src/bin benchmark.SessionLoadTest [sessions] [rows]
+ * </pre>
+ */
+public class SessionLoadTest {
+
+    /** The number of sessions when none is given. */
+    private static final int DEFAULT_SESSIONS = 500;
+
+    /** The number of rows of synthetic data when none is given. */
+    private static final int DEFAULT_ROWS = 10_000;
+
+    /** Passed to the forked JVM to run the test. */
+    private static final String FORK = "--fork";
+
+    /** The PBKDF2 cost used when none is given. */
+    private static final String ITERATIONS = "10000";
+
+    /**
+     * Generates the synthetic data and runs the test in a forked JVM.
+     *
+     * @param args The number of sessions and the number of rows, or
+     *             {@code --fork <sessions> <rows>} inside the forked JVM.
+     * @throws Exception If the data cannot be generated or the fork fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals(FORK)) {
+            runTest(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        int rows = args.length > 1 ? Integer.parseInt(args[1].replace("_", "")) : DEFAULT_ROWS;
+
+        File dir = new File(new File(System.getProperty("java.io.tmpdir"), "hms-loadtest"), String.valueOf(rows));
+        delete(dir);
+        File workDir = new File(dir, "src");
+        workDir.mkdirs();
+
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dhms.password.iterations=" + System.getProperty("hms.password.iterations", ITERATIONS));
+        command.add("-Dhms.password.queue=" + System.getProperty("hms.password.queue", String.valueOf(sessions)));
+        command.add("-Dhms.server.sessions=" + System.getProperty("hms.server.sessions", String.valueOf(sessions)));
+        if (System.getProperty("hms.password.threads") != null) {
+            command.add("-Dhms.password.threads=" + System.getProperty("hms.password.threads"));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SessionLoadTest.class.getName());
+        command.add(FORK);
+        command.add(String.valueOf(sessions));
+        command.add(String.valueOf(rows));
+
+        int exitCode = new ProcessBuilder(command).directory(workDir).inheritIO().start().waitFor();
+        if (exitCode != 0) {
+            System.out.println("Load test failed with exit code " + exitCode);
+        }
+    }
+
+    /**
+     * Starts the server on the synthetic data and runs the sessions against it.
+     *
+     * @param sessions The number of concurrent sessions.
+     * @param rows     The number of rows of synthetic data.
+     * @throws Exception If the data cannot be generated or the server cannot start.
+     */
+    private static void runTest(int sessions, int rows) throws Exception {
+        System.out.println("Generating " + rows + " rows");
+        SyntheticData.generate(new File("../Data"), rows);
+        // the first start copies each store into its updated file, which keeps the header
+        for (File original : new File("../Data/Original").listFiles()) {
+            File updated = new File("../Data/Updated", original.getName().replace(".csv", "(Updated).csv"));
+            Files.copy(original.toPath(), updated.toPath());
+        }
+
+        HMSApp.startConsole();
+        SystemInitialisation.start();
+        HMSServer server = new HMSServer(0);
+        Thread acceptor = new Thread(server::serve, "HMSServer-Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        int doctors = SyntheticData.doctorCount(rows);
+        long[] latencies = new long[sessions];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> users = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            int user = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long begin = System.nanoTime();
+                    String output = runSession(server.getPort(), script(user, rows, doctors));
+                    latencies[user] = System.nanoTime() - begin;
+                    if (!output.contains("Login successful") || !output.contains("Goodbye!")) {
+                        failures.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    latencies[user] = -1;
+                }
+            }, "User-" + i);
+            users.add(thread);
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : users) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        server.close();
+
+        long[] completed = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        System.out.println();
+        System.out.printf("Sessions:     %d concurrent, %d rows, %d failed%n", sessions, rows, failures.get());
+        System.out.printf("Throughput:   %.1f sessions/s over %.2f s%n", sessions / seconds, seconds);
+        if (completed.length > 0) {
+            System.out.printf("Latency (ms): p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                    percentile(completed, 50), percentile(completed, 90), percentile(completed, 99),
+                    completed[completed.length - 1] / 1e6);
+        }
+        System.out.println("Record cache: " + MedicalRecordManager.getCacheStats());
+        System.out.println("Profile cache: " + PatientsAcc.getProfileCacheStats());
+        System.exit(failures.get() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Returns the input typed by a simulated user.
+     *
+     * @param user    The index of the user.
+     * @param rows    The number of rows of synthetic data.
+     * @param doctors The number of doctors in the synthetic data.
+     * @return The lines typed, from logging in to exiting.
+     */
+    private static String script(int user, int rows, int doctors) {
+        if (user % 10 == 9) {
+            int doctor = user % doctors;
+            // log in, view schedule, view appointments, log out, exit
+            return String.join("\n", "1", "2", SyntheticData.doctorID(doctor), "secret" + doctor,
+                    "2", "1", "3", "3", "1", "4", "5", "4") + "\n";
+        }
+        int patient = user % rows;
+        // log in, view medical records, scheduled appointments and past outcomes, log out, exit
+        return String.join("\n", "1", "1", SyntheticData.patientID(patient), SyntheticData.patientPassword(patient),
+                "1", "7", "8", "9", "4") + "\n";
+    }
+
+    /**
+     * Connects to the server, types a script and reads everything printed until the
+     * server closes the session.
+     *
+     * @param port   The port of the server.
+     * @param script The lines to type.
+     * @return The output of the session.
+     * @throws IOException If the connection fails.
+     */
+    private static String runSession(int port, String script) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(script.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted latencies in milliseconds.
+     *
+     * @param sorted     The latencies in nanoseconds, in ascending order.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency at the percentile in milliseconds.
+     */
+    private static double percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Deletes a folder and everything in it, if it exists.
+     *
+     * @param dir The folder to delete.
+     * @throws IOException If a file cannot be deleted.
+     */
+    private static void delete(File dir) throws IOException {
+        if (!dir.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            List<Path> deepestFirst = paths.sorted(Comparator.reverseOrder()).toList();
+            for (Path path : deepestFirst) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import inventory.Medicine;
+import utility.PasswordHasher;
+
+/**
+ * Generates a synthetic {@code Data/Original} folder in the same CSV layout as the
+ * real data, scaled to a given number of rows.
+ * <p>
+ * Patients, appointments, schedules, leave requests, medical records and replenish
+ * requests each get the full number of rows. There is one doctor for every 100 rows
+ * (at least 10), so every doctor has about 100 appointments and 100 schedules.
+ * Admins and pharmacists stay at 10 rows, and the inventory has one row per
+ * {@link Medicine}. All dates are in the future, so no schedule has expired.
+ * <p>
+ * Every patient shares one password, hashed once at the cost the benchmark runs with,
+ * since hashing a million passwords would take hours. Staff keep plain text passwords
+ * as in data from before passwords were hashed.
+ */
+public class SyntheticData {
+
+    /** The number of admins and pharmacists generated. */
+    private static final int STAFF = 10;
+
+    /** The fixed line ending used in every generated file. */
+    private static final String NEWLINE = "\n";
+
+    /**
+     * Returns the number of doctors generated for the given number of rows.
+     *
+     * @param rows The number of rows.
+     * @return The number of doctors.
+     */
+    public static int doctorCount(int rows) {
+        return Math.max(10, rows / 100);
+    }
+
+    /**
+     * Returns the ID of the doctor with the given index.
+     *
+     * @param index The index of the doctor.
+     * @return The doctor ID.
+     */
+    public static String doctorID(int index) {
+        return String.format("D%05d", index + 1);
+    }
+
+    /**
+     * Returns the ID of the patient with the given index.
+     *
+     * @param index The index of the patient.
+     * @return The patient ID.
+     */
+    public static String patientID(int index) {
+        return String.format("P%07d", index + 1);
+    }
+
+    /**
+     * Returns the password of the patient with the given index. Passwords are not the
+     * default password, so logging in never prompts for a new one.
+     *
+     * @param index The index of the patient.
+     * @return The password.
+     */
+    public static String patientPassword(int index) {
+        return "secret";
+    }
+
+    /**
+     * Returns the date of the schedule or appointment with the given index. Each doctor
+     * works on consecutive days, starting from the day after {@code today}.
+     *
+     * @param today The date the data is generated on.
+     * @param index The index of the row.
+     * @param rows  The number of rows.
+     * @return The date.
+     */
+    public static LocalDate date(LocalDate today, int index, int rows) {
+        return today.plusDays(1 + index / doctorCount(rows));
+    }
+
+    /**
+     * Writes every CSV file of the {@code Original} folder under the given data folder.
+     *
+     * @param dataDir The {@code Data} folder to create.
+     * @param rows    The number of rows of the large stores.
+     * @throws IOException If a file cannot be written.
+     */
+    public static void generate(File dataDir, int rows) throws IOException {
+        File original = new File(dataDir, "Original");
+        File updated = new File(dataDir, "Updated");
+        original.mkdirs();
+        updated.mkdirs();
+
+        int doctors = doctorCount(rows);
+        LocalDate today = LocalDate.now();
+
+        try (BufferedWriter out = open(original, "Admin_List.csv")) {
+            out.write("Staff ID,Name,Role,Gender,Age,Password" + NEWLINE);
+            for (int i = 0; i < STAFF; i++) {
+                out.write(String.format("A%03d,Admin %d,Administrator,Female,40,secret%d", i + 1, i, i) + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Pharm_List.csv")) {
+            out.write("Staff ID,Name,Role,Gender,Age,Password" + NEWLINE);
+            for (int i = 0; i < STAFF; i++) {
+                out.write(String.format("P%03d,Pharmacist %d,Pharmacist,Male,29,secret%d", i + 1, i, i) + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Doctor_List.csv")) {
+            out.write("Staff ID,Name,Role,Gender,Age,Password" + NEWLINE);
+            for (int i = 0; i < doctors; i++) {
+                out.write(doctorID(i) + ",Doctor " + i + ",Doctor," + (i % 2 == 0 ? "Male" : "Female")
+                        + "," + (30 + i % 30) + ",secret" + i + NEWLINE);
+            }
+        }
+
+        String patientHash = PasswordHasher.hash(patientPassword(0));
+        try (BufferedWriter out = open(original, "Patient_List.csv")) {
+            out.write("Patient ID,Name,Role,Gender,Age,Password,Date of Birth,Blood Type,Contact Information" + NEWLINE);
+            for (int i = 0; i < rows; i++) {
+                out.write(patientID(i) + ",Patient " + i + ",Patient," + (i % 2 == 0 ? "Female" : "Male")
+                        + "," + (1 + i % 90) + "," + patientHash + ",14/05/1980,"
+                        + (i % 2 == 0 ? "A+" : "O-") + ",patient" + i + "@example.com" + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Appt_List.csv")) {
+            out.write("AppointmentID,PatientID,DoctorID,Date,Time,Status,Consultation Notes,"
+                    + "Prescribed Medications,Service Type" + NEWLINE);
+            String[] statuses = { "PENDING", "SCHEDULED", "COMPLETED", "CANCELLED" };
+            for (int i = 0; i < rows; i++) {
+                String status = statuses[i % statuses.length];
+                boolean completed = status.equals("COMPLETED");
+                out.write(String.format("AP%07d", i + 1) + "," + patientID(i) + "," + doctorID(i % doctors)
+                        + "," + date(today, i, rows) + "," + String.format("%02d:00", 8 + i % 10)
+                        + "," + status + "," + (completed ? "Follow up in two weeks" : "")
+                        + "," + (completed ? "Paracetamol" : "") + "," + (completed ? "Consultation" : "")
+                        + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Schedule_List.csv")) {
+            out.write("Doctor ID,Date,Time Slots" + NEWLINE);
+            for (int i = 0; i < rows; i++) {
+                out.write(doctorID(i % doctors) + "," + date(today, i, rows) + ",\"09:00;11:00;14:00;16:00\""
+                        + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Leave_List.csv")) {
+            out.write("Leave ID, Staff ID, Date, Status, Reason" + NEWLINE);
+            String[] statuses = { "PENDING", "APPROVED", "REJECTED" };
+            for (int i = 0; i < rows; i++) {
+                out.write(String.format("LR%07d", i + 1) + " ," + doctorID(i % doctors) + " ,"
+                        + date(today, i, rows) + " ," + statuses[i % statuses.length] + " ,personal leave"
+                        + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "MedicalRecord_List.csv")) {
+            out.write("MedicalR ID,Doctor ID,Patient ID,Diagnoses,Prescriptions,Treatment Plan, Prescription Status"
+                    + NEWLINE);
+            for (int i = 0; i < rows; i++) {
+                out.write(String.format("MR%07d", i + 1) + "," + doctorID(i % doctors) + "," + patientID(i)
+                        + ",\"Diabetes;Hypertension\",\"Paracetamol: 10;Ibuprofen: 20\",\"Plan1;Plan2\","
+                        + (i % 2 == 0 ? "PENDING" : "DISPENSED") + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Replenish_List.csv")) {
+            out.write("RequestID,Medicine,Quantity,RequestedBy,RequestDate,Status,ApprovalDate" + NEWLINE);
+            Medicine[] medicines = Medicine.values();
+            for (int i = 0; i < rows; i++) {
+                boolean approved = i % 2 == 1;
+                out.write(String.format("REQ%07d", i + 1) + "," + medicines[i % medicines.length] + ","
+                        + (10 + i % 50) + ",Pharmacist " + (i % STAFF) + "," + today + ","
+                        + (approved ? "APPROVED," + today : "PENDING,") + NEWLINE);
+            }
+        }
+
+        try (BufferedWriter out = open(original, "Medicine_List.csv")) {
+            out.write("Medicine Name,Initial Stock,Low Stock Level Alert" + NEWLINE);
+            for (Medicine medicine : Medicine.values()) {
+                out.write(medicine + ",100,20" + NEWLINE);
+            }
+        }
+    }
+
+    /**
+     * Opens a file of the data folder for writing.
+     *
+     * @param dir  The folder of the file.
+     * @param name The name of the file.
+     * @return A buffered writer for the file.
+     * @throws IOException If the file cannot be created.
+     */
+    private static BufferedWriter open(File dir, String name) throws IOException {
+        return new BufferedWriter(new FileWriter(new File(dir, name)), 1 << 16);
+    }
+}
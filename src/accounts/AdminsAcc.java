@@ -6,6 +6,7 @@ import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 
 import main.MainUI;
 import main.SystemInitialisation;
@@ -27,12 +28,18 @@ public class AdminsAcc {
 
     /** A list to store all {@link Administrator} objects. */
     private static List<Administrator> admins = new ArrayList<>();
+    /** An index of every {@link Administrator} by hospital ID, kept in sync with {@link #admins}. */
+    private static Map<String, Administrator> adminsById = new HashMap<>();
 
     /** The file path to the original administrator CSV file. */
     private static String originalPath;
 
     /** The file path to the updated administrator CSV file. */
     private static String updatedPath;
+    /** The change log recording administrator changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+    /** Guards the admin list, its index and its change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
 
     /**
      * Updates the file paths for loading and saving admin data by retrieving them from 
@@ -52,6 +59,7 @@ public class AdminsAcc {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("AdminsOriginal");
         updatedPath = SystemInitialisation.getFilePath("AdminsUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
@@ -59,41 +67,56 @@ public class AdminsAcc {
      * <p>
      * If it is the first run, it loads from the original file path and clears the
      * updated file.
-     * Otherwise, it loads from the updated file.
+     * Otherwise, it loads from the updated file after replaying any logged changes
+     * over it.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadAdmins(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
-
-        // clear the list to avoid having duplicate data
-        admins.clear();
-
-        Map<String, Integer> adminMapping = new HashMap<>();
-        adminMapping.put("hospitalID", 0);
-        adminMapping.put("name", 1);
-        adminMapping.put("role", 2);
-        adminMapping.put("gender", 3);
-        adminMapping.put("age", 4);
-        adminMapping.put("password", 5);
-
-        List<Object> adminsMapList = CSVread.readCSV(filePath, adminMapping, "Administrator");
-
-        // add the data from CSV into staffsList
-        for (Object user : adminsMapList) {
-            if (user instanceof Administrator) {
-                admins.add((Administrator) user);
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
             }
-        }
 
-        if (admins.isEmpty()) {
-            System.out.println("No admins were loaded.");
-        } else {
-            System.out.println("Admins successfully loaded: " + admins.size());
-        }
+            // clear the list to avoid having duplicate data
+            admins.clear();
+            adminsById.clear();
+
+            Map<String, Integer> adminMapping = new HashMap<>();
+            adminMapping.put("hospitalID", 0);
+            adminMapping.put("name", 1);
+            adminMapping.put("role", 2);
+            adminMapping.put("gender", 3);
+            adminMapping.put("age", 4);
+            adminMapping.put("password", 5);
+
+            // a warm start reads the binary snapshot when it is current
+            List<Object> adminsMapList = isFirstRun ? null : BinarySnapshot.readUsers(filePath, "Administrator");
+            if (adminsMapList == null) {
+                adminsMapList = CSVread.readCSV(filePath, adminMapping, "Administrator");
+            }
+
+            // add the data from CSV into staffsList
+            for (Object user : adminsMapList) {
+                if (user instanceof Administrator) {
+                    admins.add((Administrator) user);
+                    adminsById.put(((Administrator) user).getHospitalID(), (Administrator) user);
+                }
+            }
+
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("A", admins, Administrator::getHospitalID);
+
+            if (admins.isEmpty()) {
+                System.out.println("No admins were loaded.");
+            } else {
+                System.out.println("Admins successfully loaded: " + admins.size());
+            }
+        });
     }
 
     /**
@@ -102,20 +125,41 @@ public class AdminsAcc {
      * @return A list of {@link User} objects representing administrators.
      */
     public static List<User> getAdmins() {
-        return new ArrayList<>(admins);
+        return lock.read(() -> new ArrayList<>(admins));
     }
 
     /** Displays all administrators currently in the list. */
     public static void displayAdmins() {
         System.out.println("\nThe Admins in the CSV file are: ");
-        for (User admin : admins) {
+        for (User admin : getAdmins()) {
             System.out.println(admin.userInfo());
         }
     }
 
     /** Duplicates the current administrator list to the updated CSV file. */
     public static void duplicateAdmin() {
-        CSVwrite.writeCSVList(updatedPath, admins);
+        lock.read(() -> changeLog.rewrite(admins));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the admins beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeUsers(updatedPath, admins);
+        });
+    }
+
+    /**
+     * Saves the changes made to a single administrator by appending it to the change log,
+     * instead of rewriting the whole CSV file.
+     * 
+     * @param administrator The {@link Administrator} whose details have been modified.
+     */
+    private static void updateRecord(Administrator administrator) {
+        lock.write(() -> changeLog.update(administrator.getHospitalID(), CSVwrite.toCSVRow(administrator)));
     }
 
     /**
@@ -125,12 +169,7 @@ public class AdminsAcc {
      * @return The {@link Administrator} object if found; {@code null} otherwise.
      */
     public static Administrator findAdminById(String hospitalID) {
-        for (Administrator admin : admins) {
-            if (admin.getHospitalID().equals(hospitalID)) {
-                return admin;
-            }
-        }
-        return null;
+        return lock.read(() -> adminsById.get(hospitalID));
     }
 
     /**
@@ -143,8 +182,11 @@ public class AdminsAcc {
         Administrator newCreatedUser = NewAccount.createNewAccount(sc, admins, Role.Administrator);
 
         if (newCreatedUser != null) {
-            admins.add(newCreatedUser);
-            CSVwrite.writeCSV(updatedPath, newCreatedUser);
+            lock.write(() -> {
+                admins.add(newCreatedUser);
+                adminsById.put(newCreatedUser.getHospitalID(), newCreatedUser);
+                changeLog.insert(newCreatedUser.getHospitalID(), CSVwrite.toCSVRow(newCreatedUser));
+            });
             System.out.println("Admin " + newCreatedUser.getName() + " created!");
         } else {
             System.out.println("Account creation failed!");
@@ -167,13 +209,11 @@ public class AdminsAcc {
         if (adminToUpdate != null) {
             System.out.print("Enter your Name: ");
             String name = sc.nextLine();
-            name = name.substring(0, 1).toUpperCase() + name.substring(1);
-            adminToUpdate.setName(name);
+            String newName = name.substring(0, 1).toUpperCase() + name.substring(1);
 
             System.out.print("Enter your Gender: ");
             String gender = sc.nextLine();
-            gender = gender.substring(0, 1).toUpperCase() + gender.substring(1);
-            adminToUpdate.setGender(gender);
+            String newGender = gender.substring(0, 1).toUpperCase() + gender.substring(1);
 
             System.out.print("Enter your Age: ");
             int age;
@@ -185,12 +225,27 @@ public class AdminsAcc {
                 sc.nextLine(); // Consume the invalid input to prevent an infinite loop
                 return;
             }
-            adminToUpdate.setAge(age);
 
             System.out.print("Enter your Password: ");
-            adminToUpdate.setPassword(sc.nextLine());
+            String passwordHash = null;
+            try {
+                passwordHash = PasswordHasher.hashAsync(sc.nextLine()).join(); // only the salted hash is stored
+            } catch (RejectedExecutionException e) {
+                System.out.println("Too many passwords are being changed. The password was not changed.");
+            }
+            String newPasswordHash = passwordHash;
+
+            // change the fields and log them together, so no session sees a half-updated administrator
+            lock.write(() -> {
+                adminToUpdate.setName(newName);
+                adminToUpdate.setGender(newGender);
+                adminToUpdate.setAge(age);
+                if (newPasswordHash != null) {
+                    adminToUpdate.setPassword(newPasswordHash);
+                }
+                updateRecord(adminToUpdate); // rewrite the CSV row with updated version
+            });
             System.out.println("Administrator with Hospital ID " + hospitalID + " has been updated.");
-            duplicateAdmin(); // rewrite the CSV file with updated version
 
         } else {
             System.out.println("Administrator with Hospital ID " + hospitalID + " not found.");
@@ -216,11 +271,16 @@ public class AdminsAcc {
             return;
         }
 
-        User adminToRemove = findAdminById(hospitalID);
+        User adminToRemove = lock.write(() -> {
+            Administrator administrator = adminsById.remove(hospitalID);
+            if (administrator != null) {
+                admins.remove(administrator); // remove Data from admin List
+                changeLog.delete(hospitalID); // remove the row from the CSV file
+            }
+            return administrator;
+        });
         if (adminToRemove != null) {
-            admins.remove(adminToRemove); // remove Data from admin List
             System.out.println("Administrator with Hospital ID " + hospitalID + " has been removed.");
-            duplicateAdmin(); // rewrite the CSV file without the row removed
         } else {
             System.out.println("Administrator with Hospital ID " + hospitalID + " not found.");
         }
@@ -232,15 +292,29 @@ public class AdminsAcc {
      * @param hospitalID  The hospital ID of the administrator whose password is to
      *                    be updated.
      * @param newPassword The new password to set for the administrator.
+     * @throws RejectedExecutionException If too many passwords are already being
+     *                                    hashed.
      */
     public static void updatePassword(String hospitalID, String newPassword) {
-        // find the staff ID to update
-        Administrator adminPWToUpdate = findAdminById(hospitalID);
+        // hashed before the account is looked up, on the bounded pool of the hasher
+        updatePasswordHash(hospitalID, PasswordHasher.hashAsync(newPassword).join());
+    }
 
-        if (adminPWToUpdate != null) {
-            adminPWToUpdate.setPassword(newPassword);
-            duplicateAdmin();
-            return;
-        }
+    /**
+     * Updates the password of a administrator with a password that is already hashed.
+     * 
+     * @param hospitalID   The hospital ID of the administrator whose password is to be
+     *                     updated.
+     * @param passwordHash The new password, hashed by {@link PasswordHasher}.
+     */
+    public static void updatePasswordHash(String hospitalID, String passwordHash) {
+        lock.write(() -> {
+            Administrator adminPWToUpdate = findAdminById(hospitalID);
+
+            if (adminPWToUpdate != null) {
+                adminPWToUpdate.setPassword(passwordHash);
+                updateRecord(adminPWToUpdate);
+            }
+        });
     }
 }
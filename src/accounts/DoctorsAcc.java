@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 
 import main.SystemInitialisation;
 
@@ -11,8 +12,13 @@ import java.util.HashMap;
 import java.util.InputMismatchException;
 
 import user.*;
+import utility.BinarySnapshot;
 import utility.CSVread;
 import utility.CSVwrite;
+import utility.IDGenerator;
+import utility.ChangeLog;
+import utility.StoreLock;
+import utility.PasswordHasher;
 
 /**
  * This class is responsible for managing doctor accounts.
@@ -27,10 +33,16 @@ public class DoctorsAcc {
     
     /** A list to store all {@link Doctor} objects. */
     private static List<Doctor> doctors = new ArrayList<>();
+    /** An index of every {@link Doctor} by hospital ID, kept in sync with {@link #doctors}. */
+    private static Map<String, Doctor> doctorsById = new HashMap<>();
     /** The file path to the original administrator CSV file. */
     private static String originalPath;
     /** The file path to the updated administrator CSV file. */
     private static String updatedPath;
+    /** The change log recording doctor changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+    /** Guards the doctor list, its index and its change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
 
     /**
      * Updates the file paths for loading and saving doctor data by retrieving them from 
@@ -50,6 +62,7 @@ public class DoctorsAcc {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("DoctorsOriginal");
         updatedPath = SystemInitialisation.getFilePath("DoctorsUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
@@ -57,40 +70,55 @@ public class DoctorsAcc {
      * <p>
      * If it is the first run, it loads from the original file path and clears the
      * updated file.
-     * Otherwise, it loads from the updated file.
+     * Otherwise, it loads from the updated file after replaying any logged changes
+     * over it.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadDoctors(boolean isFirstRun) {
-       // Load data from the file
-       String filePath = isFirstRun ? originalPath : updatedPath;
+       lock.write(() -> {
+           // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
 
-        doctors.clear();
+            doctors.clear();
+            doctorsById.clear();
 
-        Map<String, Integer> doctorMapping = new HashMap<>();
-        doctorMapping.put("hospitalID", 0);
-        doctorMapping.put("name", 1);
-        doctorMapping.put("role", 2);
-        doctorMapping.put("gender", 3);
-        doctorMapping.put("age", 4);
-        doctorMapping.put("password", 5);
+            Map<String, Integer> doctorMapping = new HashMap<>();
+            doctorMapping.put("hospitalID", 0);
+            doctorMapping.put("name", 1);
+            doctorMapping.put("role", 2);
+            doctorMapping.put("gender", 3);
+            doctorMapping.put("age", 4);
+            doctorMapping.put("password", 5);
 
-        List<Object> doctorMapList = CSVread.readCSV(filePath, doctorMapping, "Doctor");
+            // a warm start reads the binary snapshot when it is current
+            List<Object> doctorMapList = isFirstRun ? null : BinarySnapshot.readUsers(filePath, "Doctor");
+            if (doctorMapList == null) {
+                doctorMapList = CSVread.readCSV(filePath, doctorMapping, "Doctor");
+            }
 
-        for (Object user : doctorMapList) {
-            if (user instanceof Doctor) {
-                doctors.add((Doctor) user);
+            for (Object user : doctorMapList) {
+                if (user instanceof Doctor) {
+                    doctors.add((Doctor) user);
+                    doctorsById.put(((Doctor) user).getHospitalID(), (Doctor) user);
+                }
             }
-        }
 
-        if (doctors.isEmpty()) {
-            System.out.println("No doctors were loaded.");
-        } else {
-            System.out.println("Doctors successfully loaded: " + doctors.size());
-        }
-    }
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("D", doctors, Doctor::getHospitalID);
+
+            if (doctors.isEmpty()) {
+                System.out.println("No doctors were loaded.");
+            } else {
+                System.out.println("Doctors successfully loaded: " + doctors.size());
+            }
+       });
+   }
 
     /**
      * Returns a copy of the list of all doctors.
@@ -98,20 +126,41 @@ public class DoctorsAcc {
      * @return A list of {@link User} objects representing doctors.
      */
     public static List<User> getDoctors() {
-        return new ArrayList<>(doctors);
+        return lock.read(() -> new ArrayList<>(doctors));
     }
 
     /** Displays all doctors currently in the list. */
     public static void displayDoctors() {
         System.out.println("\nThe Doctor in the CSV file are: ");
-        for (Doctor doctor : doctors) {
+        for (User doctor : getDoctors()) {
             System.out.println(doctor.userInfo());
         }
     }
 
     /** Duplicates the current doctor list to the updated CSV file. */
     public static void duplicateDoctor() {
-        CSVwrite.writeCSVList(updatedPath, doctors);
+        lock.read(() -> changeLog.rewrite(doctors));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the doctors beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeUsers(updatedPath, doctors);
+        });
+    }
+
+    /**
+     * Saves the changes made to a single doctor by appending it to the change log,
+     * instead of rewriting the whole CSV file.
+     * 
+     * @param doctor The {@link Doctor} whose details have been modified.
+     */
+    private static void updateRecord(Doctor doctor) {
+        lock.write(() -> changeLog.update(doctor.getHospitalID(), CSVwrite.toCSVRow(doctor)));
     }
 
     /**
@@ -121,12 +170,7 @@ public class DoctorsAcc {
      * @return The {@link Doctor} object if found; {@code null} otherwise.
      */
     public static Doctor findDoctorById(String hospitalID) {
-        for (Doctor doctor : doctors) {
-            if (doctor.getHospitalID().equals(hospitalID)) {
-                return doctor;
-            }
-        }
-        return null;
+        return lock.read(() -> doctorsById.get(hospitalID));
     }
 
     /**
@@ -135,7 +179,7 @@ public class DoctorsAcc {
      * @param hospitalID The hospital ID of the doctor to get name of.
      */
     public String getDoctorName(String hospitalID) {
-        for (User doctor : doctors) {
+        for (User doctor : getDoctors()) {
             if (doctor.getHospitalID().equals(hospitalID)) {
                 return (doctor != null) ? doctor.getName() : "Doctor not found";
             }
@@ -148,8 +192,11 @@ public class DoctorsAcc {
         Doctor newCreatedUser = NewAccount.createNewAccount(sc, doctors, Role.Doctor);
 
         if (newCreatedUser != null) {
-            doctors.add(newCreatedUser);
-            CSVwrite.writeCSV(updatedPath, newCreatedUser);
+            lock.write(() -> {
+                doctors.add(newCreatedUser);
+                doctorsById.put(newCreatedUser.getHospitalID(), newCreatedUser);
+                changeLog.insert(newCreatedUser.getHospitalID(), CSVwrite.toCSVRow(newCreatedUser));
+            });
             System.out.println("Doctor " + newCreatedUser.getName() + " created!");
         } else {
             System.out.println("Account creation failed!");
@@ -172,13 +219,11 @@ public class DoctorsAcc {
         if (doctorToUpdate != null) {
             System.out.print("Enter your Name: ");
             String name = sc.nextLine();
-            name = name.substring(0, 1).toUpperCase() + name.substring(1);
-            doctorToUpdate.setName(name);
+            String newName = name.substring(0, 1).toUpperCase() + name.substring(1);
 
             System.out.print("Enter your Gender: ");
             String gender = sc.nextLine();
-            gender = gender.substring(0, 1).toUpperCase() + gender.substring(1);
-            doctorToUpdate.setGender(gender);
+            String newGender = gender.substring(0, 1).toUpperCase() + gender.substring(1);
 
             System.out.print("Enter your Age: ");
             int age;
@@ -190,12 +235,27 @@ public class DoctorsAcc {
                 sc.nextLine(); // Consume the invalid input to prevent an infinite loop
                 return;
             }
-            doctorToUpdate.setAge(age);
 
             System.out.print("Enter your Password: ");
-            doctorToUpdate.setPassword(sc.nextLine());
+            String passwordHash = null;
+            try {
+                passwordHash = PasswordHasher.hashAsync(sc.nextLine()).join(); // only the salted hash is stored
+            } catch (RejectedExecutionException e) {
+                System.out.println("Too many passwords are being changed. The password was not changed.");
+            }
+            String newPasswordHash = passwordHash;
+
+            // change the fields and log them together, so no session sees a half-updated doctor
+            lock.write(() -> {
+                doctorToUpdate.setName(newName);
+                doctorToUpdate.setGender(newGender);
+                doctorToUpdate.setAge(age);
+                if (newPasswordHash != null) {
+                    doctorToUpdate.setPassword(newPasswordHash);
+                }
+                updateRecord(doctorToUpdate); // rewrite the CSV row with updated version
+            });
             System.out.println("Doctor with Hospital ID " + hospitalID + " has been updated.");
-            duplicateDoctor(); // rewrite the CSV file with updated version
 
         } else {
             System.out.println("Doctor with Hospital ID " + hospitalID + " not found.");
@@ -212,12 +272,17 @@ public class DoctorsAcc {
         displayDoctors();
         System.out.print("\nEnter the Doctor ID to remove: ");
         String hospitalID = sc.nextLine();
-        Doctor pharmacistToRemove = findDoctorById(hospitalID);
+        Doctor pharmacistToRemove = lock.write(() -> {
+            Doctor doctor = doctorsById.remove(hospitalID);
+            if (doctor != null) {
+                doctors.remove(doctor); // remove Data from pharmacist List
+                changeLog.delete(hospitalID); // remove the row from the CSV file
+            }
+            return doctor;
+        });
 
         if (pharmacistToRemove != null) {
-            doctors.remove(pharmacistToRemove); // remove Data from pharmacist List
             System.out.println("Doctor with Hospital ID " + hospitalID + " has been removed.");
-            duplicateDoctor(); // rewrite the CSV file without the row removed
         } else {
             System.out.println("Doctor with Hospital ID " + hospitalID + " not found.");
         }
@@ -229,14 +294,29 @@ public class DoctorsAcc {
      * @param hospitalID  The hospital ID of the doctor whose password is to be
      *                    updated.
      * @param newPassword The new password to set for the doctor.
+     * @throws RejectedExecutionException If too many passwords are already being
+     *                                    hashed.
      */
     public static void updatePassword(String hospitalID, String newPassword) {
-        User doctorPWToUpdate = findDoctorById(hospitalID);
+        // hashed before the account is looked up, on the bounded pool of the hasher
+        updatePasswordHash(hospitalID, PasswordHasher.hashAsync(newPassword).join());
+    }
 
-        if (doctorPWToUpdate != null) {
-            doctorPWToUpdate.setPassword(newPassword);
-            duplicateDoctor();
-            return;
-        }
+    /**
+     * Updates the password of a doctor with a password that is already hashed.
+     * 
+     * @param hospitalID   The hospital ID of the doctor whose password is to be
+     *                     updated.
+     * @param passwordHash The new password, hashed by {@link PasswordHasher}.
+     */
+    public static void updatePasswordHash(String hospitalID, String passwordHash) {
+        lock.write(() -> {
+            Doctor doctorPWToUpdate = findDoctorById(hospitalID);
+
+            if (doctorPWToUpdate != null) {
+                doctorPWToUpdate.setPassword(passwordHash);
+                updateRecord(doctorPWToUpdate);
+            }
+        });
     }
 }
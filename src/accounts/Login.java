@@ -1,27 +1,33 @@
 package accounts;
 
-import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 import user.*;
+import utility.PasswordHasher;
 
 /**
  * This class is responsible for authenticating users based on their hospital ID and password.
  * <p>
- * It checks the hospitalID and password against a list of users and provides access based on user roles (Patient, Pharmacist, Doctor, Administrator).
+ * It checks the hospitalID and password against the accounts of the selected role (Patient, Pharmacist, Doctor, Administrator).
  * If a user logs in with the default password, they are prompted to change it.
+ * <p>
+ * Passwords are stored as salted hashes and checked on the verification pool of
+ * {@link PasswordHasher}. A password still stored in plain text, or hashed at an older
+ * cost, is hashed again after a successful login.
  */
 public class Login {
 
-    private List<User> users; // Accepts a list of users
+    private Role role; // the role of the users to authenticate
     private static String defaultPW = "password1234";
 
     /**
      * Constructor for the Login class.
      * 
-     * @param users The list of users to authenticate against.
+     * @param role The role of the users to authenticate, which selects the account
+     *             store whose indexes are searched.
      */
-    public Login(List<User> users) {
-        this.users = users;
+    public Login(Role role) {
+        this.role = role;
     }
 
     /**
@@ -31,6 +37,9 @@ public class Login {
      * Gives the patient an option to use their email instead of hospitaID
      * If the details match, the corresponding user object is returned, 
      * otherwise null is returned indicating a failed login.
+     * <p>
+     * The user is looked up in the account store's hospital ID and email indexes,
+     * so a login takes the same time however many users there are.
      * 
      * @param sc A {@link Scanner} object for user input.
      * @return The authenticated {@link user}, or {@code null} if authentication fails.
@@ -44,91 +53,143 @@ public class Login {
         System.out.print("Enter your password: ");
         String enteredPassword = sc.nextLine();
 
-        for (User user : users) {
-            // Allow Patients to log in with either hospital ID or email
-            if (user instanceof Patient) {
-                Patient patient = (Patient) user;
-                if ((patient.getHospitalID().equals(enteredIdOrEmail) || patient.getEmail().equalsIgnoreCase(enteredIdOrEmail)) 
-                    && patient.getPassword().equals(enteredPassword)) {
+        User user = findUser(enteredIdOrEmail);
+        boolean valid;
+        try {
+            // an unknown user is checked against a dummy hash, so it fails just as slowly
+            valid = PasswordHasher.verify(enteredPassword, user != null ? user.getPassword() : null);
+        } catch (RejectedExecutionException e) {
+            System.out.println("Too many logins are in progress. Please try again later.");
+            return null;
+        }
 
-                    System.out.printf("%s\n", "-".repeat(27));
-                    System.out.println("Login successful! Welcome, " + patient.getRole() + " " + patient.getName());
+        if (valid) {
+            System.out.printf("%s\n", "-".repeat(27));
+            System.out.println("Login successful! Welcome, " + user.getRole() + " " + user.getName());
 
-                    // Prompt to change the default password if applicable
-                    checkDefPw(patient, sc);
-                    return patient; // Return the authenticated Patient
-                }
-            } 
-            // Other roles log in with hospital ID
-            else if (user.getHospitalID().equals(enteredIdOrEmail) && user.getPassword().equals(enteredPassword)) {
-                System.out.printf("%s\n", "-".repeat(27));
-                System.out.println("Login successful! Welcome, " + user.getRole() + " " + user.getName());
-
-                // prompt user to change password if it is default password
-                checkDefPw(user, sc);
-
-                switch (user.getRole()) {
-                    case Patient:
-                        // create new patient class
-                        Patient patient = (Patient) user;
-                        return patient;
-
-                    case Pharmacist:
-                        // create new pharmacist class
-                        Pharmacist pharmacist = (Pharmacist) user;
-                        return pharmacist;
-
-                    case Doctor:
-                        // create new Doctor Class
-                        Doctor doctor = (Doctor) user;
-                        return doctor;
-
-                    case Administrator:
-                        // create new Administrator Class
-                        Administrator administrator = (Administrator) user;
-                        return administrator;
-                    default:
-                        break;
-                }
+            // prompt user to change password if it is default password
+            checkDefPw(user, enteredPassword, sc);
+            if (PasswordHasher.needsRehash(user.getPassword())) {
+                rehashPassword(user, enteredPassword);
             }
+            return user;
         }
         System.out.println("Login failed! Incorrect ID or password.");
         return null; // Return null if login fails
     }
 
+    /**
+     * Finds the user of this login's role with the given hospital ID. Patients may
+     * also be found by their email, ignoring case.
+     * 
+     * @param idOrEmail The hospital ID, or email for patients, that was entered.
+     * @return The matching {@link User}, or {@code null} if there is none.
+     */
+    private User findUser(String idOrEmail) {
+        switch (role) {
+            case Patient:
+                // Allow Patients to log in with either hospital ID or email
+                Patient patient = PatientsAcc.findPatientById(idOrEmail);
+                return patient != null ? patient : PatientsAcc.findPatientByEmail(idOrEmail);
+            case Doctor:
+                return DoctorsAcc.findDoctorById(idOrEmail);
+            case Pharmacist:
+                return PharmacistsAcc.findPharmById(idOrEmail);
+            case Administrator:
+                return AdminsAcc.findAdminById(idOrEmail);
+            default:
+                return null;
+        }
+    }
+
     /**
      * Checks if a user is logging in with the default password "password1234".
      * <p>
-     * If they are, they are prompted to change their password.
+     * If they are, they are prompted to change their password. The stored password is a
+     * hash, so the check is made on the password that was entered.
      * 
      * @param user The user who is attempting to log in.
+     * @param enteredPassword The password the user logged in with.
      * @param scanner A {@link scanner} object to capture the new password input.
      */
-    public static void checkDefPw(User user, Scanner scanner) {
-        if (user.getPassword().equals(defaultPW)) {
+    public static void checkDefPw(User user, String enteredPassword, Scanner scanner) {
+        if (enteredPassword.equals(defaultPW)) {
             System.out.println("You are logging in with a default password, please change your password. ");
             System.out.print("Enter your password: ");
             String newPassword = scanner.nextLine(); // set new Password
 
-            // update password based on the role
-            switch (user.getRole()) {
-                case Patient:
-                    PatientsAcc.updatePassword(user.getHospitalID(), newPassword);
-                    break;
-                case Administrator:
-                    AdminsAcc.updatePassword(user.getHospitalID(), newPassword);
-                    break;
-                case Pharmacist:
-                    PharmacistsAcc.updatePassword(user.getHospitalID(), newPassword);
-                    break;
-                case Doctor:
-                    DoctorsAcc.updatePassword(user.getHospitalID(), newPassword);
-                    break;
-                default:
-                    System.out.println("Invalid role. Password update failed.");
-                    break;
+            if (updatePassword(user, newPassword)) {
+                System.out.println("Your password has been changed");
             }
-            System.out.println("Your password has been changed");
+        }
+    }
+
+    /**
+     * Hashes the password a user logged in with again in the background, replacing a
+     * plain text password or a hash of a different cost, so that the login does not
+     * wait for it. The new hash is only stored if the password has not changed in the
+     * meantime; if the worker pool is busy, the password is hashed at a later login.
+     * 
+     * @param user The user who logged in.
+     * @param enteredPassword The password the user logged in with.
+     */
+    private static void rehashPassword(User user, String enteredPassword) {
+        String verified = user.getPassword();
+        try {
+            PasswordHasher.hashAsync(enteredPassword).thenAccept(passwordHash -> {
+                if (verified.equals(user.getPassword())) {
+                    updatePasswordHash(user, passwordHash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // left as it is until the next login
+        }
+    }
+
+    /**
+     * Updates the password of a user in the account store of their role.
+     * 
+     * @param user The user whose password is updated.
+     * @param newPassword The new password in plain text.
+     * @return {@code true} if the password was updated.
+     */
+    private static boolean updatePassword(User user, String newPassword) {
+        String passwordHash;
+        try {
+            passwordHash = PasswordHasher.hashAsync(newPassword).join();
+        } catch (RejectedExecutionException e) {
+            System.out.println("Too many passwords are being changed. Please try again later.");
+            return false;
+        }
+        return updatePasswordHash(user, passwordHash);
+    }
+
+    /**
+     * Updates the password of a user in the account store of their role with a
+     * password that is already hashed.
+     * 
+     * @param user The user whose password is updated.
+     * @param passwordHash The new password, hashed by {@link PasswordHasher}.
+     * @return {@code true} if the password was updated.
+     */
+    private static boolean updatePasswordHash(User user, String passwordHash) {
+        // update password based on the role
+        switch (user.getRole()) {
+            case Patient:
+                PatientsAcc.updatePasswordHash(user.getHospitalID(), passwordHash);
+                return true;
+            case Administrator:
+                AdminsAcc.updatePasswordHash(user.getHospitalID(), passwordHash);
+                return true;
+            case Pharmacist:
+                PharmacistsAcc.updatePasswordHash(user.getHospitalID(), passwordHash);
+                return true;
+            case Doctor:
+                DoctorsAcc.updatePasswordHash(user.getHospitalID(), passwordHash);
+                return true;
+            default:
+                System.out.println("Invalid role. Password update failed.");
+                return false;
         }
     }
 }
@@ -4,9 +4,11 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import user.*;
 import utility.IDGenerator;
+import utility.PasswordHasher;
 
 /**
  * This class handles the creation of new user accounts for different roles (Patient, Doctor, Pharmacist, Administrator).
@@ -48,7 +50,12 @@ public class NewAccount {
             return null; // Restart the loop to prompt the user again
         }
         System.out.print("Enter your Password: ");
-        password = sc.nextLine().trim();
+        try {
+            password = PasswordHasher.hashAsync(sc.nextLine().trim()).join(); // only the salted hash is stored
+        } catch (RejectedExecutionException e) {
+            System.out.println("Too many passwords are being hashed. Please try again later.");
+            return null;
+        }
 
         //changing 1st letter to uppercase
         name = name.substring(0, 1).toUpperCase() + name.substring(1);
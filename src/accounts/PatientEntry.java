@@ -0,0 +1,75 @@
+package accounts;
+
+/**
+ * The index entry of one row of the patient CSV file: the hospital ID, the email and
+ * the byte offset and length of the row in the file.
+ * <p>
+ * Entries are all that is read of the file when the system starts, so that a patient's
+ * profile is only parsed when the patient is first looked up, while patients can still
+ * be found by hospital ID or email without it.
+ */
+public class PatientEntry {
+
+    /** The hospital ID of the patient. */
+    private final String hospitalID;
+
+    /** The email of the patient. */
+    private final String email;
+
+    /** The byte offset of the start of the row in the file. */
+    private final long offset;
+
+    /** The number of bytes in the row, without its line break. */
+    private final int length;
+
+    /**
+     * Creates the index entry of a row.
+     *
+     * @param hospitalID The hospital ID of the patient.
+     * @param email      The email of the patient.
+     * @param offset     The byte offset of the start of the row in the file.
+     * @param length     The number of bytes in the row, without its line break.
+     */
+    public PatientEntry(String hospitalID, String email, long offset, int length) {
+        this.hospitalID = hospitalID;
+        this.email = email;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Gets the hospital ID of the patient.
+     *
+     * @return the hospital ID.
+     */
+    public String getHospitalID() {
+        return hospitalID;
+    }
+
+    /**
+     * Gets the email of the patient.
+     *
+     * @return the email.
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Gets the byte offset of the start of the row in the file.
+     *
+     * @return the byte offset.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the number of bytes in the row, without its line break.
+     *
+     * @return the length of the row.
+     */
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,172 @@
+package accounts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import user.Patient;
+import utility.CSVRowScanner;
+import utility.CSVTokenizer;
+import utility.CSVread;
+
+/**
+ * The patient CSV file, read one patient at a time.
+ * <p>
+ * A pre-scan of the file finds where each row starts and ends and decodes only the
+ * hospital ID and email of the row, through a {@link CSVRowScanner}. A patient's
+ * profile is then read when needed by seeking to their row.
+ * <p>
+ * The file may be rewritten while it is in use, when its change log is compacted into
+ * it. Every row read is checked against the hospital ID expected at its offset, and
+ * the file is scanned again if a row has moved.
+ */
+public class PatientFile {
+
+    /** The column of each patient field in the file. */
+    public static final Map<String, Integer> COLUMNS = new HashMap<>();
+
+    static {
+        COLUMNS.put("hospitalID", 0);
+        COLUMNS.put("name", 1);
+        COLUMNS.put("role", 2);
+        COLUMNS.put("gender", 3);
+        COLUMNS.put("age", 4);
+        COLUMNS.put("password", 5);
+        COLUMNS.put("dateOB", 6);
+        COLUMNS.put("bloodType", 7);
+        COLUMNS.put("contactInfo", 8);
+    }
+
+    /** The path of the CSV file. */
+    private final String path;
+
+    /** The index entry of each patient's row, by hospital ID. */
+    private final Map<String, PatientEntry> rows = new HashMap<>();
+
+    /** The length of the file when it was indexed. */
+    private long indexedLength = -1;
+
+    /**
+     * Creates the file for a path. Nothing is read until the file is scanned or indexed.
+     *
+     * @param path The path of the patient CSV file.
+     */
+    public PatientFile(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Scans the whole file, recording where the row of each patient starts and ends.
+     *
+     * @return The index entry of every row, in the order of the file.
+     */
+    public synchronized List<PatientEntry> scan() {
+        rows.clear();
+        List<PatientEntry> entries = new ArrayList<>();
+        int[] columns = { COLUMNS.get("hospitalID"), COLUMNS.get("contactInfo") };
+        try {
+            indexedLength = CSVRowScanner.scan(path, columns, COLUMNS.size(), (offset, length, fields) -> {
+                PatientEntry entry = new PatientEntry(fields[0], fields[1], offset, length);
+                entries.add(entry);
+                rows.put(entry.getHospitalID(), entry);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return entries;
+    }
+
+    /**
+     * Indexes the file from entries saved by an earlier scan, without reading it.
+     *
+     * @param entries The index entry of every row.
+     */
+    public synchronized void index(List<PatientEntry> entries) {
+        rows.clear();
+        for (PatientEntry entry : entries) {
+            rows.put(entry.getHospitalID(), entry);
+        }
+        indexedLength = new File(path).length();
+    }
+
+    /**
+     * Reads the profile of a patient, seeking to their row. The file is scanned again
+     * first if it has changed since it was indexed.
+     *
+     * @param hospitalID The hospital ID of the patient.
+     * @return The patient, or {@code null} if the file has no row for them.
+     */
+    public synchronized Patient read(String hospitalID) {
+        if (new File(path).length() != indexedLength) {
+            scan();
+        }
+        PatientEntry entry = rows.get(hospitalID);
+        if (entry == null) {
+            return null;
+        }
+        Patient patient = readRow(entry);
+        if (patient == null) {
+            scan(); // the row was not where it was indexed
+            entry = rows.get(hospitalID);
+            patient = entry != null ? readRow(entry) : null;
+        }
+        return patient;
+    }
+
+    /**
+     * Returns the number of bytes the row of a patient takes in the file, as indexed.
+     *
+     * @param hospitalID The hospital ID of the patient.
+     * @return The length of the patient's row, or 0 if they have none.
+     */
+    public synchronized long length(String hospitalID) {
+        PatientEntry entry = rows.get(hospitalID);
+        return entry != null ? entry.getLength() : 0;
+    }
+
+    /**
+     * Reads every patient in the file in one pass.
+     *
+     * @return The patients, in the order of the file.
+     */
+    public List<Patient> readAll() {
+        List<Patient> patients = new ArrayList<>();
+        for (Object user : CSVread.readCSV(path, COLUMNS, "Patient")) {
+            if (user instanceof Patient) {
+                patients.add((Patient) user);
+            }
+        }
+        return patients;
+    }
+
+    /**
+     * Reads the row of an index entry and parses it.
+     *
+     * @param entry The index entry of the row.
+     * @return The patient, or {@code null} if the row does not hold the hospital ID
+     *         indexed for it.
+     */
+    private Patient readRow(PatientEntry entry) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            String text = CSVRowScanner.readRow(channel, entry.getOffset(), entry.getLength());
+            if (text == null) {
+                return null;
+            }
+            String[] row = new CSVTokenizer(new StringReader(text)).nextRow();
+            if (row == null || row.length < COLUMNS.size() || !row[0].trim().equals(entry.getHospitalID())) {
+                return null;
+            }
+            return CSVread.parsePatient(row, COLUMNS);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
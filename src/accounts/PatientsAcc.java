@@ -1,11 +1,17 @@
 package accounts;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.InputMismatchException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import main.SystemInitialisation;
 import user.*;
@@ -19,15 +25,72 @@ import utility.*;
  * as well as managing password updates. The class interacts with utility
  * classes like {@code CSVread},
  * {@code CSVwrite}, and {@code CSVclear} to handle file operations.
+ * <p>
+ * Patient profiles are loaded lazily. Loading only indexes the CSV file through a
+ * {@link PatientFile}, recording the hospital ID and email of each row, so patients can
+ * be found by either without their profiles. A profile is parsed when the patient is
+ * first looked up and kept in a {@link BoundedCache} of the most recently used
+ * patients, holding at most {@link #CACHED_PROFILES} patients and
+ * {@link #PROFILE_CACHE_WEIGHT} bytes of their rows in the file. Patients changed
+ * during the session are kept in memory until they are written back with the next
+ * snapshot.
+ * <p>
+ * Sessions, appointments and records hold on to the patients they use, so a patient
+ * evicted from the cache may still be in use. Every patient parsed is also tracked
+ * weakly while it is reachable, and a lookup returns that same object rather than
+ * parsing a second copy, so a change made through one reference is seen by all.
  */
 public class PatientsAcc {
 
-     /** A list to store all {@link Patient} objects. */
-    private static List<Patient> patients = new ArrayList<>();
+    /**
+     * The number of patient profiles kept in memory once parsed, set with the
+     * {@code hms.patients.cachedProfiles} system property.
+     */
+    public static final int CACHED_PROFILES = Integer.getInteger("hms.patients.cachedProfiles", 10000);
+
+    /**
+     * The largest total length, in bytes of their rows in the file, of the patient
+     * profiles kept in memory once parsed, set with the {@code hms.patients.cacheWeight}
+     * system property.
+     */
+    public static final long PROFILE_CACHE_WEIGHT = Long.getLong("hms.patients.cacheWeight", 2_000_000L);
+
+    /** The patient CSV file the profiles are read from, one patient at a time. */
+    private static PatientFile patientFile;
+    /** The hospital ID of every patient, in the order they were loaded or added. */
+    private static Set<String> patientIDs = new LinkedHashSet<>();
+    /**
+     * An index of the hospital IDs of the patients by lower-cased email, used to log in
+     * by email. Patients sharing an email are kept in the order they were indexed.
+     */
+    private static Map<String, List<String>> patientsByEmail = new HashMap<>();
+    /**
+     * Every patient added or changed since the file was indexed, by hospital ID. They are
+     * never evicted, since the file does not hold their changes yet.
+     */
+    private static Map<String, Patient> changedPatients = new HashMap<>();
+    /** The profiles of the patients used most recently, by hospital ID. */
+    private static final BoundedCache<String, Patient> recentPatients = new BoundedCache<>(
+            CACHED_PROFILES, PROFILE_CACHE_WEIGHT, PatientsAcc::weigh);
+    /**
+     * Every patient parsed that is still reachable, by hospital ID, so that each patient
+     * is a single object. Guarded by synchronizing on the map itself.
+     */
+    private static final Map<String, PatientRef> livePatients = new HashMap<>();
+    /** Receives the references of the patients no longer reachable. */
+    private static final ReferenceQueue<Patient> collectedPatients = new ReferenceQueue<>();
     /** The file path to the original patient CSV file. */
     private static String originalPath;
     /** The file path to the updated patient CSV file. */
     private static String updatedPath;
+    /** The change log recording patient changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+    /**
+     * Guards the index, the changed patients and the change log against concurrent
+     * sessions. The cache and the live patients are thread-safe on their own, since
+     * looking up a patient under the read lock adds them to both.
+     */
+    private static final StoreLock lock = new StoreLock();
 
     /**
      * Updates the file paths for loading and saving patient data by retrieving them from 
@@ -47,6 +110,7 @@ public class PatientsAcc {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("PatientsOriginal");
         updatedPath = SystemInitialisation.getFilePath("PatientsUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
@@ -54,81 +118,295 @@ public class PatientsAcc {
      * <p>
      * If it is the first run, it loads from the original file path and clears the
      * updated file.
-     * Otherwise, it loads from the updated file.
+     * Otherwise, it loads from the updated file after replaying any logged changes
+     * over it.
+     * <p>
+     * Only the index of the file is loaded: the hospital ID and email of each row, read
+     * from the binary snapshot of the index when it is current or else by a pre-scan of
+     * the file. The profiles themselves are parsed when first used.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadPatients(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
-
-        // clear the list to avoid having duplicate data
-        patients.clear();
-
-        Map<String, Integer> patientMapping = new HashMap<>();
-        patientMapping.put("hospitalID", 0);
-        patientMapping.put("name", 1);
-        patientMapping.put("role", 2);
-        patientMapping.put("gender", 3);
-        patientMapping.put("age", 4);
-        patientMapping.put("password", 5);
-        patientMapping.put("dateOB", 6);
-        patientMapping.put("bloodType", 7);
-        patientMapping.put("contactInfo", 8);
-
-        List<Object> patientMapList = CSVread.readCSV(filePath, patientMapping, "Patient");
-
-        // add the data from CSV into patientsList
-        for (Object user : patientMapList) {
-            if (user instanceof Patient) {
-                patients.add((Patient) user);
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
             }
-        }
 
-        if (patients.isEmpty()) {
-            System.out.println("No patients were loaded.");
-        } else {
-            System.out.println("Patients successfully loaded: " + patients.size());
-        }
+            // a warm start reads the index snapshot when it is current
+            patientFile = new PatientFile(filePath);
+            List<PatientEntry> entries = isFirstRun ? null : BinarySnapshot.readPatientIndex(filePath);
+            if (entries == null) {
+                entries = patientFile.scan();
+            } else {
+                patientFile.index(entries);
+            }
+
+            // clear the index to avoid having duplicate data
+            patientIDs.clear();
+            patientsByEmail.clear();
+            changedPatients.clear();
+            recentPatients.invalidateAll();
+            synchronized (livePatients) {
+                livePatients.clear();
+            }
+            for (PatientEntry entry : entries) {
+                patientIDs.add(entry.getHospitalID());
+                indexEmail(entry.getHospitalID(), entry.getEmail());
+            }
+
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("P1", new ArrayList<>(patientIDs), hospitalID -> hospitalID);
+
+            if (patientIDs.isEmpty()) {
+                System.out.println("No patients were loaded.");
+            } else {
+                System.out.println("Patients successfully loaded: " + patientIDs.size());
+            }
+        });
     }
 
     /**
-     * Returns a copy of the list of all patients.
+     * Returns a copy of the list of all patients. The file is read in one pass, without
+     * adding its patients to the cache.
      * 
      * @return A list of {@link User} objects representing patients.
      */
     public static List<User> getPatients() {
-        return new ArrayList<>(patients);
+        return lock.read(() -> new ArrayList<>(allPatients()));
     }
 
     /** Displays all patients currently in the list. */
     public static void displayPatients() {
         System.out.println("\nThe Patient in the CSV file are: ");
-        for (User patient : patients) {
+        for (User patient : getPatients()) {
             System.out.println(patient.userInfo());
         }
     }
 
     /** Duplicates the current patient list to the updated CSV file. */
     public static void duplicatePatient() {
-        CSVwrite.writeCSVList(updatedPath, patients);
+        lock.read(() -> changeLog.rewrite(allPatients()));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file, indexes the merged file and
+     * writes a binary snapshot of its index beside it, to be read on the next start.
+     * The changed patients are then held in the cache like any others, since the file
+     * now holds their changes.
+     */
+    public static void saveSnapshot() {
+        lock.write(() -> {
+            changeLog.replay();
+            patientFile = new PatientFile(updatedPath);
+            BinarySnapshot.writePatientIndex(updatedPath, patientFile.scan());
+            for (Map.Entry<String, Patient> patient : changedPatients.entrySet()) {
+                recentPatients.put(patient.getKey(), patient.getValue());
+            }
+            changedPatients.clear();
+        });
+    }
+
+    /**
+     * Saves the changes made to a single patient by appending it to the change log,
+     * instead of rewriting the whole CSV file. The patient is kept in memory until the
+     * next snapshot.
+     * 
+     * @param patient The {@link Patient} whose details have been modified.
+     */
+    private static void updateRecord(Patient patient) {
+        lock.write(() -> {
+            changedPatients.put(patient.getHospitalID(), patient);
+            recentPatients.invalidate(patient.getHospitalID());
+            changeLog.update(patient.getHospitalID(), CSVwrite.toCSVRow(patient));
+        });
     }
 
     /**
-     * Finds a patient by their hospital ID.
+     * Finds a patient by their hospital ID, parsing their profile from the file if it
+     * is not in memory.
      * 
      * @param hospitalID The hospital ID of the patient to find.
      * @return The {@link Patient} object if found; {@code null} otherwise.
      */
     public static Patient findPatientById(String hospitalID) {
-        for (Patient patient : patients) {
-            if (patient.getHospitalID().equals(hospitalID)) {
-                return patient;
+        if (hospitalID == null) {
+            return null;
+        }
+        return lock.read(() -> patientIDs.contains(hospitalID) ? profileOf(hospitalID) : null);
+    }
+
+    /**
+     * Finds a patient by their email, ignoring case. If several patients share the
+     * email, the one indexed first is returned.
+     * 
+     * @param email The email of the patient to find.
+     * @return The {@link Patient} object if found; {@code null} otherwise.
+     */
+    public static Patient findPatientByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        return lock.read(() -> {
+            List<String> matches = patientsByEmail.get(email.toLowerCase(Locale.ROOT));
+            return matches != null ? profileOf(matches.get(0)) : null;
+        });
+    }
+
+    /**
+     * Returns the profile of a patient, parsing it from the file if it is not in memory.
+     * Called with the lock held.
+     * 
+     * @param hospitalID The hospital ID of a loaded patient.
+     * @return The patient, or {@code null} if their row cannot be read.
+     */
+    private static Patient profileOf(String hospitalID) {
+        Patient patient = changedPatients.get(hospitalID);
+        if (patient != null) {
+            return patient;
+        }
+        patient = recentPatients.get(hospitalID);
+        if (patient != null) {
+            return patient;
+        }
+
+        // a patient evicted from the cache may still be in use, keep that object
+        patient = live(hospitalID, patientFile.read(hospitalID));
+        if (patient == null) {
+            return null;
+        }
+        Patient cached = recentPatients.putIfAbsent(hospitalID, patient);
+        return cached != null ? cached : patient;
+    }
+
+    /**
+     * Returns the object in use for a patient, tracking the given one if there is none.
+     * 
+     * @param hospitalID The hospital ID of the patient.
+     * @param parsed     The patient just parsed, or {@code null} to only look it up.
+     * @return The patient in use, or the given patient if none was.
+     */
+    private static Patient live(String hospitalID, Patient parsed) {
+        synchronized (livePatients) {
+            PatientRef collected;
+            while ((collected = (PatientRef) collectedPatients.poll()) != null) {
+                if (livePatients.get(collected.hospitalID) == collected) {
+                    livePatients.remove(collected.hospitalID);
+                }
+            }
+            PatientRef ref = livePatients.get(hospitalID);
+            Patient patient = ref != null ? ref.get() : null;
+            if (patient == null && parsed != null) {
+                livePatients.put(hospitalID, new PatientRef(hospitalID, parsed));
+                patient = parsed;
             }
+            return patient;
         }
-        return null;
+    }
+
+    /**
+     * Weighs a patient's profile for the cache by the length of their row in the file,
+     * as recorded by the index. Profiles are only cached while the file holds them as
+     * they are, so nothing needs to be formatted to weigh them.
+     * 
+     * @param hospitalID The hospital ID of the patient.
+     * @param patient    The patient.
+     * @return The length of the patient's row.
+     */
+    private static long weigh(String hospitalID, Patient patient) {
+        return patientFile.length(hospitalID);
+    }
+
+    /**
+     * Returns the size, weight, hits, misses and evictions of the cache of patient
+     * profiles.
+     * 
+     * @return A summary of the cache.
+     */
+    public static String getProfileCacheStats() {
+        return recentPatients.toString();
+    }
+
+    /**
+     * Returns every patient, reading the file in one pass without adding its patients
+     * to the cache. The patients in memory are returned in place of those read, so that
+     * each patient is a single object. Called with the lock held.
+     * 
+     * @return Every patient, in the order they were loaded or added.
+     */
+    private static List<Patient> allPatients() {
+        Map<String, Patient> read = new HashMap<>();
+        for (Patient patient : patientFile.readAll()) {
+            read.put(patient.getHospitalID(), patient);
+        }
+        List<Patient> patients = new ArrayList<>();
+        for (String hospitalID : patientIDs) {
+            Patient patient = changedPatients.get(hospitalID);
+            if (patient == null) {
+                patient = recentPatients.peek(hospitalID);
+            }
+            if (patient == null) {
+                patient = live(hospitalID, null);
+            }
+            if (patient == null) {
+                patient = read.get(hospitalID);
+            }
+            if (patient != null) {
+                patients.add(patient);
+            }
+        }
+        return patients;
+    }
+
+    /**
+     * Adds a patient to the email index, after any other patients with the same email.
+     * Called with the write lock held.
+     * 
+     * @param hospitalID The hospital ID of the patient to index.
+     * @param email      The email of the patient, may be {@code null}.
+     */
+    private static void indexEmail(String hospitalID, String email) {
+        if (email != null) {
+            patientsByEmail.computeIfAbsent(email.toLowerCase(Locale.ROOT), key -> new ArrayList<>())
+                    .add(hospitalID);
+        }
+    }
+
+    /**
+     * Removes a patient from the email index. Any other patient with the same email
+     * stays indexed under it. Called with the write lock held.
+     * 
+     * @param hospitalID The hospital ID of the patient to remove from the index.
+     * @param email      The email the patient is indexed under, may be {@code null}.
+     */
+    private static void unindexEmail(String hospitalID, String email) {
+        if (email == null) {
+            return;
+        }
+        String key = email.toLowerCase(Locale.ROOT);
+        List<String> matches = patientsByEmail.get(key);
+        if (matches != null && matches.remove(hospitalID) && matches.isEmpty()) {
+            patientsByEmail.remove(key);
+        }
+    }
+
+    /**
+     * Checks whether a hospital ID or email already belongs to a patient, through the ID
+     * and email indexes. Called with the lock held.
+     * 
+     * @param hospitalID The hospital ID to check.
+     * @param email      The email to check, may be {@code null} or blank.
+     * @return {@code true} if a patient already has the hospital ID or the email.
+     */
+    private static boolean isTaken(String hospitalID, String email) {
+        if (patientIDs.contains(hospitalID)) {
+            return true;
+        }
+        return email != null && !email.isBlank() && patientsByEmail.containsKey(email.toLowerCase(Locale.ROOT));
     }
 
     /**
@@ -137,12 +415,8 @@ public class PatientsAcc {
      * @param hospitalID The hospital ID of the patient to get name of.
      */
     public String getPatientName(String hospitalID) {
-        for (User patient : patients) {
-            if (patient.getHospitalID().equals(hospitalID)) {
-                return (patient != null) ? patient.getName() : "Patient not found";
-            }
-        }
-        return null;
+        Patient patient = findPatientById(hospitalID);
+        return patient != null ? patient.getName() : null;
     }
 
     /**
@@ -151,14 +425,28 @@ public class PatientsAcc {
     public static void addPatient(Scanner sc) {
         System.out.println("\n|---- Creating New Patient Account ----|");
         System.out.printf("%s\n", "-".repeat(40));
-        Patient newCreatedUser = NewAccount.createNewAccount(sc, patients, Role.Patient);
+        // the ID sequence was seeded when the patients were loaded, so no list is needed
+        // to generate the ID; duplicates are checked against the indexes below
+        Patient newCreatedUser = NewAccount.createNewAccount(sc, List.<Patient>of(), Role.Patient);
 
-        if (newCreatedUser != null) {
-            patients.add(newCreatedUser);
-            CSVwrite.writeCSV(updatedPath, newCreatedUser);
+        if (newCreatedUser == null) {
+            System.out.println("Account creation failed!");
+            return;
+        }
+        boolean added = lock.write(() -> {
+            if (isTaken(newCreatedUser.getHospitalID(), newCreatedUser.getEmail())) {
+                return false;
+            }
+            patientIDs.add(newCreatedUser.getHospitalID());
+            changedPatients.put(newCreatedUser.getHospitalID(), newCreatedUser);
+            indexEmail(newCreatedUser.getHospitalID(), newCreatedUser.getEmail());
+            changeLog.insert(newCreatedUser.getHospitalID(), CSVwrite.toCSVRow(newCreatedUser));
+            return true;
+        });
+        if (added) {
             System.out.println("Patient " + newCreatedUser.getName() + " created!");
         } else {
-            System.out.println("Account creation failed!");
+            System.out.println("Account creation failed! A patient with this Hospital ID or email already exists.");
         }
     }
 
@@ -194,9 +482,13 @@ public class PatientsAcc {
                     System.out.println("Invalid email format. Please provide a valid email address.");
                     return;
                 }
-                patientToUpdate.setEmail(setEmail);
+                lock.write(() -> {
+                    unindexEmail(patientToUpdate.getHospitalID(), patientToUpdate.getEmail());
+                    patientToUpdate.setEmail(setEmail);
+                    indexEmail(patientToUpdate.getHospitalID(), setEmail);
+                });
                 System.out.println("Patient " + patientToUpdate.getName() + "'s details has been updated.");
-                duplicatePatient(); // rewrite the CSV file with updated version
+                updateRecord(patientToUpdate); // rewrite the CSV row with updated version
             } catch (InputMismatchException e) {
                 System.out.println("Invalid input type detected. Please enter the correct type for each field.");
                 sc.nextLine(); // Clear the invalid input
@@ -204,7 +496,7 @@ public class PatientsAcc {
                 System.out.println("An unexpected error occurred: " + e.getMessage());
             }
         } else {
-            System.out.println("Pharmacist with Hospital ID " + hospitalID + " not found.");
+            System.out.println("Patient with Hospital ID " + hospitalID + " not found.");
         }
     }
 
@@ -217,12 +509,20 @@ public class PatientsAcc {
     public static void removePatient(Scanner sc) {
         System.out.print("Enter the Patient ID to remove: ");
         String hospitalID = sc.nextLine();
-        Patient patientToRemove = findPatientById(hospitalID);
+        Patient patientToRemove = lock.write(() -> {
+            Patient patient = patientIDs.contains(hospitalID) ? profileOf(hospitalID) : null;
+            if (patient != null) {
+                patientIDs.remove(hospitalID); // remove Data from patient index
+                changedPatients.remove(hospitalID);
+                recentPatients.invalidate(hospitalID);
+                unindexEmail(hospitalID, patient.getEmail());
+                changeLog.delete(hospitalID); // remove the row from the CSV file
+            }
+            return patient;
+        });
 
         if (patientToRemove != null) {
-            patients.remove(patientToRemove); // remove Data from pharmacist List
             System.out.println("Patient with Hospital ID " + hospitalID + " has been removed.");
-            displayPatients(); // rewrite the CSV file without the row removed
         } else {
             System.out.println("Patient with Hospital ID " + hospitalID + " not found.");
         }
@@ -234,15 +534,45 @@ public class PatientsAcc {
      * @param hospitalID  The hospital ID of the patient whose password is to be
      *                    updated.
      * @param newPassword The new password to set for the patient.
+     * @throws RejectedExecutionException If too many passwords are already being
+     *                                    hashed.
      */
     public static void updatePassword(String hospitalID, String newPassword) {
-        // find the staff ID to update
-        User patientPWToUpdate = findPatientById(hospitalID);
+        // hashed before the account is looked up, on the bounded pool of the hasher
+        updatePasswordHash(hospitalID, PasswordHasher.hashAsync(newPassword).join());
+    }
+
+    /**
+     * Updates the password of a patient with a password that is already hashed.
+     * 
+     * @param hospitalID   The hospital ID of the patient whose password is to be
+     *                     updated.
+     * @param passwordHash The new password, hashed by {@link PasswordHasher}.
+     */
+    public static void updatePasswordHash(String hospitalID, String passwordHash) {
+        Patient patientPWToUpdate = findPatientById(hospitalID);
 
         if (patientPWToUpdate != null) {
-            patientPWToUpdate.setPassword(newPassword);
-            duplicatePatient();
-            return;
+            patientPWToUpdate.setPassword(passwordHash);
+            updateRecord(patientPWToUpdate);
+        }
+    }
+
+    /** A weak reference to a patient in use, remembering the hospital ID it is held by. */
+    private static class PatientRef extends WeakReference<Patient> {
+
+        /** The hospital ID the reference is held by. */
+        final String hospitalID;
+
+        /**
+         * Creates a reference to a patient.
+         *
+         * @param hospitalID The hospital ID of the patient.
+         * @param patient    The patient.
+         */
+        PatientRef(String hospitalID, Patient patient) {
+            super(patient, collectedPatients);
+            this.hospitalID = hospitalID;
         }
     }
-}
\ No newline at end of file
+}
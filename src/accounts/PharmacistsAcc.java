@@ -6,6 +6,7 @@ import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 
 import main.SystemInitialisation;
 import user.User;
@@ -25,10 +26,16 @@ import user.Role;
 public class PharmacistsAcc {
     // store all Pharmacist objects
     private static List<Pharmacist> pharmacists = new ArrayList<>();
+    /** An index of every {@link Pharmacist} by hospital ID, kept in sync with {@link #pharmacists}. */
+    private static Map<String, Pharmacist> pharmacistsById = new HashMap<>();
     /** The file path to the original pharmacist CSV file. */
     private static String originalPath;
     /** The file path to the updated pharmacist CSV file. */
     private static String updatedPath;
+    /** The change log recording pharmacist changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+    /** Guards the pharmacist list, its index and its change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
 
     /**
      * Updates the file paths for loading and saving pharmacist data by retrieving them from 
@@ -48,6 +55,7 @@ public class PharmacistsAcc {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("PharmacistOriginal");
         updatedPath = SystemInitialisation.getFilePath("PharmacistUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
@@ -55,41 +63,56 @@ public class PharmacistsAcc {
      * <p>
      * If it is the first run, it loads from the original file path and clears the
      * updated file.
-     * Otherwise, it loads from the updated file.
+     * Otherwise, it loads from the updated file after replaying any logged changes
+     * over it.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadPharmacists(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
-
-        // clear the list to avoid having duplicate data
-        pharmacists.clear();
-
-        Map<String, Integer> pharmacistMapping = new HashMap<>();
-        pharmacistMapping.put("hospitalID", 0);
-        pharmacistMapping.put("name", 1);
-        pharmacistMapping.put("role", 2);
-        pharmacistMapping.put("gender", 3);
-        pharmacistMapping.put("age", 4);
-        pharmacistMapping.put("password", 5);
-
-        List<Object> pharmacistsMapList = CSVread.readCSV(filePath, pharmacistMapping, "Pharmacist");
-
-        // add the data from CSV into staffsList
-        for (Object user : pharmacistsMapList) {
-            if (user instanceof Pharmacist) {
-                pharmacists.add((Pharmacist) user);
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
             }
-        }
 
-        if (pharmacists.isEmpty()) {
-            System.out.println("No pharmacists were loaded.");
-        } else {
-            System.out.println("Pharmacists successfully loaded: " + pharmacists.size());
-        }
+            // clear the list to avoid having duplicate data
+            pharmacists.clear();
+            pharmacistsById.clear();
+
+            Map<String, Integer> pharmacistMapping = new HashMap<>();
+            pharmacistMapping.put("hospitalID", 0);
+            pharmacistMapping.put("name", 1);
+            pharmacistMapping.put("role", 2);
+            pharmacistMapping.put("gender", 3);
+            pharmacistMapping.put("age", 4);
+            pharmacistMapping.put("password", 5);
+
+            // a warm start reads the binary snapshot when it is current
+            List<Object> pharmacistsMapList = isFirstRun ? null : BinarySnapshot.readUsers(filePath, "Pharmacist");
+            if (pharmacistsMapList == null) {
+                pharmacistsMapList = CSVread.readCSV(filePath, pharmacistMapping, "Pharmacist");
+            }
+
+            // add the data from CSV into staffsList
+            for (Object user : pharmacistsMapList) {
+                if (user instanceof Pharmacist) {
+                    pharmacists.add((Pharmacist) user);
+                    pharmacistsById.put(((Pharmacist) user).getHospitalID(), (Pharmacist) user);
+                }
+            }
+
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("P", pharmacists, Pharmacist::getHospitalID);
+
+            if (pharmacists.isEmpty()) {
+                System.out.println("No pharmacists were loaded.");
+            } else {
+                System.out.println("Pharmacists successfully loaded: " + pharmacists.size());
+            }
+        });
     }
 
     /**
@@ -98,20 +121,41 @@ public class PharmacistsAcc {
      * @return A list of {@link User} objects representing pharmacists.
      */
     public static List<User> getPharmacists() {
-        return new ArrayList<>(pharmacists);
+        return lock.read(() -> new ArrayList<>(pharmacists));
     }
 
     /** Displays all pharmacists currently in the list. */
     public static void displayPharmacists() {
         System.out.println("\nThe Pharmacists in the CSV file are: ");
-        for (User pharmacist : pharmacists) {
+        for (User pharmacist : getPharmacists()) {
             System.out.println(pharmacist.userInfo());
         }
     }
 
     /** Duplicates the current pharmacist list to the updated CSV file. */
     public static void duplicatePharmacist() {
-        CSVwrite.writeCSVList(updatedPath, pharmacists);
+        lock.read(() -> changeLog.rewrite(pharmacists));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the pharmacists beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeUsers(updatedPath, pharmacists);
+        });
+    }
+
+    /**
+     * Saves the changes made to a single pharmacist by appending it to the change log,
+     * instead of rewriting the whole CSV file.
+     * 
+     * @param pharmacist The {@link Pharmacist} whose details have been modified.
+     */
+    private static void updateRecord(Pharmacist pharmacist) {
+        lock.write(() -> changeLog.update(pharmacist.getHospitalID(), CSVwrite.toCSVRow(pharmacist)));
     }
 
     /**
@@ -121,12 +165,7 @@ public class PharmacistsAcc {
      * @return The {@link Pharmacist} object if found; {@code null} otherwise.
      */
     public static Pharmacist findPharmById(String hospitalID) {
-        for (Pharmacist pharmacist : pharmacists) {
-            if (pharmacist.getHospitalID().equals(hospitalID)) {
-                return pharmacist;
-            }
-        }
-        return null;
+        return lock.read(() -> pharmacistsById.get(hospitalID));
     }
 
     /**
@@ -136,8 +175,11 @@ public class PharmacistsAcc {
         Pharmacist newCreatedUser = NewAccount.createNewAccount(sc, pharmacists, Role.Pharmacist);
 
         if (newCreatedUser != null) {
-            pharmacists.add(newCreatedUser);
-            CSVwrite.writeCSV(updatedPath, newCreatedUser);
+            lock.write(() -> {
+                pharmacists.add(newCreatedUser);
+                pharmacistsById.put(newCreatedUser.getHospitalID(), newCreatedUser);
+                changeLog.insert(newCreatedUser.getHospitalID(), CSVwrite.toCSVRow(newCreatedUser));
+            });
             System.out.println("Pharmacist " + newCreatedUser.getName() + " created!");
         } else {
             System.out.println("Account creation failed!");
@@ -160,13 +202,11 @@ public class PharmacistsAcc {
         if (pharmToUpdate != null) {
             System.out.print("Enter your Name: ");
             String name = sc.nextLine();
-            name = name.substring(0, 1).toUpperCase() + name.substring(1);
-            pharmToUpdate.setName(name);
+            String newName = name.substring(0, 1).toUpperCase() + name.substring(1);
 
             System.out.print("Enter your Gender: ");
             String gender = sc.nextLine();
-            gender = gender.substring(0, 1).toUpperCase() + gender.substring(1);
-            pharmToUpdate.setGender(gender);
+            String newGender = gender.substring(0, 1).toUpperCase() + gender.substring(1);
 
             System.out.print("Enter your Age: ");
             int age;
@@ -178,12 +218,27 @@ public class PharmacistsAcc {
                 sc.nextLine(); // Consume the invalid input to prevent an infinite loop
                 return;
             }
-            pharmToUpdate.setAge(age);
 
             System.out.print("Enter your Password: ");
-            pharmToUpdate.setPassword(sc.nextLine());
+            String passwordHash = null;
+            try {
+                passwordHash = PasswordHasher.hashAsync(sc.nextLine()).join(); // only the salted hash is stored
+            } catch (RejectedExecutionException e) {
+                System.out.println("Too many passwords are being changed. The password was not changed.");
+            }
+            String newPasswordHash = passwordHash;
+
+            // change the fields and log them together, so no session sees a half-updated pharmacist
+            lock.write(() -> {
+                pharmToUpdate.setName(newName);
+                pharmToUpdate.setGender(newGender);
+                pharmToUpdate.setAge(age);
+                if (newPasswordHash != null) {
+                    pharmToUpdate.setPassword(newPasswordHash);
+                }
+                updateRecord(pharmToUpdate); // rewrite the CSV row with updated version
+            });
             System.out.println("Pharmacist with Hospital ID " + hospitalID + " has been updated.");
-            duplicatePharmacist(); // rewrite the CSV file with updated version
 
         } else {
             System.out.println("Pharmacist with Hospital ID " + hospitalID + " not found.");
@@ -200,12 +255,17 @@ public class PharmacistsAcc {
         displayPharmacists();
         System.out.print("\nEnter the Pharmacist ID to remove: ");
         String hospitalID = sc.nextLine();
-        Pharmacist pharmacistToRemove = findPharmById(hospitalID);
+        Pharmacist pharmacistToRemove = lock.write(() -> {
+            Pharmacist pharmacist = pharmacistsById.remove(hospitalID);
+            if (pharmacist != null) {
+                pharmacists.remove(pharmacist); // remove Data from pharmacist List
+                changeLog.delete(hospitalID); // remove the row from the CSV file
+            }
+            return pharmacist;
+        });
 
         if (pharmacistToRemove != null) {
-            pharmacists.remove(pharmacistToRemove); // remove Data from pharmacist List
             System.out.println("Pharmacist with Hospital ID " + hospitalID + " has been removed.");
-            duplicatePharmacist(); // rewrite the CSV file without the row removed
         } else {
             System.out.println("Pharmacist with Hospital ID " + hospitalID + " not found.");
         }
@@ -217,15 +277,29 @@ public class PharmacistsAcc {
      * @param hospitalID  The hospital ID of the pharmacist whose password is to be
      *                    updated.
      * @param newPassword The new password to set for the pharmacist.
+     * @throws RejectedExecutionException If too many passwords are already being
+     *                                    hashed.
      */
     public static void updatePassword(String hospitalID, String newPassword) {
-        // find the staff ID to update
-        Pharmacist pharmacistPWToUpdate = findPharmById(hospitalID);
+        // hashed before the account is looked up, on the bounded pool of the hasher
+        updatePasswordHash(hospitalID, PasswordHasher.hashAsync(newPassword).join());
+    }
 
-        if (pharmacistPWToUpdate != null) {
-            pharmacistPWToUpdate.setPassword(newPassword);
-            duplicatePharmacist();
-            return;
-        }
+    /**
+     * Updates the password of a pharmacist with a password that is already hashed.
+     * 
+     * @param hospitalID   The hospital ID of the pharmacist whose password is to be
+     *                     updated.
+     * @param passwordHash The new password, hashed by {@link PasswordHasher}.
+     */
+    public static void updatePasswordHash(String hospitalID, String passwordHash) {
+        lock.write(() -> {
+            Pharmacist pharmacistPWToUpdate = findPharmById(hospitalID);
+
+            if (pharmacistPWToUpdate != null) {
+                pharmacistPWToUpdate.setPassword(passwordHash);
+                updateRecord(pharmacistPWToUpdate);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -120,11 +120,23 @@ public class Appointment {
     }
 
     /**
-     * Sets the status of the appointment.
+     * Sets the status of the appointment and moves it to the matching status
+     * indexes of the {@link AppointmentManager}, both under the manager's lock.
      * 
      * @param status The status to set for the appointment.
      */
     public void setStatus(ApptStatus status) {
+        AppointmentManager.setStatus(this, status);
+    }
+
+    /**
+     * Writes the status field only. Called by
+     * {@link AppointmentManager#setStatus(Appointment, ApptStatus)} with its write lock
+     * held, so the field and the status indexes change together.
+     * 
+     * @param status The status to set for the appointment.
+     */
+    void assignStatus(ApptStatus status) {
         this.status = status;
     }
 
@@ -301,34 +313,34 @@ public String toCSVFormat() {
      * Confirms the appointment by setting its status to {@code CONFIRMED}.
      */
     public void confirmAppointment() {
-        this.status = ApptStatus.CONFIRMED;
+        setStatus(ApptStatus.CONFIRMED);
     }
 
     /**
      * Accepts the appointment by setting its status to {@code SCHEDULED}.
      */
     public void acceptAppointment() {
-        this.status = ApptStatus.SCHEDULED;
+        setStatus(ApptStatus.SCHEDULED);
     }
 
     /**
      * Cancels the appointment by setting its status to {@code CANCELLED}.
      */
     public void cancelAppointment() {
-        this.status = ApptStatus.CANCELLED;
+        setStatus(ApptStatus.CANCELLED);
     }
 
     /**
      * Marks the appointment as completed by setting its status to {@code COMPLETED}.
      */
     public void completeAppointment() {
-        this.status = ApptStatus.COMPLETED;
+        setStatus(ApptStatus.COMPLETED);
     }
 
     /**
      * Creates a new appointment by setting its status to {@code PENDING}.
      */
     public void createAppointment() {
-        this.status = ApptStatus.PENDING;
+        setStatus(ApptStatus.PENDING);
     }
 }
\ No newline at end of file
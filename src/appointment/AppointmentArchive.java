@@ -0,0 +1,323 @@
+package appointment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import accounts.DoctorsAcc;
+import accounts.PatientsAcc;
+import user.Doctor;
+import user.Patient;
+
+/**
+ * A columnar store of closed appointments, those {@code COMPLETED} or {@code CANCELLED}.
+ * <p>
+ * A closed appointment no longer changes, so instead of an {@link Appointment} object
+ * with references to its doctor, patient, date and time, each of its fields is kept in a
+ * primitive array at the appointment's row: the doctor and patient as {@code int}
+ * surrogate keys, the date as an {@code int} epoch day, the time as a {@code short}
+ * minute of the day, the status as a {@code byte} and the service type as an
+ * {@code int} code into a dictionary of the service types seen. Only the ID and the
+ * free-text notes and medications are kept as strings.
+ * <p>
+ * Queries scan the arrays, comparing primitives, and turn only the matching rows back
+ * into {@link Appointment} objects. The objects are built for each query and not kept,
+ * so the archive holds only its columns however often it is queried. A query naming a
+ * doctor or patient who has no closed appointments returns without scanning.
+ */
+public class AppointmentArchive {
+
+    /** The number of rows the arrays start with. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The epoch day stored for an appointment without a date. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** The minute of the day stored for an appointment without a time. */
+    private static final short NO_TIME = -1;
+
+    /** Every {@link ApptStatus}, indexed by the byte stored for it. */
+    private static final ApptStatus[] STATUSES = ApptStatus.values();
+
+    /** The number of rows stored. */
+    private int size;
+
+    /** The appointment ID of each row. */
+    private String[] ids = new String[INITIAL_CAPACITY];
+
+    /** The surrogate key of the doctor of each row. */
+    private int[] doctorKeys = new int[INITIAL_CAPACITY];
+
+    /** The surrogate key of the patient of each row. */
+    private int[] patientKeys = new int[INITIAL_CAPACITY];
+
+    /** The date of each row as an epoch day. */
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+
+    /** The time of each row as a minute of the day. */
+    private short[] minutes = new short[INITIAL_CAPACITY];
+
+    /** The ordinal of the status of each row. */
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+
+    /** The dictionary code of the service type of each row. */
+    private int[] serviceTypes = new int[INITIAL_CAPACITY];
+
+    /** The consultation notes of each row. */
+    private String[] notes = new String[INITIAL_CAPACITY];
+
+    /** The prescribed medications of each row. */
+    private String[] medications = new String[INITIAL_CAPACITY];
+
+    /** The doctor IDs, encoded as surrogate keys. */
+    private final Dictionary doctorIDs = new Dictionary();
+
+    /** The patient IDs, encoded as surrogate keys. */
+    private final Dictionary patientIDs = new Dictionary();
+
+    /** The service types, encoded as codes. */
+    private final Dictionary serviceTypeNames = new Dictionary();
+
+    /**
+     * Checks whether a status closes an appointment, so that it belongs in the archive.
+     *
+     * @param status The status to check.
+     * @return {@code true} if the status is {@code COMPLETED} or {@code CANCELLED}.
+     */
+    public static boolean isClosed(ApptStatus status) {
+        return status == ApptStatus.COMPLETED || status == ApptStatus.CANCELLED;
+    }
+
+    /**
+     * Adds a closed appointment as a new row.
+     *
+     * @param appt The closed {@link Appointment} to add.
+     */
+    public void add(Appointment appt) {
+        add(appt.getAppointmentID(),
+                appt.getDoctor() != null ? appt.getDoctor().getHospitalID() : null,
+                appt.getPatient() != null ? appt.getPatient().getHospitalID() : null,
+                appt.getDate(), appt.getTime(), appt.getStatus(), appt.getConsultationNotes(),
+                appt.getPrescribedMedications(), appt.getServiceType());
+    }
+
+    /**
+     * Adds a closed appointment as a new row from its fields, without an
+     * {@link Appointment} object, as when a shard is read from disk.
+     *
+     * @param appointmentID The ID of the appointment.
+     * @param doctorID      The hospital ID of the doctor, or {@code null}.
+     * @param patientID     The hospital ID of the patient, or {@code null}.
+     * @param date          The date, or {@code null}.
+     * @param time          The time, or {@code null}.
+     * @param status        The closed status.
+     * @param note          The consultation notes.
+     * @param medication    The prescribed medications.
+     * @param serviceType   The service type.
+     */
+    public void add(String appointmentID, String doctorID, String patientID, LocalDate date, LocalTime time,
+            ApptStatus status, String note, String medication, String serviceType) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = appointmentID;
+        doctorKeys[size] = doctorIDs.encode(doctorID);
+        patientKeys[size] = patientIDs.encode(patientID);
+        epochDays[size] = date != null ? (int) date.toEpochDay() : NO_DATE;
+        minutes[size] = time != null ? (short) (time.toSecondOfDay() / 60) : NO_TIME;
+        statuses[size] = (byte) status.ordinal();
+        serviceTypes[size] = serviceTypeNames.encode(serviceType);
+        notes[size] = note;
+        medications[size] = medication;
+        size++;
+    }
+
+    /**
+     * Returns the number of closed appointments stored.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Removes every row. */
+    public void clear() {
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(notes, 0, size, null);
+        Arrays.fill(medications, 0, size, null);
+        size = 0;
+        doctorIDs.clear();
+        patientIDs.clear();
+        serviceTypeNames.clear();
+    }
+
+    /**
+     * Finds the closed appointments matching every given criterion. A {@code null}
+     * criterion matches every row.
+     *
+     * @param doctorID  The hospital ID of the doctor, or {@code null}.
+     * @param patientID The hospital ID of the patient, or {@code null}.
+     * @param date      The date, or {@code null}.
+     * @param status    The status, or {@code null}.
+     * @return The matching appointments, in the order they were added.
+     */
+    public List<Appointment> select(String doctorID, String patientID, LocalDate date, ApptStatus status) {
+        List<Appointment> matches = new ArrayList<>();
+        int doctorKey = doctorID != null ? doctorIDs.lookup(doctorID) : Dictionary.ANY;
+        int patientKey = patientID != null ? patientIDs.lookup(patientID) : Dictionary.ANY;
+        if (doctorKey == Dictionary.MISSING || patientKey == Dictionary.MISSING
+                || (status != null && !isClosed(status))) {
+            return matches;
+        }
+        boolean anyDate = date == null;
+        int epochDay = anyDate ? 0 : (int) date.toEpochDay();
+        int statusCode = status != null ? status.ordinal() : -1;
+
+        for (int row = 0; row < size; row++) {
+            if ((doctorKey == Dictionary.ANY || doctorKeys[row] == doctorKey)
+                    && (patientKey == Dictionary.ANY || patientKeys[row] == patientKey)
+                    && (anyDate || epochDays[row] == epochDay)
+                    && (statusCode < 0 || statuses[row] == statusCode)) {
+                matches.add(materialize(row));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds a closed appointment by its ID.
+     *
+     * @param appointmentID The ID of the appointment.
+     * @return The {@link Appointment}, or {@code null} if it is not stored.
+     */
+    public Appointment find(String appointmentID) {
+        for (int row = 0; row < size; row++) {
+            if (ids[row].equals(appointmentID)) {
+                return materialize(row);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns every closed appointment.
+     *
+     * @return The appointments, in the order they were added.
+     */
+    public List<Appointment> getAll() {
+        return select(null, null, null, null);
+    }
+
+    /**
+     * Returns the IDs of the closed appointments.
+     *
+     * @return A view of the appointment IDs, in the order they were added.
+     */
+    public List<String> getIDs() {
+        return Arrays.asList(ids).subList(0, size);
+    }
+
+    /**
+     * Turns a row back into an {@link Appointment}, looking up its doctor and patient.
+     *
+     * @param row The row to read.
+     * @return The {@link Appointment} holding the row's fields.
+     */
+    private Appointment materialize(int row) {
+        String doctorID = doctorIDs.decode(doctorKeys[row]);
+        String patientID = patientIDs.decode(patientKeys[row]);
+        Doctor doctor = doctorID != null ? DoctorsAcc.findDoctorById(doctorID) : null;
+        Patient patient = patientID != null ? PatientsAcc.findPatientById(patientID) : null;
+        LocalDate date = epochDays[row] != NO_DATE ? LocalDate.ofEpochDay(epochDays[row]) : null;
+        LocalTime time = minutes[row] != NO_TIME ? LocalTime.ofSecondOfDay(minutes[row] * 60L) : null;
+
+        Appointment appt = new Appointment(doctor, patient, date, time, ids[row], STATUSES[statuses[row]]);
+        appt.setConsultationNotes(notes[row]);
+        appt.setPrescribedMedications(medications[row]);
+        appt.setServiceType(serviceTypeNames.decode(serviceTypes[row]));
+        return appt;
+    }
+
+    /** Doubles the capacity of every array. */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        doctorKeys = Arrays.copyOf(doctorKeys, capacity);
+        patientKeys = Arrays.copyOf(patientKeys, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        serviceTypes = Arrays.copyOf(serviceTypes, capacity);
+        notes = Arrays.copyOf(notes, capacity);
+        medications = Arrays.copyOf(medications, capacity);
+    }
+
+    /**
+     * Encodes strings as consecutive {@code int} codes, so that each distinct string is
+     * stored once however many rows hold it.
+     */
+    private static class Dictionary {
+
+        /** The code of {@code null}. */
+        static final int NULL = -1;
+
+        /** Returned by {@link #lookup(String)} for a string never encoded. */
+        static final int MISSING = -2;
+
+        /** Used in queries for a criterion matching every code. */
+        static final int ANY = -3;
+
+        /** The string of each code. */
+        private final List<String> values = new ArrayList<>();
+
+        /** The code of each string. */
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        /**
+         * Returns the code of a string, giving it the next code if it is new.
+         *
+         * @param value The string to encode, or {@code null}.
+         * @return The code of the string.
+         */
+        int encode(String value) {
+            if (value == null) {
+                return NULL;
+            }
+            return codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        /**
+         * Returns the code of a string without encoding it.
+         *
+         * @param value The string to look up.
+         * @return The code of the string, or {@link #MISSING} if it was never encoded.
+         */
+        int lookup(String value) {
+            return codes.getOrDefault(value, MISSING);
+        }
+
+        /**
+         * Returns the string of a code.
+         *
+         * @param code The code.
+         * @return The string, or {@code null} for {@link #NULL}.
+         */
+        String decode(int code) {
+            return code == NULL ? null : values.get(code);
+        }
+
+        /** Forgets every string. */
+        void clear() {
+            values.clear();
+            codes.clear();
+        }
+    }
+}
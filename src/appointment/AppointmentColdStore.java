@@ -0,0 +1,424 @@
+package appointment;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import utility.CSVTokenizer;
+
+/**
+ * The cold partition of the appointments: every closed appointment, kept on disk.
+ * <p>
+ * Closed appointments are sharded by month into CSV files in a folder of their own, so
+ * that the appointments held in memory are only those still open. A small index file
+ * beside the shards records the first and last date, the number of rows and the
+ * highest appointment ID of each shard; it is the only part read when the system
+ * starts.
+ * <p>
+ * A shard is read only when a query needs it, and then held as an
+ * {@link AppointmentArchive} of primitive columns. A query for a date reads the one
+ * shard covering it; other queries read every shard. Loaded shards are held through
+ * soft references, so the garbage collector may drop them under memory pressure and
+ * they are read again when next needed.
+ * <p>
+ * A shard is decoded straight into the columns of its archive, without building
+ * {@link Appointment} objects or looking up doctors and patients, so reading one does not
+ * parse patient profiles or touch the {@link AppointmentManager}. The store is still used
+ * without holding the manager's lock, since queries turn the matching rows back into
+ * appointments.
+ */
+public class AppointmentColdStore {
+
+    /** The name of the index file in the folder. */
+    private static final String INDEX_FILE = "index.csv";
+
+    /** The start of the name of each shard file, followed by the month of the shard. */
+    private static final String SHARD_PREFIX = "Appt_";
+
+    /** The end of the name of each shard file. */
+    private static final String SHARD_SUFFIX = ".csv";
+
+    /** The header of the index file. */
+    private static final String INDEX_HEADER = "Shard,First Date,Last Date,Rows,Last ID";
+
+    /** The header of each shard, the same as the appointments CSV file. */
+    private static final String SHARD_HEADER = "AppointmentID,PatientID,DoctorID,Date,Time,Status,"
+            + "Consultation Notes,Prescribed Medications,Service Type";
+
+    /** The column of each appointment field in a shard. */
+    private static final Map<String, Integer> SHARD_COLUMNS = new HashMap<>();
+
+    static {
+        SHARD_COLUMNS.put("AppointmentID", 0);
+        SHARD_COLUMNS.put("PatientID", 1);
+        SHARD_COLUMNS.put("DoctorID", 2);
+        SHARD_COLUMNS.put("Date", 3);
+        SHARD_COLUMNS.put("Time", 4);
+        SHARD_COLUMNS.put("Status", 5);
+        SHARD_COLUMNS.put("ConsultationNotes", 6);
+        SHARD_COLUMNS.put("PrescribedMedications", 7);
+        SHARD_COLUMNS.put("ServiceType", 8);
+    }
+
+    /** The folder holding the shards and the index. */
+    private final File dir;
+
+    /** The index entry of each shard, by month. */
+    private final NavigableMap<YearMonth, Shard> shards = new TreeMap<>();
+
+    /**
+     * Creates the store for a folder. Nothing is read until {@link #open()}.
+     *
+     * @param dirPath The path of the folder holding the shards.
+     */
+    public AppointmentColdStore(String dirPath) {
+        this.dir = new File(dirPath);
+    }
+
+    /**
+     * Reads the index of the shards, without reading any shard.
+     */
+    public synchronized void open() {
+        shards.clear();
+        File index = new File(dir, INDEX_FILE);
+        if (!index.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(index))) {
+            reader.readLine(); // skip the header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 5) {
+                    continue;
+                }
+                Shard shard = new Shard();
+                shard.first = LocalDate.parse(fields[1]);
+                shard.last = LocalDate.parse(fields[2]);
+                shard.rows = Integer.parseInt(fields[3]);
+                shard.lastID = fields[4];
+                shards.put(YearMonth.parse(fields[0]), shard);
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Deletes every shard and the index, with any temporary index left by an interrupted
+     * write, emptying the store. Other files in the folder are left as they are.
+     */
+    public synchronized void reset() {
+        File[] files = dir.listFiles((folder, name) -> name.equals(INDEX_FILE) || name.equals(INDEX_FILE + ".tmp")
+                || (name.startsWith(SHARD_PREFIX) && name.endsWith(SHARD_SUFFIX)));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        shards.clear();
+    }
+
+    /**
+     * Appends closed appointments to the shards of their months and updates the index.
+     * Each shard is written once, however many of the appointments fall in it. An
+     * appointment already in its shard, as when a snapshot is saved again, is skipped.
+     *
+     * @param appointments The closed appointments to move to the store.
+     */
+    public synchronized void append(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        dir.mkdirs();
+
+        Map<YearMonth, List<Appointment>> byMonth = new LinkedHashMap<>();
+        for (Appointment appt : appointments) {
+            byMonth.computeIfAbsent(YearMonth.from(appt.getDate()), month -> new ArrayList<>()).add(appt);
+        }
+
+        for (Map.Entry<YearMonth, List<Appointment>> entry : byMonth.entrySet()) {
+            File file = shardFile(entry.getKey());
+            boolean isNew = !file.exists();
+            Shard shard = shards.getOrDefault(entry.getKey(), new Shard());
+            AppointmentArchive loaded = isNew ? null : load(entry.getKey(), shard);
+
+            // skip appointments already in the shard, or repeated in the list
+            Set<String> stored = loaded != null ? new HashSet<>(loaded.getIDs()) : new HashSet<>();
+            List<Appointment> added = new ArrayList<>();
+            for (Appointment appt : entry.getValue()) {
+                if (stored.add(appt.getAppointmentID())) {
+                    added.add(appt);
+                }
+            }
+            if (added.isEmpty()) {
+                continue;
+            }
+
+            try (FileWriter output = new FileWriter(file, true)) {
+                StringBuilder rows = new StringBuilder();
+                if (isNew) {
+                    rows.append(SHARD_HEADER).append('\n');
+                }
+                for (Appointment appt : added) {
+                    rows.append(appt.toCSVFormat()).append('\n');
+                }
+                output.write(rows.toString());
+            } catch (IOException e) {
+                e.printStackTrace();
+                continue;
+            }
+
+            shards.putIfAbsent(entry.getKey(), shard);
+            for (Appointment appt : added) {
+                shard.include(appt);
+                if (loaded != null) {
+                    loaded.add(appt);
+                }
+            }
+        }
+        writeIndex();
+    }
+
+    /**
+     * Returns the number of closed appointments in the store, from the index.
+     *
+     * @return The number of rows in every shard.
+     */
+    public synchronized int size() {
+        int rows = 0;
+        for (Shard shard : shards.values()) {
+            rows += shard.rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the highest appointment ID of each shard, from the index, so that new IDs
+     * follow those of closed appointments without reading them.
+     *
+     * @return The highest appointment ID of each shard.
+     */
+    public synchronized List<String> getLastIDs() {
+        List<String> ids = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            ids.add(shard.lastID);
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the closed appointments matching every given criterion, reading the shards
+     * needed. A {@code null} criterion matches every appointment; a date limits the
+     * search to the shard of its month.
+     *
+     * @param doctorID  The hospital ID of the doctor, or {@code null}.
+     * @param patientID The hospital ID of the patient, or {@code null}.
+     * @param date      The date, or {@code null}.
+     * @param status    The status, or {@code null}.
+     * @return The matching appointments, by month.
+     */
+    public synchronized List<Appointment> select(String doctorID, String patientID, LocalDate date,
+            ApptStatus status) {
+        List<Appointment> matches = new ArrayList<>();
+        if (status != null && !AppointmentArchive.isClosed(status)) {
+            return matches;
+        }
+        Map<YearMonth, Shard> searched = shards;
+        if (date != null) {
+            Shard shard = shards.get(YearMonth.from(date));
+            if (shard == null || date.isBefore(shard.first) || date.isAfter(shard.last)) {
+                return matches;
+            }
+            searched = Map.of(YearMonth.from(date), shard);
+        }
+        for (Map.Entry<YearMonth, Shard> entry : searched.entrySet()) {
+            matches.addAll(load(entry.getKey(), entry.getValue()).select(doctorID, patientID, date, status));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns a shard's appointments, reading the shard if it is not held in memory.
+     * The columns of each row are decoded straight into the archive. An appointment
+     * moved to the store twice keeps its last row, and a malformed row is skipped.
+     *
+     * @param month The month of the shard.
+     * @param shard The index entry of the shard.
+     * @return The appointments of the shard.
+     */
+    private AppointmentArchive load(YearMonth month, Shard shard) {
+        AppointmentArchive loaded = shard.loaded != null ? shard.loaded.get() : null;
+        if (loaded != null) {
+            return loaded;
+        }
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        try (CSVTokenizer reader = new CSVTokenizer(new InputStreamReader(
+                new FileInputStream(shardFile(month)), StandardCharsets.UTF_8))) {
+            reader.nextRow(); // skip the header
+            String[] row;
+            while ((row = reader.nextRow()) != null) {
+                if (row.length > SHARD_COLUMNS.get("Status")) {
+                    rows.put(row[SHARD_COLUMNS.get("AppointmentID")].trim(), row);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        loaded = new AppointmentArchive();
+        for (Map.Entry<String, String[]> row : rows.entrySet()) {
+            try {
+                addRow(loaded, row.getKey(), row.getValue());
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // a malformed date, time or status
+            }
+        }
+        shard.loaded = new SoftReference<>(loaded);
+        return loaded;
+    }
+
+    /**
+     * Decodes the columns of a shard row into an archive.
+     *
+     * @param archive       The archive to add the row to.
+     * @param appointmentID The appointment ID of the row.
+     * @param row           The fields of the row.
+     */
+    private static void addRow(AppointmentArchive archive, String appointmentID, String[] row) {
+        ApptStatus status = ApptStatus.valueOf(column(row, "Status").toUpperCase());
+        archive.add(appointmentID,
+                hospitalID(column(row, "DoctorID")),
+                hospitalID(column(row, "PatientID")),
+                LocalDate.parse(column(row, "Date")),
+                LocalTime.parse(column(row, "Time")),
+                status,
+                column(row, "ConsultationNotes"),
+                column(row, "PrescribedMedications"),
+                column(row, "ServiceType"));
+    }
+
+    /**
+     * Returns a field of a shard row, trimmed.
+     *
+     * @param row    The fields of the row.
+     * @param column The name of the column.
+     * @return The field, or an empty string if the row is too short to hold it.
+     */
+    private static String column(String[] row, String column) {
+        int index = SHARD_COLUMNS.get(column);
+        return row.length > index ? row[index].trim() : "";
+    }
+
+    /**
+     * Returns the hospital ID written in a shard row, which holds {@code NULL} for an
+     * appointment without a doctor or patient.
+     *
+     * @param field The field of the row.
+     * @return The hospital ID, or {@code null} if there is none.
+     */
+    private static String hospitalID(String field) {
+        return field.isEmpty() || field.equals("NULL") ? null : field;
+    }
+
+    /**
+     * Writes the index of every shard, replacing the index file. The index is written to
+     * a temporary file and moved into place, so an interrupted write leaves the old index.
+     */
+    private void writeIndex() {
+        StringBuilder index = new StringBuilder(INDEX_HEADER).append('\n');
+        for (Map.Entry<YearMonth, Shard> entry : shards.entrySet()) {
+            Shard shard = entry.getValue();
+            index.append(entry.getKey()).append(',').append(shard.first).append(',').append(shard.last)
+                    .append(',').append(shard.rows).append(',').append(shard.lastID).append('\n');
+        }
+        File indexFile = new File(dir, INDEX_FILE);
+        File tempFile = new File(dir, INDEX_FILE + ".tmp");
+        try {
+            try (FileWriter output = new FileWriter(tempFile, false)) {
+                output.write(index.toString());
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the file of a shard.
+     *
+     * @param month The month of the shard.
+     * @return The shard's file in the folder.
+     */
+    private File shardFile(YearMonth month) {
+        return new File(dir, SHARD_PREFIX + month + SHARD_SUFFIX);
+    }
+
+    /**
+     * Returns the number of an appointment ID, used to find the highest ID of a shard.
+     *
+     * @param appointmentID The appointment ID.
+     * @return The number after the prefix, or -1 if there is none.
+     */
+    private static long idNumber(String appointmentID) {
+        try {
+            return Long.parseLong(appointmentID.replaceAll("\\D", ""));
+        } catch (NumberFormatException | NullPointerException e) {
+            return -1;
+        }
+    }
+
+    /** The index entry of one shard, and its appointments while they are held in memory. */
+    private static class Shard {
+
+        /** The earliest date in the shard. */
+        LocalDate first;
+
+        /** The latest date in the shard. */
+        LocalDate last;
+
+        /** The number of rows in the shard. */
+        int rows;
+
+        /** The highest appointment ID in the shard. */
+        String lastID;
+
+        /** The appointments of the shard once read, or {@code null} before. */
+        SoftReference<AppointmentArchive> loaded;
+
+        /**
+         * Updates the entry for a row appended to the shard.
+         *
+         * @param appt The appointment appended.
+         */
+        void include(Appointment appt) {
+            LocalDate date = appt.getDate();
+            first = first == null || date.isBefore(first) ? date : first;
+            last = last == null || date.isAfter(last) ? date : last;
+            rows++;
+            if (lastID == null || idNumber(appt.getAppointmentID()) > idNumber(lastID)) {
+                lastID = appt.getAppointmentID();
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package appointment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A set of secondary indexes over appointments by doctor, patient, date and status.
+ * <p>
+ * Every bucket keeps its appointments in the order they were indexed, so filtered
+ * queries return appointments in the same order as the full appointment list, and each
+ * query costs time proportional to the number of appointments it returns. The status
+ * buckets are sorted by that order, so an appointment moved between them on a status
+ * change takes its original place rather than going to the end.
+ * <p>
+ * The doctor, patient and date of an appointment are fixed once it is indexed. Its
+ * status may change, in which case {@link #changeStatus(Appointment, ApptStatus)} moves
+ * it between the status buckets.
+ */
+public class AppointmentIndex {
+
+    /** The position of each indexed appointment in the order they were indexed. */
+    private final Map<Appointment, Long> positions = new IdentityHashMap<>();
+
+    /** Orders appointments by the position they were indexed at. */
+    private final Comparator<Appointment> indexOrder = Comparator.comparingLong(positions::get);
+
+    /** The position given to the next appointment indexed. */
+    private long nextPosition;
+
+    /** Appointments grouped by doctor ID. */
+    private final Map<String, Set<Appointment>> byDoctor = new HashMap<>();
+
+    /** Appointments grouped by doctor ID, then by status. */
+    private final Map<String, Map<ApptStatus, Set<Appointment>>> byDoctorStatus = new HashMap<>();
+
+    /** Appointments grouped by doctor ID, then by date. */
+    private final Map<String, NavigableMap<LocalDate, Set<Appointment>>> byDoctorDate = new HashMap<>();
+
+    /** Appointments grouped by patient ID. */
+    private final Map<String, Set<Appointment>> byPatient = new HashMap<>();
+
+    /** Appointments grouped by patient ID, then by status. */
+    private final Map<String, Map<ApptStatus, Set<Appointment>>> byPatientStatus = new HashMap<>();
+
+    /** Appointments grouped by date, in date order. */
+    private final NavigableMap<LocalDate, Set<Appointment>> byDate = new TreeMap<>();
+
+    /** Appointments grouped by status. */
+    private final Map<ApptStatus, Set<Appointment>> byStatus = new EnumMap<>(ApptStatus.class);
+
+    /**
+     * Adds an appointment to every index.
+     *
+     * @param appt The {@link Appointment} to index.
+     */
+    public void add(Appointment appt) {
+        String doctorID = doctorID(appt);
+        String patientID = patientID(appt);
+        positions.putIfAbsent(appt, nextPosition++);
+
+        bucket(byDoctor, doctorID).add(appt);
+        statusBucket(byDoctorStatus, doctorID, appt.getStatus()).add(appt);
+        bucket(byDoctorDate.computeIfAbsent(doctorID, id -> new TreeMap<>()), appt.getDate()).add(appt);
+        bucket(byPatient, patientID).add(appt);
+        statusBucket(byPatientStatus, patientID, appt.getStatus()).add(appt);
+        bucket(byDate, appt.getDate()).add(appt);
+        sortedBucket(byStatus, appt.getStatus()).add(appt);
+    }
+
+    /**
+     * Removes an appointment from every index. Does nothing if the appointment has not
+     * been indexed.
+     *
+     * @param appt The {@link Appointment} to remove.
+     */
+    public void remove(Appointment appt) {
+        if (!positions.containsKey(appt)) {
+            return; // never indexed
+        }
+        String doctorID = doctorID(appt);
+        String patientID = patientID(appt);
+
+        removeFrom(byDoctor, doctorID, appt);
+        removeFrom(byDoctorStatus.get(doctorID), appt.getStatus(), appt);
+        removeFrom(byDoctorDate.get(doctorID), appt.getDate(), appt);
+        removeFrom(byPatient, patientID, appt);
+        removeFrom(byPatientStatus.get(patientID), appt.getStatus(), appt);
+        removeFrom(byDate, appt.getDate(), appt);
+        removeFrom(byStatus, appt.getStatus(), appt);
+        positions.remove(appt);
+    }
+
+    /**
+     * Moves an appointment from the buckets of its previous status to those of its
+     * current status. Does nothing if the appointment has not been indexed.
+     *
+     * @param appt     The {@link Appointment} whose status has changed.
+     * @param previous The status of the appointment before the change.
+     */
+    public void changeStatus(Appointment appt, ApptStatus previous) {
+        if (previous == appt.getStatus() || !positions.containsKey(appt)
+                || !removeFrom(byStatus, previous, appt)) {
+            return;
+        }
+        String doctorID = doctorID(appt);
+        String patientID = patientID(appt);
+
+        removeFrom(byDoctorStatus.get(doctorID), previous, appt);
+        removeFrom(byPatientStatus.get(patientID), previous, appt);
+
+        statusBucket(byDoctorStatus, doctorID, appt.getStatus()).add(appt);
+        statusBucket(byPatientStatus, patientID, appt.getStatus()).add(appt);
+        sortedBucket(byStatus, appt.getStatus()).add(appt);
+    }
+
+    /** Removes every appointment from the indexes. */
+    public void clear() {
+        byDoctor.clear();
+        byDoctorStatus.clear();
+        byDoctorDate.clear();
+        byPatient.clear();
+        byPatientStatus.clear();
+        byDate.clear();
+        byStatus.clear();
+        positions.clear();
+    }
+
+    /**
+     * Returns the appointments of a doctor.
+     *
+     * @param doctorID The hospital ID of the doctor.
+     * @return A new list of the doctor's appointments.
+     */
+    public List<Appointment> getByDoctor(String doctorID) {
+        return copy(byDoctor.get(doctorID));
+    }
+
+    /**
+     * Returns the appointments of a doctor with the given status.
+     *
+     * @param doctorID The hospital ID of the doctor.
+     * @param status   The status of the appointments.
+     * @return A new list of the matching appointments.
+     */
+    public List<Appointment> getByDoctor(String doctorID, ApptStatus status) {
+        return copy(byDoctorStatus.getOrDefault(doctorID, Collections.emptyMap()).get(status));
+    }
+
+    /**
+     * Returns the appointments of a doctor on the given date.
+     *
+     * @param doctorID The hospital ID of the doctor.
+     * @param date     The date of the appointments.
+     * @return A new list of the matching appointments.
+     */
+    public List<Appointment> getByDoctorAndDate(String doctorID, LocalDate date) {
+        NavigableMap<LocalDate, Set<Appointment>> dates = byDoctorDate.get(doctorID);
+        return copy(dates == null ? null : dates.get(date));
+    }
+
+    /**
+     * Returns the appointments of a patient.
+     *
+     * @param patientID The hospital ID of the patient.
+     * @return A new list of the patient's appointments.
+     */
+    public List<Appointment> getByPatient(String patientID) {
+        return copy(byPatient.get(patientID));
+    }
+
+    /**
+     * Returns the appointments of a patient with the given status.
+     *
+     * @param patientID The hospital ID of the patient.
+     * @param status    The status of the appointments.
+     * @return A new list of the matching appointments.
+     */
+    public List<Appointment> getByPatient(String patientID, ApptStatus status) {
+        return copy(byPatientStatus.getOrDefault(patientID, Collections.emptyMap()).get(status));
+    }
+
+    /**
+     * Returns the appointments on the given date.
+     *
+     * @param date The date of the appointments.
+     * @return A new list of the matching appointments.
+     */
+    public List<Appointment> getByDate(LocalDate date) {
+        return copy(byDate.get(date));
+    }
+
+    /**
+     * Returns the appointments with the given status.
+     *
+     * @param status The status of the appointments.
+     * @return A new list of the matching appointments.
+     */
+    public List<Appointment> getByStatus(ApptStatus status) {
+        return copy(byStatus.get(status));
+    }
+
+    /**
+     * Returns the hospital ID of the doctor of an appointment.
+     *
+     * @param appt The appointment.
+     * @return The doctor's hospital ID, or {@code null} if there is no doctor.
+     */
+    private static String doctorID(Appointment appt) {
+        return appt.getDoctor() != null ? appt.getDoctor().getHospitalID() : null;
+    }
+
+    /**
+     * Returns the hospital ID of the patient of an appointment.
+     *
+     * @param appt The appointment.
+     * @return The patient's hospital ID, or {@code null} if there is no patient.
+     */
+    private static String patientID(Appointment appt) {
+        return appt.getPatient() != null ? appt.getPatient().getHospitalID() : null;
+    }
+
+    /**
+     * Returns the bucket of a key, creating it if it does not exist.
+     *
+     * @param <K>   The type of the key.
+     * @param index The index holding the bucket.
+     * @param key   The key of the bucket.
+     * @return The bucket of the key.
+     */
+    private static <K> Set<Appointment> bucket(Map<K, Set<Appointment>> index, K key) {
+        return index.computeIfAbsent(key, k -> new LinkedHashSet<>());
+    }
+
+    /**
+     * Returns the bucket of a key, creating it sorted in the order the appointments were
+     * indexed if it does not exist.
+     *
+     * @param <K>   The type of the key.
+     * @param index The index holding the bucket.
+     * @param key   The key of the bucket.
+     * @return The bucket of the key.
+     */
+    private <K> Set<Appointment> sortedBucket(Map<K, Set<Appointment>> index, K key) {
+        return index.computeIfAbsent(key, k -> new TreeSet<>(indexOrder));
+    }
+
+    /**
+     * Returns the status bucket of an ID, creating it if it does not exist.
+     *
+     * @param index  The index holding the bucket.
+     * @param id     The doctor or patient ID.
+     * @param status The status of the bucket.
+     * @return The bucket of the ID and status.
+     */
+    private Set<Appointment> statusBucket(Map<String, Map<ApptStatus, Set<Appointment>>> index,
+            String id, ApptStatus status) {
+        return sortedBucket(index.computeIfAbsent(id, k -> new EnumMap<>(ApptStatus.class)), status);
+    }
+
+    /**
+     * Removes an appointment from the bucket of a key, dropping the bucket once it is empty.
+     *
+     * @param <K>   The type of the key.
+     * @param index The index holding the bucket, may be {@code null}.
+     * @param key   The key of the bucket.
+     * @param appt  The appointment to remove.
+     * @return {@code true} if the appointment was in the bucket.
+     */
+    private static <K> boolean removeFrom(Map<K, Set<Appointment>> index, K key, Appointment appt) {
+        if (index == null) {
+            return false;
+        }
+        Set<Appointment> bucket = index.get(key);
+        if (bucket == null || !bucket.remove(appt)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            index.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Copies a bucket into a new list, so callers cannot modify the index.
+     *
+     * @param bucket The bucket to copy, may be {@code null}.
+     * @return A new list holding the bucket's appointments.
+     */
+    private static List<Appointment> copy(Collection<Appointment> bucket) {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+}
@@ -11,6 +11,7 @@ import accounts.DoctorsAcc;
 import accounts.PatientsAcc;
 import interfaces.ScheduleInterface;
 import main.SystemInitialisation;
+import schedule.ScheduleManager;
 
 /**
  * This class is responsible for managing appointments.
@@ -25,12 +26,27 @@ import main.SystemInitialisation;
 public class AppointmentManager {
     /** The list of appointments managed by the AppointmentManager. */
     private static List<Appointment> appointments = new ArrayList<>();
+    /** An index of every appointment by appointment ID, kept in sync with {@link #appointments}. */
+    private static Map<String, Appointment> appointmentsById = new HashMap<>();
+    /** Secondary indexes by doctor, patient, date and status, kept in sync with {@link #appointments}. */
+    private static AppointmentIndex appointmentIndex = new AppointmentIndex();
+    /**
+     * The closed appointments, kept on disk and read only by the past appointment
+     * queries of the outcome views. The list and indexes above hold the open
+     * appointments, and those closed since the system started until they are moved
+     * here when it is saved.
+     */
+    private static AppointmentColdStore coldStore;
     /** The interface used for interacting with the schedule. */
     private static ScheduleInterface scheduleInterface = new ScheduleUI();
     /** The path to the original appointments CSV file. */
     private static String originalPath;
     /** The path to the updated appointments CSV file. */
     private static String updatedPath;
+    /** The change log recording appointment changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+    /** Guards the appointment list, its indexes and its change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
 
     /**
      * Updates the file paths for loading and saving appointment data by retrieving them from 
@@ -50,6 +66,8 @@ public class AppointmentManager {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("AppointmentOriginal");
         updatedPath = SystemInitialisation.getFilePath("AppointmentUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
+        coldStore = new AppointmentColdStore(SystemInitialisation.getFilePath("AppointmentArchive"));
     }
 
     /**
@@ -57,65 +75,123 @@ public class AppointmentManager {
      * <p>
      * If it is the first run, it loads from the original file path and clears the
      * updated file.
-     * Otherwise, it loads from the updated file.
+     * Otherwise, it loads from the updated file after replaying any logged changes
+     * over it.
+     * <p>
+     * Only open appointments are kept in memory. Closed appointments found in the file
+     * are moved to the {@link AppointmentColdStore}, of which only the index is read;
+     * on the first run the cold store is emptied first.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadAppointments(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
-
-        appointments.clear();
-
-        Map<String, Integer> apptColumnMapping = new HashMap<>();
-        apptColumnMapping.put("AppointmentID", 0);
-        apptColumnMapping.put("PatientID", 1);
-        apptColumnMapping.put("DoctorID", 2);
-        apptColumnMapping.put("Date", 3);
-        apptColumnMapping.put("Time", 4);
-        apptColumnMapping.put("Status", 5);
-        apptColumnMapping.put("ConsultationNotes", 6);
-        apptColumnMapping.put("PrescribedMedications", 7);
-        apptColumnMapping.put("ServiceType", 8);
-
-        List<Appointment> apptMapList = CSVread.readApptCSV(filePath, apptColumnMapping);
-
-        for (Appointment appt : apptMapList) {
-            if (appt instanceof Appointment) {
-                appointments.add(appt);
+        List<Appointment> closed = lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
+
+            appointments.clear();
+            appointmentsById.clear();
+            appointmentIndex.clear();
+
+            Map<String, Integer> apptColumnMapping = new HashMap<>();
+            apptColumnMapping.put("AppointmentID", 0);
+            apptColumnMapping.put("PatientID", 1);
+            apptColumnMapping.put("DoctorID", 2);
+            apptColumnMapping.put("Date", 3);
+            apptColumnMapping.put("Time", 4);
+            apptColumnMapping.put("Status", 5);
+            apptColumnMapping.put("ConsultationNotes", 6);
+            apptColumnMapping.put("PrescribedMedications", 7);
+            apptColumnMapping.put("ServiceType", 8);
+
+            // a warm start reads the binary snapshot when it is current
+            List<Appointment> apptMapList = isFirstRun ? null : BinarySnapshot.readAppointments(filePath);
+            if (apptMapList == null) {
+                apptMapList = CSVread.readApptCSV(filePath, apptColumnMapping);
             }
+
+            List<Appointment> closedAppts = new ArrayList<>();
+            for (Appointment appt : apptMapList) {
+                if (AppointmentArchive.isClosed(appt.getStatus())) {
+                    closedAppts.add(appt); // closed appointments no longer change
+                } else if (appt instanceof Appointment) {
+                    appointments.add(appt);
+                    appointmentsById.put(appt.getAppointmentID(), appt);
+                    appointmentIndex.add(appt);
+                }
+            }
+            return closedAppts;
+        });
+
+        // the cold store is used outside the lock, see AppointmentColdStore
+        if (isFirstRun) {
+            coldStore.reset();
+        } else {
+            coldStore.open();
+        }
+        coldStore.append(closed);
+        if (!isFirstRun && !closed.isEmpty()) {
+            // the first run writes only the open appointments to the updated file
+            deleteFromUpdatedFile(closed);
         }
 
-        if (appointments.isEmpty()) {
+        // continue ID generation after the highest loaded ID
+        lock.read(() -> IDGenerator.seed("AP", appointments, Appointment::getAppointmentID));
+        IDGenerator.seed("AP", coldStore.getLastIDs(), id -> id);
+
+        int open = lock.read(() -> appointments.size());
+        if (open == 0 && coldStore.size() == 0) {
             System.out.println("No appointments were loaded.");
         } else {
-            System.out.println("Appointments successfully loaded: " + appointments.size());
+            System.out.println("Appointments successfully loaded: " + open + " open, " + coldStore.size()
+                    + " closed on disk");
         }
     }
 
+    /**
+     * Records in the change log that appointments moved to the cold store are no longer
+     * in the updated file.
+     * 
+     * @param moved The appointments moved to the cold store.
+     */
+    private static void deleteFromUpdatedFile(List<Appointment> moved) {
+        List<String> ids = new ArrayList<>();
+        for (Appointment appt : moved) {
+            ids.add(appt.getAppointmentID());
+        }
+        lock.write(() -> changeLog.deleteAll(ids));
+    }
+
+    /**
+     * Returns a copy of the list of appointments held in memory: the open appointments
+     * and those closed since the system was last saved. The closed appointments of the
+     * cold store are not read.
+     * 
+     * @return A list of every {@link Appointment} in memory.
+     */
     public static List<Appointment> getAllAppointments(){
-        return appointments;
+        return lock.read(() -> new ArrayList<>(appointments));
     }
 
     /**
-     * Retrieves an appointment by its ID.
+     * Retrieves an appointment by its ID. Appointments in the cold store are closed and
+     * can no longer be changed, so they are not searched.
      * 
      * @param appointmentID The ID of the appointment to retrieve.
      * @return The {@link Appointment} object, or {@code null} if not found.
      */
     public static Appointment getAppointment(String appointmentID) {
-        for (Appointment appt : appointments) {
-            if (appt.getAppointmentID().equals(appointmentID)) {
-                return appt;
-            }
-        }
-        return null;
+        return lock.read(() -> appointmentsById.get(appointmentID));
     }
 
     /** Displays all appointments currently in the list. */
     public static void displayAppointments() {
+        List<Appointment> appointments = getAllAppointments();
         if (appointments.isEmpty()) {
             System.out.println("The appointment list is currently empty.");
         } else {
@@ -131,7 +207,46 @@ public class AppointmentManager {
      * file.
      */
     public static void duplicateAppointments() {
-        CSVwrite.writeCSVList(updatedPath, appointments);
+        lock.read(() -> changeLog.rewrite(appointments));
+    }
+
+    /**
+     * Moves the appointments closed since the system started to the cold store, then
+     * merges the change log into the updated CSV file and writes a binary snapshot of
+     * the open appointments beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        List<Appointment> closed = lock.write(() -> {
+            List<Appointment> moved = new ArrayList<>();
+            for (Appointment appt : appointments) {
+                if (AppointmentArchive.isClosed(appt.getStatus())) {
+                    moved.add(appt);
+                }
+            }
+            for (Appointment appt : moved) {
+                appointmentsById.remove(appt.getAppointmentID());
+                appointmentIndex.remove(appt);
+            }
+            appointments.removeIf(appt -> AppointmentArchive.isClosed(appt.getStatus()));
+            return moved;
+        });
+        coldStore.append(closed);
+        deleteFromUpdatedFile(closed);
+
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeAppointments(updatedPath, appointments);
+        });
+    }
+
+    /**
+     * Saves the changes made to a single appointment by appending it to the
+     * change log, instead of rewriting the whole appointments CSV file.
+     * 
+     * @param appt The {@link Appointment} that has been modified.
+     */
+    public static void updateAppointment(Appointment appt) {
+        lock.write(() -> changeLog.update(appt.getAppointmentID(), appt.toCSVFormat()));
     }
 
     /**
@@ -143,13 +258,7 @@ public class AppointmentManager {
      *         patient.
      */
     public static List<Appointment> getAppointmentsByPatient(String patientID) {
-        List<Appointment> patientAppts = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getPatient().getHospitalID().equals(patientID)) {
-                patientAppts.add(appt);
-            }
-        }
-        return patientAppts;
+        return lock.read(() -> appointmentIndex.getByPatient(patientID));
     }
 
     /**
@@ -163,13 +272,7 @@ public class AppointmentManager {
      */
 
     public static List<Appointment> getAppointmentsByPatient(String patientID, ApptStatus status) {
-        List<Appointment> patientAppts = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getPatient().getHospitalID().equals(patientID) && appt.getStatus() == status) {
-                patientAppts.add(appt);
-            }
-        }
-        return patientAppts;
+        return lock.read(() -> appointmentIndex.getByPatient(patientID, status));
     }
 
     /**
@@ -181,13 +284,7 @@ public class AppointmentManager {
      *         doctor.
      */
     public static List<Appointment> getAppointmentsByDoctor(String doctorID) {
-        List<Appointment> doctorAppts = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getDoctor().getHospitalID().equals(doctorID)) {
-                doctorAppts.add(appt);
-            }
-        }
-        return doctorAppts;
+        return lock.read(() -> appointmentIndex.getByDoctor(doctorID));
     }
 
     /**
@@ -199,13 +296,101 @@ public class AppointmentManager {
      * @return A list of {@link Appointment} objects matching the doctor and status.
      */
     public static List<Appointment> getAppointmentsByDoctor(String doctorID, ApptStatus status) {
-        List<Appointment> doctorAppts = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getDoctor().getHospitalID().equals(doctorID) && appt.getStatus() == status) {
-                doctorAppts.add(appt);
-            }
+        return lock.read(() -> appointmentIndex.getByDoctor(doctorID, status));
+    }
+
+    /**
+     * Retrieves a list of appointments on a given date.
+     * 
+     * @param date The date of the appointments to retrieve.
+     * @return A list of {@link Appointment} objects on the given date.
+     */
+    public static List<Appointment> getAppointmentsByDate(LocalDate date) {
+        return lock.read(() -> appointmentIndex.getByDate(date));
+    }
+
+    /**
+     * Retrieves a list of appointments for a given doctor on a given date.
+     * 
+     * @param doctorID The hospital ID of the doctor whose appointments are to be
+     *                 retrieved.
+     * @param date     The date of the appointments to retrieve.
+     * @return A list of {@link Appointment} objects matching the doctor and date.
+     */
+    public static List<Appointment> getAppointmentsByDoctorAndDate(String doctorID, LocalDate date) {
+        return lock.read(() -> appointmentIndex.getByDoctorAndDate(doctorID, date));
+    }
+
+    /**
+     * Retrieves a list of appointments with a given status.
+     * 
+     * @param status The status of the appointments to retrieve.
+     * @return A list of {@link Appointment} objects with the given status.
+     */
+    public static List<Appointment> getAppointmentsByStatus(ApptStatus status) {
+        return lock.read(() -> appointmentIndex.getByStatus(status));
+    }
+
+    /**
+     * Retrieves the past appointments of a patient with a given closed status,
+     * including those in the cold store, which are read if they are not in memory.
+     * Only the outcome views need the history, so the other queries leave it on disk.
+     * 
+     * @param patientID The hospital ID of the patient whose appointments are to be
+     *                  retrieved.
+     * @param status    The status of the appointments to retrieve, {@code COMPLETED}
+     *                  or {@code CANCELLED}.
+     * @return A list of {@link Appointment} objects matching the patient and
+     *         status, those in memory first.
+     */
+    public static List<Appointment> getPastAppointmentsByPatient(String patientID, ApptStatus status) {
+        return withClosed(lock.read(() -> appointmentIndex.getByPatient(patientID, status)),
+                coldStore.select(null, patientID, null, status));
+    }
+
+    /**
+     * Retrieves every past appointment with a given closed status, including those in
+     * the cold store, which are read if they are not in memory.
+     * 
+     * @param status The status of the appointments to retrieve, {@code COMPLETED} or
+     *               {@code CANCELLED}.
+     * @return A list of {@link Appointment} objects with the given status, those in
+     *         memory first.
+     */
+    public static List<Appointment> getPastAppointmentsByStatus(ApptStatus status) {
+        return withClosed(lock.read(() -> appointmentIndex.getByStatus(status)),
+                coldStore.select(null, null, null, status));
+    }
+
+    /**
+     * Appends the matching appointments of the cold store to the matching appointments
+     * of the indexes. The cold store returns nothing for a status that is not closed.
+     * 
+     * @param open   The appointments found through the indexes.
+     * @param closed The appointments found in the cold store.
+     * @return The appointments found through the indexes, followed by those in the cold store.
+     */
+    private static List<Appointment> withClosed(List<Appointment> open, List<Appointment> closed) {
+        if (!closed.isEmpty()) {
+            open.addAll(closed);
         }
-        return doctorAppts;
+        return open;
+    }
+
+    /**
+     * Sets the status of an appointment and moves it to the indexes of its new status
+     * under one write lock, so that no query or removal sees the new status while the
+     * indexes still hold the old one. Called by {@link Appointment#setStatus(ApptStatus)}.
+     * 
+     * @param appt   The {@link Appointment} whose status is changing.
+     * @param status The new status.
+     */
+    public static void setStatus(Appointment appt, ApptStatus status) {
+        lock.write(() -> {
+            ApptStatus previous = appt.getStatus();
+            appt.assignStatus(status);
+            appointmentIndex.changeStatus(appt, previous);
+        });
     }
 
     /**
@@ -214,27 +399,38 @@ public class AppointmentManager {
      * @param appt The {@link Appointment} object to be added.
      */
     public static void addAppointment(Appointment appt) {
-        appointments.add(appt);
+        lock.write(() -> {
+            appointments.add(appt);
+            appointmentsById.put(appt.getAppointmentID(), appt);
+            appointmentIndex.add(appt);
+        });
     }
 
     /**
      * Removes an appointment from the appointments list.
      * If the appointment is scheduled, the doctor's time slot is returned to their
-     * schedule.
+     * schedule. The removal and the release happen under one write lock, so a slot is
+     * only released by the session that removed its appointment.
      * 
      * @param appt The {@link Appointment} object to be removed.
      */
     public static void removeAppointment(Appointment appt) {
-        // check if the appointment was scheduled
-        if (appt.getStatus() == ApptStatus.SCHEDULED) {
-            // add the time slot back to the doctor's available time slots
-            Doctor doctor = DoctorsAcc.findDoctorById(appt.getDoctor().getHospitalID());
-            scheduleInterface.addSchedule(appt.getDate(), appt.getTime(), doctor);
-        }
-        boolean removed = appointments.remove(appt);
+        boolean removed = lock.write(() -> {
+            if (!appointments.remove(appt)) {
+                return false;
+            }
+            appointmentsById.remove(appt.getAppointmentID());
+            appointmentIndex.remove(appt);
+            changeLog.delete(appt.getAppointmentID());
+            // check if the appointment was scheduled
+            if (appt.getStatus() == ApptStatus.SCHEDULED) {
+                // add the time slot back to the doctor's available time slots
+                scheduleInterface.addSchedule(appt.getDate(), appt.getTime(), appt.getDoctor());
+            }
+            return true;
+        });
         if (removed) {
             System.out.println("Appointment removed successfully.");
-            duplicateAppointments();
         } else {
             System.out.println("appointmentManager::removeAppointment(): Appointment not found.");
         }
@@ -255,27 +451,63 @@ public class AppointmentManager {
         Patient patient = (Patient) PatientsAcc.findPatientById(patientID);
 
         Appointment appt = new Appointment(doctor, patient, date, time, appointmentID, ApptStatus.PENDING);
-        addAppointment(appt);
-        duplicateAppointments();
+        lock.write(() -> {
+            addAppointment(appt);
+            changeLog.insert(appointmentID, appt.toCSVFormat());
+        });
     }
 
     /**
-     * Schedules an appointment by updating the appointment status to scheduled.
+     * Schedules an appointment by claiming the doctor's time slot and creating a
+     * scheduled appointment for it.
+     * <p>
+     * The appointment is only created once the slot has been claimed, and a slot can
+     * be claimed by one session only, so two patients can never book the same slot.
      * 
-     * @param appointment The {@link Appointment} object to be scheduled.
+     * @param doctorID  The hospital ID of the doctor for the appointment.
+     * @param patientID The hospital ID of the patient booking the appointment.
+     * @param date      The date for the appointment.
+     * @param time      The time for the appointment.
+     * @return {@code true} if the appointment was scheduled, {@code false} if the time
+     *         slot is not available, for example because another session booked it first.
+     * @see ScheduleManager#claimTimeSlot(String, LocalDate, LocalTime)
      */
-    public static void scheduleAppointment(String doctorID, String patientID, LocalDate date, LocalTime time) {
+    public static boolean scheduleAppointment(String doctorID, String patientID, LocalDate date, LocalTime time) {
+        // remove the time slot from the doctor's available time slots
+        if (!ScheduleManager.claimTimeSlot(doctorID, date, time)) {
+            return false;
+        }
+
         String appointmentID = IDGenerator.generateID("AP", appointments, Appointment::getAppointmentID, 3);
         Doctor doctor = DoctorsAcc.findDoctorById(doctorID);
         Patient patient = (Patient) PatientsAcc.findPatientById(patientID);
 
         Appointment appt = new Appointment(doctor, patient, date, time, appointmentID, ApptStatus.SCHEDULED);
-        addAppointment(appt);
-
-        // remove the time slot from the doctor's available time slots
-        scheduleInterface.removeSchedule(date, time, doctor);
+        lock.write(() -> {
+            addAppointment(appt);
+            changeLog.insert(appointmentID, appt.toCSVFormat());
+        });
+        return true;
+    }
 
-        duplicateAppointments();
+    /**
+     * Accepts an appointment request by claiming the doctor's time slot and updating
+     * the appointment status to scheduled.
+     * 
+     * @param appointment The pending {@link Appointment} to accept.
+     * @return {@code true} if the appointment was scheduled, {@code false} if the time
+     *         slot is no longer available.
+     * @see ScheduleManager#claimTimeSlot(String, LocalDate, LocalTime)
+     */
+    public static boolean acceptAppointment(Appointment appointment) {
+        if (!ScheduleManager.claimTimeSlot(appointment.getDoctor().getHospitalID(), appointment.getDate(),
+                appointment.getTime())) {
+            return false;
+        }
+        appointment.acceptAppointment();
+        // save to file
+        updateAppointment(appointment);
+        return true;
     }
 
     /**
@@ -286,17 +518,50 @@ public class AppointmentManager {
      * @param newTime     The new time for the appointment.
      */
     public static void cancelAppointment(Appointment appointment) {
-        if (appointment.getStatus() == ApptStatus.SCHEDULED) {
-            // add the time slot back to the doctor's available time slots
-            Doctor doctor = DoctorsAcc.findDoctorById(appointment.getDoctor().getHospitalID());
-            scheduleInterface.addSchedule(appointment.getDate(), appointment.getTime(), doctor);
-        }
-        appointment.cancelAppointment();
-        // save to file
-        duplicateAppointments();
+        // the status is checked and changed under one write lock, so a slot is only released once
+        lock.write(() -> {
+            boolean scheduled = appointment.getStatus() == ApptStatus.SCHEDULED;
+            appointment.cancelAppointment();
+            // save to file
+            updateAppointment(appointment);
+            if (scheduled) {
+                // add the time slot back to the doctor's available time slots
+                scheduleInterface.addSchedule(appointment.getDate(), appointment.getTime(), appointment.getDoctor());
+            }
+        });
         System.out.println("Appointment Cancelled Successfully.");
     }
 
+    /**
+     * Cancels the appointments of several doctors on several days at once, such as
+     * when leave requests are approved together. Only the given doctors' appointments
+     * on those days are found, through the doctor and date index, and the cancelled
+     * appointments are saved with a single write to the change log. Appointments
+     * already cancelled or completed are left as they are.
+     * 
+     * @param daysByDoctor The days to cancel for each doctor ID.
+     * @return The appointments cancelled.
+     */
+    public static List<Appointment> cancelAppointments(Map<String, Set<LocalDate>> daysByDoctor) {
+        return lock.write(() -> {
+            List<Appointment> cancelled = new ArrayList<>();
+            Map<String, String> rows = new LinkedHashMap<>();
+            for (Map.Entry<String, Set<LocalDate>> entry : daysByDoctor.entrySet()) {
+                for (LocalDate date : entry.getValue()) {
+                    for (Appointment appt : appointmentIndex.getByDoctorAndDate(entry.getKey(), date)) {
+                        if (appt.getStatus() != ApptStatus.CANCELLED && appt.getStatus() != ApptStatus.COMPLETED) {
+                            appt.cancelAppointment();
+                            cancelled.add(appt);
+                            rows.put(appt.getAppointmentID(), appt.toCSVFormat());
+                        }
+                    }
+                }
+            }
+            changeLog.updateAll(rows);
+            return cancelled;
+        });
+    }
+
     /**
      * Marks an appointment as completed and records the appointment outcome.
      * 
@@ -305,7 +570,7 @@ public class AppointmentManager {
     public static void completeAppointment(Appointment appointment) {
         appointment.completeAppointment();
         // save to file
-        duplicateAppointments();
+        updateAppointment(appointment);
         System.out.println("Appointment Outcome Recorded Successfully.");
     }
 }
@@ -0,0 +1,19 @@
+package interfaces;
+
+/**
+ * The {@code CSVRowHandler} receives each row found by a {@link utility.CSVRowScanner}:
+ * where the row lies in the file and the fields the scanner was asked to decode.
+ */
+@FunctionalInterface
+public interface CSVRowHandler {
+
+    /**
+     * Handles one row of the file.
+     *
+     * @param offset The byte offset of the start of the row in the file.
+     * @param length The number of bytes in the row, without its line break.
+     * @param fields The decoded and trimmed fields, in the order of the columns the
+     *               scanner was asked for.
+     */
+    public void row(long offset, int length, String[] fields);
+}
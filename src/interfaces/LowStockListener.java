@@ -0,0 +1,24 @@
+package interfaces;
+
+import inventory.InventoryItem;
+
+/**
+ * The {@code LowStockListener} is told when the stock of a medicine falls to or below
+ * its low-stock alert level, for example while a prescription is being dispensed.
+ * <p>
+ * Listeners are registered with
+ * {@link inventory.InventoryManager#addLowStockListener(LowStockListener)}, such as the
+ * replenish workflow reminding the pharmacist to request more stock.
+ */
+@FunctionalInterface
+public interface LowStockListener {
+
+    /**
+     * Called when an item's stock falls to or below its low-stock alert level, after the
+     * change has been saved. It is called again for the same item only once the item has
+     * been restocked above its alert level and falls again.
+     * 
+     * @param item The {@link InventoryItem} that is low on stock.
+     */
+    public void onLowStock(InventoryItem item);
+}
@@ -0,0 +1,23 @@
+package interfaces;
+
+/**
+ * The {@code Weigher} gives the weight of an entry of a {@link utility.BoundedCache},
+ * an estimate of the memory the entry holds, so that the cache can bound the total
+ * weight of its entries rather than only their number.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Returns the weight of an entry. It is called once, when the entry is added, so
+     * the value must not change its weight while it is in the cache.
+     * 
+     * @param key   The key of the entry.
+     * @param value The value of the entry.
+     * @return The weight of the entry, zero or more.
+     */
+    public long weigh(K key, V value);
+}
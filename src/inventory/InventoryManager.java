@@ -2,9 +2,16 @@ package inventory;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import interfaces.LowStockListener;
 
 import main.SystemInitialisation;
 import utility.*;
@@ -17,8 +24,22 @@ import utility.*;
  * updating stock levels, and managing low-stock alerts.
  */
 public class InventoryManager {
-    /** A list to store all {@link Inventory} objects. */
-    private static List<InventoryItem> inventory = new ArrayList<>();
+    /**
+     * The {@link InventoryItem} of each {@link Medicine}, holding its stock and its
+     * low-stock threshold. Being keyed by the enum, every lookup is a single array
+     * access, and the items are kept in the order the medicines are declared.
+     */
+    private static Map<Medicine, InventoryItem> inventory = new EnumMap<>(Medicine.class);
+
+    /**
+     * The medicines whose stock is at or below their low-stock threshold. It is kept up
+     * to date by every change to a quantity or threshold, so the low-stock items are
+     * found without checking the whole inventory.
+     */
+    private static Set<Medicine> lowStock = EnumSet.noneOf(Medicine.class);
+
+    /** The listeners told when a medicine's stock falls to its low-stock threshold. */
+    private static final List<LowStockListener> lowStockListeners = new CopyOnWriteArrayList<>();
 
     /** The file path to the original inventory CSV file. */
     private static String originalPath;
@@ -26,6 +47,12 @@ public class InventoryManager {
     /** The file path to the updated inventory CSV file. */
     private static String updatedPath;
 
+    /** The change log recording stock changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+
+    /** Guards the inventory and its change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
+
     /**
      * Updates the file paths for loading and saving inventory data by retrieving them from 
      * the {@link SystemInitialisation} class. 
@@ -44,6 +71,7 @@ public class InventoryManager {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("InventoryOriginal");
         updatedPath = SystemInitialisation.getFilePath("InventoryUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
@@ -51,37 +79,49 @@ public class InventoryManager {
      * <p>
      * If it's the first run, the data is loaded from the original file and the
      * updated file is cleared.
-     * Otherwise, data is loaded from the updated file.
+     * Otherwise, data is loaded from the updated file after replaying any logged
+     * changes over it.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadInventory(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
         
-        inventory.clear();
+            inventory.clear();
+            lowStock.clear();
 
-        Map<String, Integer> inventoryColumnMapping = new HashMap<>();
-        inventoryColumnMapping.put("Medicine Name", 0);
-        inventoryColumnMapping.put("Initial Stock", 1);
-        inventoryColumnMapping.put("Low Stock Level Alert", 2);
+            Map<String, Integer> inventoryColumnMapping = new HashMap<>();
+            inventoryColumnMapping.put("Medicine Name", 0);
+            inventoryColumnMapping.put("Initial Stock", 1);
+            inventoryColumnMapping.put("Low Stock Level Alert", 2);
 
-        List<InventoryItem> inventoryMapList = CSVread.readItemCSV(filePath, inventoryColumnMapping);
+            // a warm start reads the binary snapshot when it is current
+            List<InventoryItem> inventoryMapList = isFirstRun ? null : BinarySnapshot.readInventory(filePath);
+            if (inventoryMapList == null) {
+                inventoryMapList = CSVread.readItemCSV(filePath, inventoryColumnMapping);
+            }
 
-        // add the data from CSV into inventoryList
-        for (InventoryItem item : inventoryMapList) {
-            if (item instanceof InventoryItem) {
-                inventory.add(item);
+            // add the data from CSV into inventoryList
+            for (InventoryItem item : inventoryMapList) {
+                if (item instanceof InventoryItem) {
+                    inventory.put(item.getItemName(), item);
+                    checkLowStock(item); // items already low on loading raise no alert
+                }
             }
-        }
 
-        if (inventory.isEmpty()) {
-            System.out.println("No items were loaded.");
-        } else {
-            System.out.println("Inventory successfully loaded: " + inventory.size());
-        }
+            if (inventory.isEmpty()) {
+                System.out.println("No items were loaded.");
+            } else {
+                System.out.println("Inventory successfully loaded: " + inventory.size());
+            }
+        });
     }
 
     /**
@@ -92,12 +132,7 @@ public class InventoryManager {
      */
     public static InventoryItem findItemByName(String itemName) {
         try {
-            Medicine medicine = Medicine.valueOf(itemName);
-            for (InventoryItem item : inventory) {
-                if (item.getItemName() == medicine) {
-                    return item;
-                }
-            }
+            return findItem(Medicine.valueOf(itemName));
         } catch (IllegalArgumentException e) {
             System.out.println("Invalid medicine name: " + itemName);
         }
@@ -105,16 +140,27 @@ public class InventoryManager {
     }
 
     /**
-     * Returns the list of all inventory items.
+     * Finds the inventory item of a medicine.
+     * 
+     * @param medicine The {@link Medicine} to find.
+     * @return The {@link InventoryItem} object if found; {@code null} otherwise.
+     */
+    public static InventoryItem findItem(Medicine medicine) {
+        return lock.read(() -> inventory.get(medicine));
+    }
+
+    /**
+     * Returns a copy of the list of all inventory items.
      * 
      * @return A {@code List} of {@link InventoryItem} objects.
      */
     public static List<InventoryItem> getInventory() {
-        return inventory;
+        return lock.read(() -> new ArrayList<>(inventory.values()));
     }
 
     /** Displays all inventory items. */
     public static void displayInventory() {
+        List<InventoryItem> inventory = getInventory();
         if (inventory.isEmpty()) {
             System.out.println("The inventory is currently empty.");
         } else {
@@ -125,24 +171,123 @@ public class InventoryManager {
         }
     }
 
+    /**
+     * Checks whether a medicine's stock is at or below its low-stock threshold.
+     * 
+     * @param medicine The {@link Medicine} to check.
+     * @return {@code true} if the medicine is low on stock, {@code false} otherwise
+     *         or if it is not in the inventory.
+     */
+    public static boolean isLowStock(Medicine medicine) {
+        return lock.read(() -> lowStock.contains(medicine));
+    }
+
+    /**
+     * Returns the items whose stock is at or below their low-stock threshold.
+     * 
+     * @return A {@code List} of the low-stock {@link InventoryItem} objects.
+     */
+    public static List<InventoryItem> getLowStockItems() {
+        return lock.read(() -> {
+            List<InventoryItem> items = new ArrayList<>();
+            for (Medicine medicine : lowStock) {
+                items.add(inventory.get(medicine));
+            }
+            return items;
+        });
+    }
+
     /** Displays items with stock levels below the low-stock threshold. */
     public static void displayLowItem() {
-        boolean lowStockFound = false;
         System.out.println("\nChecking for low-stock items...");
-        for (InventoryItem inventoryItem : inventory) {
-            if (inventoryItem.getQuantity() <= inventoryItem.getMinimumQuantity()) {
-                System.out.println(inventoryItem.getItemInfo());
-                lowStockFound = true;
-            }
+        List<InventoryItem> lowStockItems = getLowStockItems();
+        for (InventoryItem item : lowStockItems) {
+            System.out.println(item.getItemInfo());
         }
-        if (!lowStockFound) {
+        if (lowStockItems.isEmpty()) {
             System.out.println("All items are sufficiently stocked.");
         }
     }
 
+    // Methods for low-stock alerts
+
+    /**
+     * Registers a listener to be told whenever a medicine's stock falls to or below
+     * its low-stock threshold.
+     * 
+     * @param listener The {@link LowStockListener} to register.
+     */
+    public static void addLowStockListener(LowStockListener listener) {
+        lowStockListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a low-stock listener.
+     * 
+     * @param listener The {@link LowStockListener} to unregister.
+     */
+    public static void removeLowStockListener(LowStockListener listener) {
+        lowStockListeners.remove(listener);
+    }
+
+    /**
+     * Updates the low-stock set after an item's quantity or threshold has changed. The
+     * caller must hold the write lock.
+     * 
+     * @param item The {@link InventoryItem} that has changed.
+     * @return {@code true} if the item has just fallen to or below its threshold,
+     *         {@code false} if it was already low or is not low.
+     */
+    private static boolean checkLowStock(InventoryItem item) {
+        if (item.getQuantity() <= item.getMinimumQuantity()) {
+            return lowStock.add(item.getItemName());
+        }
+        lowStock.remove(item.getItemName());
+        return false;
+    }
+
+    /**
+     * Tells the listeners about items that have fallen low on stock. It is called after
+     * the write lock is released, so a listener may read the inventory.
+     * 
+     * @param items The {@link InventoryItem} objects that have fallen low on stock.
+     */
+    private static void notifyLowStock(List<InventoryItem> items) {
+        for (InventoryItem item : items) {
+            for (LowStockListener listener : lowStockListeners) {
+                try {
+                    listener.onLowStock(item);
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // a failing listener must not undo the change
+                }
+            }
+        }
+    }
+
     /** Duplicates the current inventory list to the updated CSV file. */
     public static void duplicateInventory() {
-        CSVwrite.writeCSVList(updatedPath, inventory);
+        lock.read(() -> changeLog.rewrite(new ArrayList<>(inventory.values())));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the inventory beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeInventory(updatedPath, new ArrayList<>(inventory.values()));
+        });
+    }
+
+    /**
+     * Saves the changes made to a single inventory item by appending it to the
+     * change log, instead of rewriting the whole inventory CSV file.
+     * 
+     * @param item The {@link InventoryItem} that has been modified.
+     */
+    public static void updateItem(InventoryItem item) {
+        lock.write(() -> changeLog.update(item.getItemName().name(), item.toCSVRow()));
     }
 
     // Methods for modifying item quantities
@@ -155,8 +300,7 @@ public class InventoryManager {
      */
     public static void addItemStock(Scanner sc, Medicine medicineName) {
         try {
-            // pass the name as a string
-            InventoryItem itemName = findItemByName(medicineName.name()); // returns itemName
+            InventoryItem itemName = findItem(medicineName); // returns itemName
             if (itemName != null) {
                 int currentQuantity = itemName.getQuantity();
                 System.out.println("\nThe current quantity of " + itemName.getItemName() + " is: " + currentQuantity);
@@ -170,9 +314,8 @@ public class InventoryManager {
                     return;
                 }
 
-                itemName.setQuantity(amount + currentQuantity); // set new quantity
+                restockItem(itemName, amount); // set new quantity
                 System.out.println("The new quantity of " + itemName.getItemName() + " is: " + itemName.getQuantity());
-                duplicateInventory(); // update CSV file
             } else {
                 System.out.println(medicineName + " does not exist in the inventory.");
             }
@@ -181,6 +324,22 @@ public class InventoryManager {
         }
     }
 
+    /**
+     * Adds stock to an inventory item programmatically. The amount is added to the
+     * quantity at the time of the change, so stock added by several sessions at once
+     * is never lost.
+     * 
+     * @param item   The {@link InventoryItem} to add stock to.
+     * @param amount The quantity to add.
+     */
+    public static void restockItem(InventoryItem item, int amount) {
+        lock.write(() -> {
+            item.setQuantity(item.getQuantity() + amount);
+            updateItem(item); // update CSV file
+            checkLowStock(item);
+        });
+    }
+
     /**
      * Deducts stock from a specified inventory item.
      * 
@@ -188,9 +347,89 @@ public class InventoryManager {
      * @param medicineName The {@link Medicine} to deduct stock from.
      */
     public static void deductItemStock(InventoryItem itemName, int quanity) {
-        itemName.setQuantity(quanity);
+        boolean fellLow = lock.write(() -> {
+            itemName.setQuantity(quanity);
+            updateItem(itemName); // update CSV file
+            return checkLowStock(itemName);
+        });
         System.out.println("The new quantity of " + itemName.getItemName() + " is: " + itemName.getQuantity());
-        duplicateInventory(); // update CSV file
+        if (fellLow) {
+            notifyLowStock(List.of(itemName));
+        }
+    }
+
+    /**
+     * Deducts the stock for several prescriptions as one transaction.
+     * <p>
+     * Each prescription is checked against the stock left by the ones before it and
+     * is deducted in full or not at all. The deductions are made under one hold of the
+     * write lock and recorded with a single write to the change log, however many
+     * prescriptions and medicines there are. Listeners are told of any medicine that
+     * falls low on stock once the deductions are saved.
+     * 
+     * @param prescriptions The quantity to deduct for each medicine name, for each
+     *                      prescription.
+     * @return For each prescription, {@code null} if its stock was deducted, or the
+     *         reason it was not.
+     */
+    public static List<String> deductStock(List<Map<String, Integer>> prescriptions) {
+        List<InventoryItem> fellLow = new ArrayList<>();
+        List<String> result = lock.write(() -> {
+            List<String> problems = new ArrayList<>();
+            Map<InventoryItem, Integer> remaining = new LinkedHashMap<>();
+            for (Map<String, Integer> prescription : prescriptions) {
+                problems.add(reserve(prescription, remaining));
+            }
+
+            // apply every deduction and record the changed items at once
+            Map<String, String> rows = new LinkedHashMap<>();
+            for (Map.Entry<InventoryItem, Integer> entry : remaining.entrySet()) {
+                InventoryItem item = entry.getKey();
+                if (item.getQuantity() != entry.getValue()) {
+                    item.setQuantity(entry.getValue());
+                    rows.put(item.getItemName().name(), item.toCSVRow());
+                    if (checkLowStock(item)) {
+                        fellLow.add(item);
+                    }
+                }
+            }
+            changeLog.updateAll(rows);
+            return problems;
+        });
+        notifyLowStock(fellLow);
+        return result;
+    }
+
+    /**
+     * Checks a prescription against the remaining stock and, if every medicine has
+     * enough stock, takes the prescription out of it. The caller must hold the
+     * write lock.
+     * 
+     * @param prescription The quantity to deduct for each medicine name.
+     * @param remaining    The stock left of each item after the prescriptions reserved
+     *                     so far, updated if this prescription is reserved.
+     * @return {@code null} if the prescription was reserved, or the reason it was not.
+     */
+    private static String reserve(Map<String, Integer> prescription, Map<InventoryItem, Integer> remaining) {
+        Map<InventoryItem, Integer> left = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> line : prescription.entrySet()) {
+            InventoryItem item;
+            try {
+                item = inventory.get(Medicine.valueOf(line.getKey()));
+            } catch (IllegalArgumentException e) {
+                item = null;
+            }
+            if (item == null) {
+                return line.getKey() + " does not exist in our inventory";
+            }
+            int stock = left.containsKey(item) ? left.get(item) : remaining.getOrDefault(item, item.getQuantity());
+            if (stock < line.getValue()) {
+                return "Only " + stock + " of " + line.getKey() + " is in stock, " + line.getValue() + " is needed";
+            }
+            left.put(item, stock - line.getValue());
+        }
+        remaining.putAll(left);
+        return null;
     }
 
     /**
@@ -201,9 +440,8 @@ public class InventoryManager {
      */
     public static void updateItemStock(Scanner sc, Medicine medicineName) {
         try {
-            // pass the name as a string
             String itemName = medicineName.name();
-            InventoryItem item = findItemByName(itemName); // returns itemName
+            InventoryItem item = findItem(medicineName); // returns itemName
 
             if (item != null) {
                 int currentQuantity = item.getQuantity();
@@ -242,9 +480,15 @@ public class InventoryManager {
 
         InventoryItem item = findItemByName(itemName); // returns itemName
         if (item != null) {
-            item.setQuantity(quantity);
+            boolean fellLow = lock.write(() -> {
+                item.setQuantity(quantity);
+                updateItem(item); // update CSV file
+                return checkLowStock(item);
+            });
             System.out.println("The new quantity of " + item.getItemName() + " is: " + item.getQuantity());
-            duplicateInventory(); // update CSV file
+            if (fellLow) {
+                notifyLowStock(List.of(item));
+            }
         } else {
             System.out.println("The item does not exist in the inventory.");
         }
@@ -258,8 +502,7 @@ public class InventoryManager {
      */
     public static void updateItemLowLevelAlert(Scanner sc, Medicine medicineName) {
         try {
-            // pass the name as a string
-            InventoryItem itemName = findItemByName(medicineName.name()); // returns itemName
+            InventoryItem itemName = findItem(medicineName); // returns itemName
             if (itemName != null) {
                 int currentLevel = itemName.getMinimumQuantity();
                 System.out
@@ -269,10 +512,16 @@ public class InventoryManager {
                 int amount = sc.nextInt();
                 sc.nextLine();// consume
 
-                itemName.setMinimumQuantity(amount);
+                boolean fellLow = lock.write(() -> {
+                    itemName.setMinimumQuantity(amount);
+                    updateItem(itemName);
+                    return checkLowStock(itemName);
+                });
                 System.out.println("The new low-level-alert for " + itemName.getItemName() + " is: "
                         + itemName.getMinimumQuantity());
-                duplicateInventory();
+                if (fellLow) {
+                    notifyLowStock(List.of(itemName));
+                }
             } else {
                 System.out.println("The item does not exist in the inventory.");
             }
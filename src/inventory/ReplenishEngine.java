@@ -0,0 +1,197 @@
+package inventory;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import utility.StoreLock;
+
+/**
+ * Submits replenish requests automatically, ahead of each medicine running out.
+ * <p>
+ * Every time prescriptions are dispensed, the quantity of each medicine is added to its
+ * daily total, and each finished day is folded into an exponentially weighted moving
+ * average of the quantity dispensed per day. The average is updated incrementally, so
+ * the dispensing history is never read again. From the average, the engine forecasts
+ * the stock left once a request made today would arrive; if that falls to the
+ * medicine's low-stock alert level, a request is submitted for enough to last the lead
+ * time and a further cover period. No request is submitted while one for the medicine
+ * is already pending.
+ * <p>
+ * The lead time and the cover period, in days, can be set with the
+ * {@code hms.replenish.leadDays} and {@code hms.replenish.coverDays} system properties.
+ */
+public class ReplenishEngine {
+
+    /** The weight of the latest day in the moving average of the quantity dispensed per day. */
+    private static final double SMOOTHING = 0.3;
+
+    /** The number of days a replenish request takes to arrive. */
+    public static final int LEAD_DAYS = Integer.getInteger("hms.replenish.leadDays", 7);
+
+    /** The number of days of stock a request covers beyond its lead time. */
+    public static final int COVER_DAYS = Integer.getInteger("hms.replenish.coverDays", 14);
+
+    /** The name recorded as the requester of automatic replenish requests. */
+    public static final String REQUESTED_BY = "Auto-replenish";
+
+    /** The dispensing rate of each medicine dispensed so far. */
+    private static final Map<Medicine, DispenseRate> rates = new EnumMap<>(Medicine.class);
+
+    /** Guards the dispensing rates against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
+
+    /**
+     * Records medicines dispensed today and submits a replenish request for any of
+     * them forecast to run low before a new request could arrive.
+     *
+     * @param quantities The quantity dispensed of each medicine.
+     */
+    public static void recordDispense(Map<Medicine, Integer> quantities) {
+        recordDispense(quantities, LocalDate.now());
+    }
+
+    /**
+     * Records medicines dispensed on a given day and submits a replenish request for
+     * any of them forecast to run low before a new request could arrive.
+     *
+     * @param quantities The quantity dispensed of each medicine.
+     * @param day        The day the medicines were dispensed.
+     */
+    public static void recordDispense(Map<Medicine, Integer> quantities, LocalDate day) {
+        Map<Medicine, Double> perDay = lock.write(() -> {
+            Map<Medicine, Double> updated = new EnumMap<>(Medicine.class);
+            for (Map.Entry<Medicine, Integer> entry : quantities.entrySet()) {
+                DispenseRate rate = rates.computeIfAbsent(entry.getKey(), medicine -> new DispenseRate());
+                rate.add(day, entry.getValue());
+                updated.put(entry.getKey(), rate.perDay());
+            }
+            return updated;
+        });
+
+        List<String> submitted = new ArrayList<>();
+        for (Map.Entry<Medicine, Double> entry : perDay.entrySet()) {
+            String message = replenishIfNeeded(entry.getKey(), entry.getValue(), day);
+            if (message != null) {
+                submitted.add(message);
+            }
+        }
+        for (String message : submitted) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Returns the forecast quantity of a medicine dispensed per day.
+     *
+     * @param medicine The {@link Medicine} to forecast.
+     * @return The forecast quantity per day, or 0 if the medicine has not been dispensed.
+     */
+    public static double getDailyRate(Medicine medicine) {
+        return lock.read(() -> {
+            DispenseRate rate = rates.get(medicine);
+            return rate != null ? rate.perDay() : 0.0;
+        });
+    }
+
+    /**
+     * Forecasts the day a medicine runs out of stock at its current dispensing rate.
+     *
+     * @param medicine The {@link Medicine} to forecast.
+     * @return The day the stock runs out, or {@code null} if the medicine is not in the
+     *         inventory or has not been dispensed.
+     */
+    public static LocalDate forecastStockOut(Medicine medicine) {
+        InventoryItem item = InventoryManager.findItem(medicine);
+        double perDay = getDailyRate(medicine);
+        if (item == null || perDay <= 0) {
+            return null;
+        }
+        return LocalDate.now().plusDays((long) (item.getQuantity() / perDay));
+    }
+
+    /**
+     * Submits a replenish request for a medicine if, at its forecast rate, its stock
+     * would fall to its low-stock alert level before a request made today arrives.
+     *
+     * @param medicine The {@link Medicine} just dispensed.
+     * @param perDay   The forecast quantity dispensed per day.
+     * @param day      The day the medicine was dispensed.
+     * @return A message describing the request submitted, or {@code null} if none was.
+     */
+    private static String replenishIfNeeded(Medicine medicine, double perDay, LocalDate day) {
+        InventoryItem item = InventoryManager.findItem(medicine);
+        if (item == null || perDay <= 0) {
+            return null;
+        }
+        int stock = item.getQuantity();
+        int alertLevel = item.getMinimumQuantity();
+        if (stock - perDay * LEAD_DAYS > alertLevel) {
+            return null; // a request made later still arrives in time
+        }
+
+        int quantity = (int) Math.ceil(perDay * (LEAD_DAYS + COVER_DAYS) + alertLevel - stock);
+        ReplenishRequest request = ReplenishManager.generateReplenishIfNone(medicine.name(), quantity, REQUESTED_BY);
+        if (request == null) {
+            return null; // already pending
+        }
+        LocalDate stockOut = day.plusDays((long) (stock / perDay));
+        return "Replenish request " + request.getRequestID() + " submitted automatically for " + medicine
+                + " (" + quantity + " units). At " + String.format("%.1f", perDay)
+                + " a day, it is forecast to run out by " + stockOut + ".";
+    }
+
+    /**
+     * The exponentially weighted moving average of the quantity of one medicine
+     * dispensed per day, together with the total dispensed on the current day.
+     */
+    private static class DispenseRate {
+
+        /** The day being counted, or {@code null} before the first dispense. */
+        private LocalDate day;
+
+        /** The quantity dispensed on the day being counted. */
+        private int dayTotal;
+
+        /** The moving average over the finished days. */
+        private double average;
+
+        /** Whether at least one day has finished. */
+        private boolean hasHistory;
+
+        /**
+         * Adds a quantity dispensed on a day. Moving on to a later day folds the day
+         * being counted into the average, followed by a zero for each day in between on
+         * which nothing was dispensed.
+         *
+         * @param day      The day the quantity was dispensed.
+         * @param quantity The quantity dispensed.
+         */
+        void add(LocalDate day, int quantity) {
+            if (this.day == null) {
+                this.day = day;
+            } else if (day.isAfter(this.day)) {
+                long idleDays = ChronoUnit.DAYS.between(this.day, day) - 1;
+                average = hasHistory ? SMOOTHING * dayTotal + (1 - SMOOTHING) * average : dayTotal;
+                average *= Math.pow(1 - SMOOTHING, idleDays);
+                hasHistory = true;
+                this.day = day;
+                dayTotal = 0;
+            }
+            dayTotal += quantity;
+        }
+
+        /**
+         * Returns the forecast quantity dispensed per day, counting the current day as
+         * if it had finished. Until a day has finished, that day's total is the forecast.
+         *
+         * @return The forecast quantity per day.
+         */
+        double perDay() {
+            return hasHistory ? SMOOTHING * dayTotal + (1 - SMOOTHING) * average : dayTotal;
+        }
+    }
+}
@@ -16,12 +16,24 @@ public class ReplenishManager {
     /** A list to store all {@link ReplenishRequest} objects. */
     private static List<ReplenishRequest> replenishList = new ArrayList<>();
 
+    /** An index of every {@link ReplenishRequest} by request ID, kept in sync with {@link #replenishList}. */
+    private static Map<String, ReplenishRequest> replenishById = new HashMap<>();
+
+    /** The earliest pending {@link ReplenishRequest} of each medicine name, kept in sync with {@link #replenishList}. */
+    private static Map<String, ReplenishRequest> pendingByItem = new HashMap<>();
+
     /** The file path to the original replenish request CSV file. */
     private static String originalPath;
     
     /** The file path to the updated replenish request CSV file. */
     private static String updatedPath;
 
+    /** The change log recording request changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+
+    /** Guards the replenish list, its index and its change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
+
     /**
      * Updates the file paths for loading and saving replenish requests data by retrieving them from 
      * the {@link SystemInitialisation} class. 
@@ -40,6 +52,7 @@ public class ReplenishManager {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("ReplenishOriginal");
         updatedPath = SystemInitialisation.getFilePath("ReplenishUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
@@ -47,36 +60,56 @@ public class ReplenishManager {
      * <p>
      * If it is the first run, it loads from the original path and clears the
      * updated file.
-     * If not, it loads from the updated path.
+     * If not, it loads from the updated path after replaying any logged changes
+     * over it.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadReplenish(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
         
-        replenishList.clear();
+            replenishList.clear();
+            replenishById.clear();
+            pendingByItem.clear();
+
+            // Define column mapping for CSV reading
+            Map<String, Integer> replenishColumnMapping = new HashMap<>();
+            replenishColumnMapping.put("RequestID", 0);
+            replenishColumnMapping.put("Medicine", 1);
+            replenishColumnMapping.put("Quantity", 2);
+            replenishColumnMapping.put("RequestedBy", 3);
+            replenishColumnMapping.put("RequestDate", 4);
+            replenishColumnMapping.put("Status", 5);
+            replenishColumnMapping.put("ApprovalDate", 6);
 
-        // Define column mapping for CSV reading
-        Map<String, Integer> replenishColumnMapping = new HashMap<>();
-        replenishColumnMapping.put("RequestID", 0);
-        replenishColumnMapping.put("Medicine", 1);
-        replenishColumnMapping.put("Quantity", 2);
-        replenishColumnMapping.put("RequestedBy", 3);
-        replenishColumnMapping.put("RequestDate", 4);
-        replenishColumnMapping.put("Status", 5);
-        replenishColumnMapping.put("ApprovalDate", 6);
+            // Load requests from the binary snapshot on a warm start, otherwise from the CSV file
+            replenishList = isFirstRun ? null : BinarySnapshot.readReplenish(filePath);
+            if (replenishList == null) {
+                replenishList = CSVread.readReplenishCSV(filePath, replenishColumnMapping);
+            }
+            for (ReplenishRequest request : replenishList) {
+                replenishById.put(request.getRequestID(), request);
+                if (request.getRequestStatus() == RequestStatus.PENDING) {
+                    pendingByItem.putIfAbsent(request.getItemName(), request);
+                }
+            }
 
-        // Load requests from CSV file
-        replenishList = CSVread.readReplenishCSV(filePath, replenishColumnMapping);
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("REQ", replenishList, ReplenishRequest::getRequestID);
 
-        if (replenishList.isEmpty()) {
-            System.out.println("No items were loaded.");
-        } else {
-            System.out.println("Replenish List successfully loaded: " + replenishList.size());
-        }
+            if (replenishList.isEmpty()) {
+                System.out.println("No items were loaded.");
+            } else {
+                System.out.println("Replenish List successfully loaded: " + replenishList.size());
+            }
+        });
     }
 
     /*
@@ -88,12 +121,12 @@ public class ReplenishManager {
      */
 
     /**
-     * Returns the list of all replenish requests.
+     * Returns a copy of the list of all replenish requests.
      * 
      * @return A list of replenish requests
      */
     public static List<ReplenishRequest> getReplenishList() {
-        return replenishList;
+        return lock.read(() -> new ArrayList<>(replenishList));
     }
 
     /**
@@ -101,6 +134,7 @@ public class ReplenishManager {
      * If the list is empty, it notifies the user.
      */
     public static void displayReplenishList() {
+        List<ReplenishRequest> replenishList = getReplenishList();
         if (replenishList.isEmpty()) {
             System.out.println("There are no replenish request at the moment.");
         } else {
@@ -113,7 +147,28 @@ public class ReplenishManager {
 
     /** Duplicates the replenish list by writing it to the updated CSV file. */
     public static void duplicateReplenish() {
-        CSVwrite.writeCSVList(updatedPath, replenishList);
+        lock.read(() -> changeLog.rewrite(replenishList));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the replenish requests beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeReplenish(updatedPath, replenishList);
+        });
+    }
+
+    /**
+     * Saves the changes made to a single replenish request by appending it to the
+     * change log, instead of rewriting the whole replenish CSV file.
+     * 
+     * @param request The {@link ReplenishRequest} that has been modified
+     */
+    public static void updateReplenish(ReplenishRequest request) {
+        lock.write(() -> changeLog.update(request.getRequestID(), CSVwrite.toCSVRow(request)));
     }
 
     /**
@@ -136,12 +191,98 @@ public class ReplenishManager {
         ReplenishRequest request = new ReplenishRequest(requestID, itemName, replenishQuantity);
 
         // Add to the list and write to CSV
-        replenishList.add(request);
-        CSVwrite.writeCSV(updatedPath, request);
+        lock.write(() -> addRequest(request));
 
         System.out.println("Replenish request submitted for " + itemName + " (" + replenishQuantity + " units).");
     }
 
+    /**
+     * Submits a replenish request for an item unless one is already pending for it.
+     * The check and the submission are made under one hold of the write lock, so
+     * sessions submitting for the same item at once create a single request.
+     * 
+     * @param itemName          The name of the item to replenish
+     * @param replenishQuantity The quantity of the item to replenish
+     * @param requestedBy       The name recorded as the requester
+     * @return The new {@link ReplenishRequest}, or {@code null} if one was already pending
+     */
+    public static ReplenishRequest generateReplenishIfNone(String itemName, int replenishQuantity, String requestedBy) {
+        return lock.write(() -> {
+            if (pendingByItem.containsKey(itemName)) {
+                return null;
+            }
+            String requestID = IDGenerator.generateID("REQ", replenishList, ReplenishRequest::getRequestID, 3);
+            ReplenishRequest request = new ReplenishRequest(requestID, itemName, replenishQuantity, requestedBy,
+                    LocalDate.now(), RequestStatus.PENDING, null);
+            addRequest(request);
+            return request;
+        });
+    }
+
+    /**
+     * Adds a new request to the list and its indexes and records it in the change log.
+     * The caller must hold the write lock.
+     * 
+     * @param request The new {@link ReplenishRequest}
+     */
+    private static void addRequest(ReplenishRequest request) {
+        replenishList.add(request);
+        replenishById.put(request.getRequestID(), request);
+        pendingByItem.putIfAbsent(request.getItemName(), request);
+        changeLog.insert(request.getRequestID(), CSVwrite.toCSVRow(request));
+    }
+
+    /**
+     * Returns the pending replenish request of an item, if there is one.
+     * 
+     * @param itemName The name of the item
+     * @return The earliest pending {@link ReplenishRequest} of the item, or {@code null} if none is pending
+     */
+    public static ReplenishRequest findPendingRequest(String itemName) {
+        return lock.read(() -> pendingByItem.get(itemName));
+    }
+
+    /**
+     * Removes a request that is no longer pending from the index of pending requests,
+     * putting the item's next pending request, if any, in its place. The caller must
+     * hold the write lock.
+     * 
+     * @param request The {@link ReplenishRequest} that has been approved or rejected
+     */
+    private static void resolvePending(ReplenishRequest request) {
+        if (!pendingByItem.remove(request.getItemName(), request)) {
+            return;
+        }
+        for (ReplenishRequest other : replenishList) {
+            if (other.getItemName().equals(request.getItemName()) && other.getRequestStatus() == RequestStatus.PENDING) {
+                pendingByItem.put(other.getItemName(), other);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Alerts the user when a medicine falls low on stock, and says whether a replenish
+     * request for it is already pending. It is registered as a
+     * {@link interfaces.LowStockListener} when the system starts, so the alert is shown
+     * as soon as a change such as dispensing a prescription takes the stock to its
+     * low-stock level.
+     * 
+     * @param item The {@link InventoryItem} that is low on stock
+     */
+    public static void onLowStock(InventoryItem item) {
+        String itemName = item.getItemName().name();
+        ReplenishRequest pending = findPendingRequest(itemName);
+
+        System.out.println("Low stock alert: " + itemName + " has " + item.getQuantity()
+                + " left (alert level " + item.getMinimumQuantity() + ").");
+        if (pending != null) {
+            System.out.println("Replenish request " + pending.getRequestID() + " for " + itemName + " is pending.");
+        } else {
+            System.out.println("Please submit a replenish request for " + itemName + ".");
+        }
+    }
+
     /**
      * Finds and returns a replenish request by its request ID.
      * 
@@ -149,12 +290,7 @@ public class ReplenishManager {
      * @return The {@link ReplenishRequest} object, or {@code null} if not found
      */
     public static ReplenishRequest findReplenishRequest(String requestID) {
-        for (ReplenishRequest request : replenishList) {
-            if (request.getRequestID().equals(requestID)) {
-                return request;
-            }
-        }
-        return null;
+        return lock.read(() -> replenishById.get(requestID));
     }
 
     /**
@@ -194,17 +330,23 @@ public class ReplenishManager {
      * @param request The {@link ReplenishRequest} to approve
      */
     public static void approveReplenish(ReplenishRequest request) {
-        if (request.getRequestStatus() == RequestStatus.PENDING) {
+        // only one session may approve a pending request
+        boolean approved = lock.write(() -> {
+            if (request.getRequestStatus() != RequestStatus.PENDING) {
+                return false;
+            }
             request.setRequestStatus(RequestStatus.APPROVED);
             request.setApprovalDate(LocalDate.now()); // set approvalDate to now
+            updateReplenish(request);
+            resolvePending(request);
+            return true;
+        });
 
+        if (approved) {
             // update inventory stock level
             InventoryItem item = InventoryManager.findItemByName(request.getItemName());
-            int updateQuantity = item.getQuantity() + request.getReplenishQuantity();
-
-            // change this to use add/update method inventormyManager later
-            InventoryManager.updateItemStockHelper(request.getItemName(), updateQuantity);
-            duplicateReplenish();
+            InventoryManager.restockItem(item, request.getReplenishQuantity());
+            System.out.println("The new quantity of " + item.getItemName() + " is: " + item.getQuantity());
             System.out.println("Replenish request for " + request.getItemName() + " approved.");
         } else {
             System.out.println("You can't approve " + request.getRequestID() + ". It has already been "
@@ -221,13 +363,20 @@ public class ReplenishManager {
      * @param request The {@link ReplenishRequest} to reject
      */
     public static void rejectReplenish(ReplenishRequest request) {
-        if (request.getRequestStatus() == RequestStatus.PENDING) {
+        boolean rejected = lock.write(() -> {
+            if (request.getRequestStatus() != RequestStatus.PENDING) {
+                return false;
+            }
             request.setRequestStatus(RequestStatus.REJECTED);
-            duplicateReplenish(); // update CSV for rejection
+            updateReplenish(request); // update CSV for rejection
+            resolvePending(request);
+            return true;
+        });
+        if (rejected) {
             System.out.println("Replenish request for " + request.getItemName() + " rejected.");
         } else {
             System.out.println("You can't reject " + request.getRequestID() + ". It has already been "
                     + request.getRequestStatus());
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
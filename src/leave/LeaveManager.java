@@ -4,12 +4,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
+import utility.BinarySnapshot;
 import utility.CSVread;
-import utility.CSVwrite;
+import utility.ChangeLog;
 import utility.IDGenerator;
+import utility.StoreLock;
 import user.Doctor;
 import accounts.DoctorsAcc;
 import appointment.*;
@@ -20,12 +26,21 @@ public class LeaveManager {
     /** A list to store all {@link Leave} objects. */
     private static List<Leave> leaves = new ArrayList<>();
 
+    /** An index of every {@link Leave} by leave ID, kept in sync with {@link #leaves}. */
+    private static Map<String, Leave> leavesById = new HashMap<>();
+
     /** The file path to the original leave CSV file. */
     private static String originalPath;
 
     /** The file path to the updated leave CSV file. */
     private static String updatedPath;
 
+    /** The change log recording leave changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+
+    /** Guards the leave list, its index and its change log against concurrent sessions */
+    private static final StoreLock lock = new StoreLock();
+
     /**
      * Updates the file paths for loading and saving leave request data by retrieving them from 
      * the {@link SystemInitialisation} class. 
@@ -44,54 +59,69 @@ public class LeaveManager {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("LeaveOriginal");
         updatedPath = SystemInitialisation.getFilePath("LeaveUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
      * Loads leave requests from a CSV file.
      * <p>
      * If it is the first run, it loads from the original file path and clears the updated file.
-     * Otherwise, it loads from the updated file.
+     * Otherwise, it loads from the updated file after replaying any logged changes over it.
      * 
      * @param isFirstRun {@code true} if the application is running for the first time; 
      *                   {@code false} otherwise.
      */
     public static void loadLeaves(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
 
-        // clear the list to avoid having duplicate data
-        leaves.clear();
+            // clear the list to avoid having duplicate data
+            leaves.clear();
+            leavesById.clear();
+
+            Map<String, Integer> leaveMapping = new HashMap<>();
+            leaveMapping.put("leaveID", 0);
+            leaveMapping.put("staffID", 1);
+            leaveMapping.put("date", 2);
+            leaveMapping.put("status", 3);
+            leaveMapping.put("reason", 4);
+
+            // a warm start reads the binary snapshot when it is current
+            List<Leave> leaveMapList = isFirstRun ? null : BinarySnapshot.readLeaves(filePath);
+            if (leaveMapList == null) {
+                leaveMapList = CSVread.readLeaveCSV(filePath, leaveMapping);
+            }
 
-        Map<String, Integer> leaveMapping = new HashMap<>();
-        leaveMapping.put("leaveID", 0);
-        leaveMapping.put("staffID", 1);
-        leaveMapping.put("date", 2);
-        leaveMapping.put("status", 3);
-        leaveMapping.put("reason", 4);
+            // add the data from CSV into staffsList
+            for (Object leave : leaveMapList) {
+                if (leave instanceof Leave) {
+                    leaves.add((Leave) leave);
+                    leavesById.put(((Leave) leave).getLeaveID(), (Leave) leave);
+                }
+            }
 
-        List<Leave> leaveMapList = CSVread.readLeaveCSV(filePath, leaveMapping);
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("LR", leaves, Leave::getLeaveID);
 
-        // add the data from CSV into staffsList
-        for (Object leave : leaveMapList) {
-            if (leave instanceof Leave) {
-                leaves.add((Leave) leave);
+            if (leaves.isEmpty()) {
+                System.out.println("No leave were loaded.");
+            } else {
+                System.out.println("Leave successfully loaded: " + leaves.size());
             }
-        }
-
-        if (leaves.isEmpty()) {
-            System.out.println("No leave were loaded.");
-        } else {
-            System.out.println("Leave successfully loaded: " + leaves.size());
-        }
+        });
     }
 
     /**
-     * Retrieves all leave requests currently in the system.
+     * Retrieves a copy of all leave requests currently in the system.
      * 
      * @return A {@link List} of {@link Leave} objects.
      */
     public static List<Leave> getLeaves(){
-        return leaves;
+        return lock.read(() -> new ArrayList<>(leaves));
     }
 
     /**
@@ -100,6 +130,7 @@ public class LeaveManager {
      * If there are no leave requests, a message is displayed.
      */
     public static void displayLeaves(){
+        List<Leave> leaves = getLeaves();
         if (leaves.isEmpty()) {
             System.out.println("There are currently no leaves.");
         } else {
@@ -120,7 +151,7 @@ public class LeaveManager {
         boolean leaveFound = false;
         if(doctorFound!=null){
             //display Leave requests with corresponding doctor IDs
-            for(Leave leave : leaves){
+            for(Leave leave : getLeaves()){
                 //display all leaves that has the same doctorID
                 if(leave.getStaff().getHospitalID().equals(doctorFound.getHospitalID())){
                     System.out.println(leave.leaveInfo());
@@ -145,7 +176,7 @@ public class LeaveManager {
         boolean leaveFound = false;
 
         if(doctorFound!=null){
-            for(Leave leave : leaves){
+            for(Leave leave : getLeaves()){
                 //display all leaves that has the same doctorID && Status PENDING
                 if(leave.getStaff().getHospitalID().equals(doctorFound.getHospitalID())
                     && leave.getLeaveStatus() == LeaveStatus.PENDING){
@@ -173,7 +204,7 @@ public class LeaveManager {
         boolean leaveFound = false;
 
         if(doctorFound!=null){
-            for(Leave leave : leaves){
+            for(Leave leave : getLeaves()){
                 //display all leaves that has the same doctorID && Status APPROVED||REJECTED
                 if(leave.getStaff().getHospitalID().equals(doctorFound.getHospitalID())
                     && leave.getLeaveStatus() != LeaveStatus.PENDING){
@@ -192,7 +223,28 @@ public class LeaveManager {
 
     /** Saves the current list of leave requests to the updated CSV file. */
     public static void duplicateLeave(){
-        CSVwrite.writeCSVList(updatedPath, leaves);
+        lock.read(() -> changeLog.rewrite(leaves));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the leave requests beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeLeaves(updatedPath, leaves);
+        });
+    }
+
+    /**
+     * Saves the changes made to a single leave request by appending it to the change log,
+     * instead of rewriting the whole leave CSV file.
+     * 
+     * @param leave The {@link Leave} object that has been modified.
+     */
+    public static void updateLeaveRecord(Leave leave){
+        lock.write(() -> changeLog.update(leave.getLeaveID(), leave.toCSVFormat()));
     }
 
     /**
@@ -202,12 +254,7 @@ public class LeaveManager {
      * @return The {@link Leave} object if found, otherwise {@code null}.
      */
     public static Leave findLeaveByID(String leaveID){
-        for(Leave leave : leaves){
-            if(leave.getLeaveID().equals(leaveID)){
-                return leave;
-            }
-        }
-        return null;
+        return lock.read(() -> leavesById.get(leaveID));
     }
 
     /**
@@ -219,11 +266,14 @@ public class LeaveManager {
      */
     public static void addLeave(Leave leave){
         //generate newID for leave
-        String leaveID = IDGenerator.generateID("LR", LeaveManager.getLeaves(), Leave::getLeaveID, 3); 
+        String leaveID = IDGenerator.generateID("LR", leaves, Leave::getLeaveID, 3); 
 
         leave.setLeaveID(leaveID);
-        leaves.add(leave); //add new entry to list
-        CSVwrite.writeCSV(updatedPath, leave); //add new entry to database
+        lock.write(() -> {
+            leaves.add(leave); //add new entry to list
+            leavesById.put(leaveID, leave);
+            changeLog.insert(leaveID, leave.toCSVFormat()); //add new entry to database
+        });
     }
 
     /**
@@ -269,7 +319,7 @@ public class LeaveManager {
                     continue; // Prompt user to enter the date again
                 }
                 break; // Exit loop if date is valid
-            } catch (Exception e) {
+            } catch (DateTimeParseException e) {
                 //catches incorrect date format
                 System.out.println("Invalid date format. Please enter the date in the format yyyy-mm-dd.");
             }
@@ -281,7 +331,7 @@ public class LeaveManager {
         leave.setDate(date);
         leave.setLeaveStatus(LeaveStatus.PENDING);
         leave.setReason(reason);
-        duplicateLeave();//update database
+        updateLeaveRecord(leave);//update database
         System.out.print("Leave Request ID " + leave.getLeaveID() + " has been updated.");
     }
 
@@ -323,51 +373,90 @@ public class LeaveManager {
         }
 
         if(leaveRemove!=null){
-            leaves.remove(leaveRemove);
+            lock.write(() -> {
+                leaves.remove(leaveRemove);
+                leavesById.remove(leaveRemove.getLeaveID());
+                changeLog.delete(leaveRemove.getLeaveID());
+            });
             System.out.println("The leave request of ID: " + leaveRemove.getLeaveID() + " has been removed.");
-            duplicateLeave();
         } 
     }
 
     /**
      * Approves a leave request.
      * <p>
-     * The status of the leave request is set to "APPROVED". Schedules for the day of the leave
-     * are cleared, and any affected appointments are canceled.
+     * The status of the leave request is set to "APPROVED". The doctor's schedule for the day
+     * of the leave is cleared, and the doctor's appointments on that day are canceled.
      * 
      * @param leaveID The ID of the leave request to approve.
      */
     public static void approveLeave(String leaveID){
-        Leave leaveReject = findLeaveByID(leaveID);
+        approveLeaves(List.of(leaveID));
+    }
 
-        if(leaveReject == null){
-            System.out.println("This leave request was not found.");
-            return;
-        }
+    /**
+     * Approves several leave requests at once.
+     * <p>
+     * The pending requests among them are approved together: the doctors' schedules on the
+     * days of their leave are cleared and only those doctors' appointments on those days are
+     * canceled, found through the doctor and date indexes. The schedules, appointments and
+     * leave requests are each saved with a single write, however many requests are approved.
+     * 
+     * @param leaveIDs The IDs of the leave requests to approve.
+     * @return The number of leave requests approved.
+     */
+    public static int approveLeaves(List<String> leaveIDs){
+        List<String> messages = new ArrayList<>();
+
+        //claim the pending requests, so that no other session approves them too
+        List<Leave> approved = lock.write(() -> {
+            List<Leave> pending = new ArrayList<>();
+            for (String leaveID : leaveIDs) {
+                Leave leave = leavesById.get(leaveID);
+                if (leave == null) {
+                    messages.add("Leave Request ID " + leaveID + " was not found.");
+                } else if (leave.getLeaveStatus() != LeaveStatus.PENDING) {
+                    //status must be pending
+                    messages.add("Leave Request ID " + leaveID + " has already been " + leave.getLeaveStatus());
+                } else {
+                    leave.setLeaveStatus(LeaveStatus.APPROVED); //set status approved
+                    pending.add(leave);
+                }
+            }
+            return pending;
+        });
 
-        //status must be pending
-        if(leaveReject.getLeaveStatus() != LeaveStatus.PENDING){
-            System.out.println("This leave request has already been " + leaveReject.getLeaveStatus());
-            return;
+        //the days of leave of each doctor
+        Map<String, Set<LocalDate>> daysByDoctor = new LinkedHashMap<>();
+        for (Leave leave : approved) {
+            daysByDoctor.computeIfAbsent(leave.getStaff().getHospitalID(), id -> new HashSet<>()).add(leave.getDate());
         }
 
-        //remove schedule from doctor if any, succesful
-        ScheduleManager.removeDaySchedule(leaveReject.getDate(), (Doctor) leaveReject.getStaff());
+        if (!approved.isEmpty()) {
+            //remove schedules from the doctors if any, then cancel their patients' appointments
+            int schedulesRemoved = ScheduleManager.removeDaySchedules(daysByDoctor);
+            List<Appointment> cancelled = AppointmentManager.cancelAppointments(daysByDoctor);
 
-        //update patient appointments to cancelled for, patient appt doesnt get cancelled
-        List<Appointment> apptList = AppointmentManager.getAllAppointments();
-        for(Appointment appt : apptList){
-            if(appt.getDate().equals(leaveReject.getDate())){
-                appt.cancelAppointment();
+            //save the approved leaves to the database
+            lock.write(() -> {
+                Map<String, String> rows = new LinkedHashMap<>();
+                for (Leave leave : approved) {
+                    rows.put(leave.getLeaveID(), leave.toCSVFormat());
+                }
+                changeLog.updateAll(rows);
+            });
+
+            for (Leave leave : approved) {
+                messages.add("Leave Request ID " + leave.getLeaveID() + " has been succesfully approved.");
             }
+            messages.add(schedulesRemoved + " day schedule(s) removed and " + cancelled.size()
+                    + " appointment(s) cancelled.");
         }
-        //save to appointment database
-        AppointmentManager.duplicateAppointments();
-        
-        //leave approved
-        leaveReject.setLeaveStatus(LeaveStatus.APPROVED); //set status approved
-        System.out.println("Leave Request ID " + leaveID + " has been succesfully approved.");
-        duplicateLeave(); //update database
+
+        for (String message : messages) {
+            System.out.println(message);
+        }
+        return approved.size();
     }
 
     /**
@@ -394,6 +483,6 @@ public class LeaveManager {
 
         leaveReject.setLeaveStatus(LeaveStatus.REJECTED); //set status rejected
         System.out.println("Leave Request ID " + leaveID + " has been succesfully rejected.");
-        duplicateLeave(); //update database
+        updateLeaveRecord(leaveReject); //update database
     }
 }
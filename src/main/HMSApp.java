@@ -3,7 +3,8 @@ package main;
 import java.util.InputMismatchException;
 import java.util.Scanner;
 
-import utility.ColoredPrintStream;
+import utility.Session;
+import utility.SessionPrintStream;
 
 /**
  * This class is the main entry point of the Hospital Management System (HMS) application.
@@ -13,9 +14,6 @@ import utility.ColoredPrintStream;
  */
 public class HMSApp {
 
-    /** ColoredPrintStream object for printing colored output to the console. */
-    private static ColoredPrintStream coloredOut;
-
     /**
      * The main method is the entry point for the HMSApp.
      * It initializes the system by loading data from CSV files and prompts the user for input.
@@ -25,13 +23,35 @@ public class HMSApp {
      */
     public static void main(String[] args) {
         
-        // Redirect System.out to ColoredPrintStream
-        coloredOut = new ColoredPrintStream(System.out);
-        System.setOut(coloredOut);
+        // Redirect System.out to the ColoredPrintStream of the console session
+        startConsole();
 
         //initialise the system by importing all data from any CSV files
         SystemInitialisation.start(); 
-        Scanner sc = new Scanner(System.in);
+        Scanner sc = Session.current().getScanner();
+        runMenu(sc);
+
+        SystemInitialisation.shutdown();
+        System.out.println("Exiting App, System Terminating!");
+        sc.close();
+    }
+
+    /**
+     * Makes the terminal the console session and redirects {@link System#out} to the
+     * output of the session of the calling thread.
+     */
+    public static void startConsole() {
+        Session.setConsole(new Session(System.in, System.out));
+        System.setOut(new SessionPrintStream());
+    }
+
+    /**
+     * Displays the welcome menu and processes the user's choices until they choose to exit.
+     * The user can choose to log in, create a new patient account or reset their password.
+     * 
+     * @param sc A {@link Scanner} object for user input.
+     */
+    public static void runMenu(Scanner sc) {
         int choice = -1;
         String format = "|%-30s|\n";
 
@@ -65,15 +85,12 @@ public class HMSApp {
                     MainUI.resetPassword(sc);
                     break;
                 case 4:
-                    System.out.println("Exiting App, System Terminating!");
                     break;
                 default:
                     System.out.println("Invalid choice, please try again.");
                     continue;
             }
         } while (choice != 4);
-
-        sc.close();
     }
 
     /**
@@ -83,7 +100,7 @@ public class HMSApp {
      * @param roleColor The color to be set for the session.
      */
     public static void setSessionColor(String roleColor) {
-        coloredOut.setColor(roleColor);
+        Session.current().getOut().setColor(roleColor);
     }
 
     /**
@@ -91,6 +108,6 @@ public class HMSApp {
      * This method should be called at the end of the session to restore the default color.
      */
     public static void resetSessionColor() {
-        coloredOut.resetColor();
+        Session.current().getOut().resetColor();
     }
 }
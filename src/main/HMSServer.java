@@ -0,0 +1,202 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import utility.Session;
+
+/**
+ * Serves the HMS App to several users at once over local TCP connections.
+ * <p>
+ * Each connection is a session of its own running the same menus as the console, so a
+ * user can connect with a plain line-based client such as {@code nc localhost 5050}.
+ * Choosing Exit closes that connection only; the server saves the system when it is
+ * stopped.
+ * <p>
+ * Each session is served by its own thread from a fixed pool, so at most
+ * {@link #MAX_SESSIONS} users are served at once and further connections wait for a
+ * session to end. The port and the number of sessions can be set with the
+ * {@code hms.server.port} and {@code hms.server.sessions} system properties.
+ */
+public class HMSServer {
+
+    /** The port listened on when none is given. */
+    public static final int DEFAULT_PORT = Integer.getInteger("hms.server.port", 5050);
+
+    /** The maximum number of sessions served at once. */
+    public static final int MAX_SESSIONS = Integer.getInteger("hms.server.sessions", 512);
+
+    /** The socket accepting connections. */
+    private final ServerSocket serverSocket;
+
+    /** The threads serving the sessions. */
+    private final ExecutorService sessions;
+
+    /** The number of sessions started so far, used to name their threads. */
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    /**
+     * Starts the server. The system is loaded before the first connection is accepted
+     * and saved when the server is stopped.
+     *
+     * @param args Optionally the port to listen on.
+     * @throws IOException If the port cannot be listened on.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        HMSApp.startConsole();
+        SystemInitialisation.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(SystemInitialisation::shutdown, "HMSServer-Shutdown"));
+
+        HMSServer server = new HMSServer(port);
+        System.out.println("HMS Server listening on port " + server.getPort() + ".");
+        server.serve();
+    }
+
+    /**
+     * Creates a server listening on a port of the local machine.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be listened on.
+     */
+    public HMSServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, MAX_SESSIONS, InetAddress.getLoopbackAddress());
+        this.sessions = Executors.newFixedThreadPool(MAX_SESSIONS, runnable -> {
+            Thread thread = new Thread(runnable, "Session-" + sessionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections and serves each as a session until the server is closed.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> serveSession(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the sessions still being served.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sessions.shutdownNow();
+    }
+
+    /**
+     * Runs the menu of the application for one connection until the user exits or
+     * disconnects.
+     *
+     * @param socket The connection of the user.
+     */
+    private void serveSession(Socket socket) {
+        try (socket) {
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), true,
+                    StandardCharsets.UTF_8);
+            Session session = new Session(new DisconnectingInputStream(socket.getInputStream()), out);
+            session.run(() -> {
+                HMSApp.runMenu(session.getScanner());
+                System.out.println("Goodbye!");
+            });
+        } catch (Disconnected e) {
+            // the user closed the connection without choosing Exit
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Thrown when a user disconnects while their session waits for input, to end the
+     * session. The prompts that retry on invalid input only catch the parsing errors
+     * they expect, so they cannot retry on a closed connection forever.
+     */
+    private static class Disconnected extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Creates the exception, without a stack trace as it only ends the session. */
+        Disconnected() {
+            super("Connection closed", null, false, false);
+        }
+    }
+
+    /**
+     * An input stream throwing {@link Disconnected} at the end of the connection instead
+     * of returning end of input.
+     */
+    private static class DisconnectingInputStream extends FilterInputStream {
+
+        /**
+         * Creates a stream reading a connection.
+         *
+         * @param in The input of the connection.
+         */
+        DisconnectingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return orDisconnect(super.read());
+            } catch (IOException e) {
+                throw new Disconnected();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return orDisconnect(super.read(b, off, len));
+            } catch (IOException e) {
+                throw new Disconnected();
+            }
+        }
+
+        /**
+         * Ends the session if a read reached the end of the connection.
+         *
+         * @param result The result of the read.
+         * @return The result of the read.
+         */
+        private static int orDisconnect(int result) {
+            if (result < 0) {
+                throw new Disconnected();
+            }
+            return result;
+        }
+    }
+}
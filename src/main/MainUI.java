@@ -7,6 +7,7 @@ import accounts.*;
 import user.*;
 import utility.PasswordResetManager;
 import utility.PasswordResetRequest;
+import utility.Session;
 import utility.TerminalColors;
 
 /**
@@ -16,9 +17,6 @@ import utility.TerminalColors;
  */
 public class MainUI {
 
-    /** The currently logged-in user in the system. There can be only one logged-in user at a time. */
-    private static User loggedInUser; 
-
     /** Format string for displaying the menu options with a fixed width. */
     private static final String format = "|%-25s|\n";
 
@@ -45,19 +43,19 @@ public class MainUI {
         switch (userRole) {
             case 1: // Patient
                 System.out.println("Patient Selected!");
-                login = new Login(PatientsAcc.getPatients());
+                login = new Login(Role.Patient);
                 break;
             case 2: // Doctor
                 System.out.println("Doctor Selected!");
-                login = new Login(DoctorsAcc.getDoctors());
+                login = new Login(Role.Doctor);
                 break;
             case 3: // Pharmacist
                 System.out.println("Pharmacist Selected!");
-                login = new Login(PharmacistsAcc.getPharmacists());
+                login = new Login(Role.Pharmacist);
                 break;
             case 4: // Administrator
                 System.out.println("Administrator Selected!");
-                login = new Login(AdminsAcc.getAdmins());
+                login = new Login(Role.Administrator);
                 break;
             default:
                 System.out.println("Invalid Choice!");
@@ -69,7 +67,7 @@ public class MainUI {
         }
         
         if (loggedIn != null) {
-            loggedInUser = loggedIn;
+            Session.current().setLoggedInUser(loggedIn);
 
             // Set the terminal color for the logged-in user
             HMSApp.setSessionColor(TerminalColors.getColorByRole(loggedIn.getRole().name()));
@@ -148,11 +146,11 @@ public class MainUI {
     }
 
     /**
-     * Returns the currently logged-in user.
+     * Returns the user logged in to the current session.
      * 
      * @return The {@link User} object representing the logged-in user.
      */
     public static User getLoggedInUser() {
-        return loggedInUser;
+        return Session.current().getLoggedInUser();
     }
 }
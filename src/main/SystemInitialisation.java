@@ -8,14 +8,22 @@ import inventory.InventoryManager;
 import inventory.ReplenishManager;
 import leave.LeaveManager;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import accounts.AdminsAcc;
 import accounts.DoctorsAcc;
 import medicalrecord.MedicalRecordManager;
 import schedule.ScheduleManager;
 import appointment.AppointmentManager;
+import utility.BinarySnapshot;
 
 /**
  * This class is responsible for initializing the system during the first run of
@@ -31,6 +39,9 @@ public class SystemInitialisation {
      */
     private static boolean isFirstRun = true;
 
+    /** The maximum number of stores loaded or saved at the same time during start up. */
+    private static final int LOADER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     /**
      * A centralized map for storing file paths associated with various components
      * in the system.
@@ -70,6 +81,7 @@ public class SystemInitialisation {
         // Appointment Files
         filePaths.put("AppointmentOriginal", "../Data//Original/Appt_List.csv");
         filePaths.put("AppointmentUpdated", "../Data//Updated/Appt_List(Updated).csv");
+        filePaths.put("AppointmentArchive", "../Data//Updated/Appt_Archive");
         // Doctor Files
         filePaths.put("DoctorsOriginal", "../Data//Original/Doctor_List.csv");
         filePaths.put("DoctorsUpdated", "../Data//Updated/Doctor_List(Updated).csv");
@@ -120,6 +132,15 @@ public class SystemInitialisation {
      * ensures that the original data
      * is saved into a new file for future updates. It simplifies the methods needed
      * during the first boot up of the system into one method.
+     * <p>
+     * The stores are loaded concurrently on a small thread pool. Appointments and
+     * leave requests look up doctors (and patients) by ID while they load, so they
+     * only start once those stores are loaded; every other store is independent.
+     * The time taken to load each store is printed once loading is done.
+     * <p>
+     * If the last session shut down cleanly and left a binary snapshot for every
+     * store, this is a warm restart: the stores are loaded from the updated files,
+     * reading each snapshot instead of its CSV file while it is current.
      */
     public static void start() {
 
@@ -135,32 +156,154 @@ public class SystemInitialisation {
         ReplenishManager.setFilePaths();
         ScheduleManager.setFilePaths();
 
-        // read and store all data from CSV into their respective Lists
-        AdminsAcc.loadAdmins(isFirstRun);
-        DoctorsAcc.loadDoctors(isFirstRun);
-        PatientsAcc.loadPatients(isFirstRun);
-        PharmacistsAcc.loadPharmacists(isFirstRun);
-        AppointmentManager.loadAppointments(isFirstRun);
-        InventoryManager.loadInventory(isFirstRun);
-        LeaveManager.loadLeaves(isFirstRun);
-        MedicalRecordManager.loadMedicalRecords(isFirstRun);
-        ReplenishManager.loadReplenish(isFirstRun);
-        ScheduleManager.loadSchedules(isFirstRun);
-
-        // save the original data into a new file to be updated
-        AdminsAcc.duplicateAdmin();
-        DoctorsAcc.duplicateDoctor();
-        PatientsAcc.duplicatePatient();
-        PharmacistsAcc.duplicatePharmacist();
-        AppointmentManager.duplicateAppointments();
-        InventoryManager.duplicateInventory();
-        LeaveManager.duplicateLeave();
-        MedicalRecordManager.duplicateMedicalRecord();
-        ReplenishManager.duplicateReplenish();
-        ScheduleManager.duplicateSchedule();
-
-        // set to false after first load
-        isFirstRun = false;
+        // remind the pharmacist to request more stock when a medicine runs low
+        InventoryManager.addLowStockListener(ReplenishManager::onLowStock);
+
+        if (isFirstRun && hasSnapshots()) {
+            isFirstRun = false;
+            System.out.println("Resuming from the snapshots of the last session.");
+        }
+        boolean warmStart = !isFirstRun;
+
+        ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS);
+        List<String> stores = new ArrayList<>();
+        Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+        long startTime = System.nanoTime();
+
+        try {
+            // read and store all data from CSV into their respective Lists
+            CompletableFuture<Void> admins = load(loader, stores, loadTimes, "Admins",
+                    () -> AdminsAcc.loadAdmins(isFirstRun));
+            CompletableFuture<Void> doctors = load(loader, stores, loadTimes, "Doctors",
+                    () -> DoctorsAcc.loadDoctors(isFirstRun));
+            CompletableFuture<Void> patients = load(loader, stores, loadTimes, "Patients",
+                    () -> PatientsAcc.loadPatients(isFirstRun));
+            CompletableFuture<Void> pharmacists = load(loader, stores, loadTimes, "Pharmacists",
+                    () -> PharmacistsAcc.loadPharmacists(isFirstRun));
+            CompletableFuture<Void> inventory = load(loader, stores, loadTimes, "Inventory",
+                    () -> InventoryManager.loadInventory(isFirstRun));
+            CompletableFuture<Void> medicalRecords = load(loader, stores, loadTimes, "Medical Records",
+                    () -> MedicalRecordManager.loadMedicalRecords(isFirstRun));
+            CompletableFuture<Void> replenish = load(loader, stores, loadTimes, "Replenish Requests",
+                    () -> ReplenishManager.loadReplenish(isFirstRun));
+            CompletableFuture<Void> schedules = load(loader, stores, loadTimes, "Schedules",
+                    () -> ScheduleManager.loadSchedules(isFirstRun));
+
+            // appointments resolve doctors and patients, leave requests resolve doctors
+            CompletableFuture<Void> appointments = CompletableFuture.allOf(doctors, patients)
+                    .thenCompose(loaded -> load(loader, stores, loadTimes, "Appointments",
+                            () -> AppointmentManager.loadAppointments(isFirstRun)));
+            CompletableFuture<Void> leaves = doctors
+                    .thenCompose(loaded -> load(loader, stores, loadTimes, "Leave Requests",
+                            () -> LeaveManager.loadLeaves(isFirstRun)));
+
+            CompletableFuture.allOf(admins, doctors, patients, pharmacists, inventory, medicalRecords,
+                    replenish, schedules, appointments, leaves).join();
+            printLoadTimes(stores, loadTimes, startTime);
+
+            if (warmStart) {
+                return; // the updated files already hold the data
+            }
+
+            // save the original data into a new file to be updated, each store has its own file
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(AdminsAcc::duplicateAdmin, loader),
+                    CompletableFuture.runAsync(DoctorsAcc::duplicateDoctor, loader),
+                    CompletableFuture.runAsync(PatientsAcc::duplicatePatient, loader),
+                    CompletableFuture.runAsync(PharmacistsAcc::duplicatePharmacist, loader),
+                    CompletableFuture.runAsync(AppointmentManager::duplicateAppointments, loader),
+                    CompletableFuture.runAsync(InventoryManager::duplicateInventory, loader),
+                    CompletableFuture.runAsync(LeaveManager::duplicateLeave, loader),
+                    CompletableFuture.runAsync(MedicalRecordManager::duplicateMedicalRecord, loader),
+                    CompletableFuture.runAsync(ReplenishManager::duplicateReplenish, loader),
+                    CompletableFuture.runAsync(ScheduleManager::duplicateSchedule, loader)).join();
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
+        } finally {
+            loader.shutdown();
+            // set to false after first load
+            isFirstRun = false;
+        }
+    }
+
+    /**
+     * Shuts the system down cleanly by merging each store's change log into its
+     * updated CSV file and writing a binary snapshot beside it, so that the next
+     * start can load the stores without parsing any text.
+     */
+    public static void shutdown() {
+        ExecutorService saver = Executors.newFixedThreadPool(LOADER_THREADS);
+        try {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(AdminsAcc::saveSnapshot, saver),
+                    CompletableFuture.runAsync(DoctorsAcc::saveSnapshot, saver),
+                    CompletableFuture.runAsync(PatientsAcc::saveSnapshot, saver),
+                    CompletableFuture.runAsync(PharmacistsAcc::saveSnapshot, saver),
+                    CompletableFuture.runAsync(AppointmentManager::saveSnapshot, saver),
+                    CompletableFuture.runAsync(InventoryManager::saveSnapshot, saver),
+                    CompletableFuture.runAsync(LeaveManager::saveSnapshot, saver),
+                    CompletableFuture.runAsync(MedicalRecordManager::saveSnapshot, saver),
+                    CompletableFuture.runAsync(ReplenishManager::saveSnapshot, saver),
+                    CompletableFuture.runAsync(ScheduleManager::saveSnapshot, saver)).join();
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
+        } finally {
+            saver.shutdown();
+        }
+    }
+
+    /**
+     * Checks whether every store has a binary snapshot beside its updated CSV file,
+     * which is only the case after a clean shutdown.
+     * 
+     * @return {@code true} if a snapshot exists for every store.
+     */
+    private static boolean hasSnapshots() {
+        for (Map.Entry<String, String> filePath : filePaths.entrySet()) {
+            if (filePath.getKey().endsWith("Updated") && !BinarySnapshot.exists(filePath.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads a single store on the given executor and records how long it took.
+     * 
+     * @param loader    The executor to load the store on.
+     * @param stores    The names of the stores, in the order they were scheduled.
+     * @param loadTimes The load time of each store in milliseconds, by store name.
+     * @param store     The name of the store, used when reporting its load time.
+     * @param load      The method loading the store.
+     * @return A future completing once the store has been loaded.
+     */
+    private static CompletableFuture<Void> load(ExecutorService loader, List<String> stores,
+            Map<String, Long> loadTimes, String store, Runnable load) {
+        synchronized (stores) {
+            stores.add(store);
+        }
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            load.run();
+            loadTimes.put(store, (System.nanoTime() - start) / 1_000_000);
+        }, loader);
+    }
+
+    /**
+     * Prints the time taken to load each store, followed by the total start up time.
+     * 
+     * @param stores    The names of the stores, in the order they were scheduled.
+     * @param loadTimes The load time of each store in milliseconds, by store name.
+     * @param startTime The {@link System#nanoTime()} at which loading started.
+     */
+    private static void printLoadTimes(List<String> stores, Map<String, Long> loadTimes, long startTime) {
+        System.out.println("\nLoad times:");
+        synchronized (stores) {
+            for (String store : stores) {
+                System.out.printf("  %-20s %6d ms\n", store, loadTimes.getOrDefault(store, 0L));
+            }
+        }
+        System.out.printf("  %-20s %6d ms\n", "Total", (System.nanoTime() - startTime) / 1_000_000);
     }
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package medicalrecord;
+
+/**
+ * The index entry of one row of the medical record CSV file: the medical record ID,
+ * the patient, the prescription status and the byte offset and length of the row in
+ * the file.
+ * <p>
+ * Entries are all that is read of the file when the system starts, so that the
+ * diagnoses, prescriptions and treatment plans of a patient are only parsed when the
+ * patient's records are first used.
+ */
+public class MedicalRecordEntry {
+
+    /** The medical record ID. */
+    private final String medicalRID;
+
+    /** The ID of the patient the record belongs to. */
+    private final String patientID;
+
+    /** The prescription status of the record. */
+    private final PrescriptionStatus status;
+
+    /** The byte offset of the start of the row in the file. */
+    private final long offset;
+
+    /** The number of bytes in the row, without its line break. */
+    private final int length;
+
+    /**
+     * Creates the index entry of a row.
+     *
+     * @param medicalRID The medical record ID.
+     * @param patientID  The ID of the patient the record belongs to.
+     * @param status     The prescription status of the record.
+     * @param offset     The byte offset of the start of the row in the file.
+     * @param length     The number of bytes in the row, without its line break.
+     */
+    public MedicalRecordEntry(String medicalRID, String patientID, PrescriptionStatus status, long offset,
+            int length) {
+        this.medicalRID = medicalRID;
+        this.patientID = patientID;
+        this.status = status;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Gets the medical record ID.
+     *
+     * @return the medical record ID.
+     */
+    public String getMedicalRID() {
+        return medicalRID;
+    }
+
+    /**
+     * Gets the ID of the patient the record belongs to.
+     *
+     * @return the patient ID.
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * Gets the prescription status of the record.
+     *
+     * @return the prescription status.
+     */
+    public PrescriptionStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the byte offset of the start of the row in the file.
+     *
+     * @return the byte offset.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the number of bytes in the row, without its line break.
+     *
+     * @return the length of the row.
+     */
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,243 @@
+package medicalrecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import utility.CSVRowScanner;
+import utility.CSVTokenizer;
+import utility.CSVread;
+
+/**
+ * The medical record CSV file, read one patient at a time.
+ * <p>
+ * A pre-scan of the file finds where each row starts and ends and decodes only the
+ * medical record ID, the patient ID and the prescription status of the row, through a
+ * {@link CSVRowScanner}, which splits rows and fields by the same rules as
+ * {@link CSVTokenizer}, so quoted fields may span lines. The diagnoses, prescriptions
+ * and treatment plans are not decoded. The rows of a patient are then read when needed
+ * by seeking to their offsets.
+ * <p>
+ * The file may be rewritten while it is in use, when its change log is compacted into
+ * it. Every row read is checked against the medical record ID expected at its offset,
+ * and the file is scanned again if a row has moved.
+ */
+public class MedicalRecordFile {
+
+    /** The column of each medical record field in the file. */
+    public static final Map<String, Integer> COLUMNS = new HashMap<>();
+
+    static {
+        COLUMNS.put("MedicalR ID", 0);
+        COLUMNS.put("Doctor ID", 1);
+        COLUMNS.put("Patient ID", 2);
+        COLUMNS.put("Diagnoses", 3);
+        COLUMNS.put("Prescriptions", 4);
+        COLUMNS.put("Treatment Plan", 5);
+        COLUMNS.put("Prescription Status", 6);
+    }
+
+    /** The path of the CSV file. */
+    private final String path;
+
+    /** The rows of each patient, by patient key. */
+    private final Map<String, Rows> rowsByPatient = new HashMap<>();
+
+    /** The length of the file when it was indexed. */
+    private long indexedLength = -1;
+
+    /**
+     * Creates the file for a path. Nothing is read until the file is scanned or indexed.
+     *
+     * @param path The path of the medical record CSV file.
+     */
+    public MedicalRecordFile(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the key a patient's rows are held by, so that patient IDs are matched
+     * regardless of case.
+     *
+     * @param patientID The patient ID.
+     * @return The patient ID, trimmed and in upper case.
+     */
+    static String patientKey(String patientID) {
+        return patientID.trim().toUpperCase();
+    }
+
+    /**
+     * Scans the whole file, recording where the rows of each patient start and end.
+     *
+     * @return The index entry of every row, in the order of the file.
+     */
+    public synchronized List<MedicalRecordEntry> scan() {
+        rowsByPatient.clear();
+        List<MedicalRecordEntry> entries = new ArrayList<>();
+        int[] columns = { COLUMNS.get("MedicalR ID"), COLUMNS.get("Patient ID"), COLUMNS.get("Prescription Status") };
+        try {
+            indexedLength = CSVRowScanner.scan(path, columns, COLUMNS.size(), (offset, length, fields) -> {
+                PrescriptionStatus status;
+                try {
+                    status = PrescriptionStatus.valueOf(fields[2].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    status = PrescriptionStatus.PENDING; // as a parsed record defaults to
+                }
+                MedicalRecordEntry entry = new MedicalRecordEntry(fields[0], fields[1], status, offset, length);
+                entries.add(entry);
+                add(entry);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return entries;
+    }
+
+    /**
+     * Indexes the file from entries saved by an earlier scan, without reading it.
+     *
+     * @param entries The index entry of every row.
+     */
+    public synchronized void index(List<MedicalRecordEntry> entries) {
+        rowsByPatient.clear();
+        for (MedicalRecordEntry entry : entries) {
+            add(entry);
+        }
+        indexedLength = new File(path).length();
+    }
+
+    /**
+     * Reads the medical records of a patient, seeking to each of their rows. The file
+     * is scanned again first if it has changed since it was indexed.
+     *
+     * @param patientID The ID of the patient.
+     * @return The patient's medical records, in the order of the file.
+     */
+    public synchronized List<MedicalRecord> read(String patientID) {
+        String key = patientKey(patientID);
+        if (new File(path).length() != indexedLength) {
+            scan();
+        }
+        List<MedicalRecord> records = readRows(rowsByPatient.get(key));
+        if (records == null) {
+            scan(); // a row was not where it was indexed
+            records = readRows(rowsByPatient.get(key));
+        }
+        return records != null ? records : new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of bytes the rows of a patient take in the file, as indexed.
+     *
+     * @param patientID The ID of the patient.
+     * @return The total length of the patient's rows, or 0 if they have none.
+     */
+    public synchronized long weight(String patientID) {
+        Rows rows = rowsByPatient.get(patientKey(patientID));
+        long weight = 0;
+        for (int i = 0; rows != null && i < rows.size; i++) {
+            weight += rows.lengths[i];
+        }
+        return weight;
+    }
+
+    /**
+     * Reads every medical record in the file in one pass.
+     *
+     * @return The medical records, in the order of the file.
+     */
+    public List<MedicalRecord> readAll() {
+        return CSVread.readMedicalRecordCSV(path, COLUMNS);
+    }
+
+    /**
+     * Reads the rows at the given offsets and parses them.
+     *
+     * @param rows The offsets, lengths and medical record IDs of the rows, or
+     *             {@code null}.
+     * @return The medical records, or {@code null} if a row does not hold the medical
+     *         record ID indexed for it.
+     */
+    private List<MedicalRecord> readRows(Rows rows) {
+        List<MedicalRecord> records = new ArrayList<>();
+        if (rows == null) {
+            return records;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < rows.size; i++) {
+                String row = CSVRowScanner.readRow(channel, rows.offsets[i], rows.lengths[i]);
+                if (row == null) {
+                    return null;
+                }
+                text.append(row).append('\n');
+            }
+
+            CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(text.toString()));
+            for (int i = 0; i < rows.size; i++) {
+                String[] row = tokenizer.nextRow();
+                if (row == null || row.length < COLUMNS.size() || !row[0].trim().equals(rows.ids[i])) {
+                    return null;
+                }
+                records.add(CSVread.parseMedicalRecord(row, COLUMNS));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return records;
+    }
+
+    /**
+     * Adds an entry to the rows of its patient.
+     *
+     * @param entry The index entry of a row.
+     */
+    private void add(MedicalRecordEntry entry) {
+        rowsByPatient.computeIfAbsent(patientKey(entry.getPatientID()), key -> new Rows())
+                .add(entry.getOffset(), entry.getLength(), entry.getMedicalRID());
+    }
+
+    /** The offsets, lengths and medical record IDs of the rows of one patient, in file order. */
+    private static class Rows {
+
+        /** The offset of each row. */
+        long[] offsets = new long[2];
+
+        /** The number of bytes in each row, without its line break. */
+        int[] lengths = new int[2];
+
+        /** The medical record ID of each row. */
+        String[] ids = new String[2];
+
+        /** The number of rows. */
+        int size;
+
+        /**
+         * Adds a row.
+         *
+         * @param offset The offset the row starts at.
+         * @param length The number of bytes in the row, without its line break.
+         * @param id     The medical record ID of the row.
+         */
+        void add(long offset, int length, String id) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            ids[size] = id;
+            size++;
+        }
+    }
+}
@@ -2,8 +2,9 @@ package medicalrecord;
 
 import java.util.*;
 
-import inventory.InventoryItem;
 import inventory.InventoryManager;
+import inventory.Medicine;
+import inventory.ReplenishEngine;
 import main.SystemInitialisation;
 import utility.*;
 
@@ -16,11 +17,50 @@ import utility.*;
  * This class interacts with CSV files to persist medical records and inventory
  * updates.
  * </p>
+ * <p>
+ * Medical records are loaded lazily, one patient at a time. Loading only indexes the
+ * CSV file through a {@link MedicalRecordFile}, recording the patient and prescription
+ * status of each medical record ID. The records of a patient are parsed when they are
+ * first used and kept in a {@link BoundedCache} of the most recently used patients,
+ * holding at most {@link #CACHED_PATIENTS} patients and {@link #CACHE_WEIGHT}
+ * bytes of their rows in the file, so the heap used stays within a budget however many
+ * patients there are. The records of a patient changed during the session are kept
+ * in memory until they are written back with the next snapshot.
+ * </p>
  */
 public class MedicalRecordManager {
 
-    /** A list to store all {@link MedicalRecord} objects. */
-    private static List<MedicalRecord> medicalRecords = new ArrayList<>();
+    /**
+     * The number of patients whose medical records are kept in memory once parsed, set
+     * with the {@code hms.records.cachedPatients} system property.
+     */
+    public static final int CACHED_PATIENTS = Integer.getInteger("hms.records.cachedPatients", 1000);
+
+    /**
+     * The largest total length, in bytes of their rows in the file, of the medical
+     * records kept in memory once parsed, set with the
+     * {@code hms.records.cacheWeight} system property.
+     */
+    public static final long CACHE_WEIGHT = Long.getLong("hms.records.cacheWeight", 8_000_000L);
+
+    /** The medical record CSV file the records are read from, one patient at a time. */
+    private static MedicalRecordFile recordFile;
+
+    /** The patient key of every {@link MedicalRecord}, by medical record ID. */
+    private static Map<String, String> patientsByRecord = new HashMap<>();
+
+    /** The IDs of the medical records whose prescriptions are pending, in the order they were found. */
+    private static Set<String> pendingRecords = new LinkedHashSet<>();
+
+    /**
+     * The medical records of every patient changed since the file was indexed, by patient
+     * key. They are never evicted, since the file does not hold their changes yet.
+     */
+    private static Map<String, List<MedicalRecord>> changedPatients = new HashMap<>();
+
+    /** The medical records of the patients used most recently, by patient key. */
+    private static final BoundedCache<String, List<MedicalRecord>> recentPatients = new BoundedCache<>(
+            CACHED_PATIENTS, CACHE_WEIGHT, MedicalRecordManager::weigh);
     
     /** The file path to the original medical record CSV file. */
     private static String originalPath;
@@ -28,6 +68,16 @@ public class MedicalRecordManager {
     /** The file path to the updated medical record CSV file. */
     private static String updatedPath;
 
+    /** The change log recording medical record changes made since the last snapshot. */
+    private static ChangeLog changeLog;
+
+    /**
+     * Guards the index, the changed patients and the change log against concurrent
+     * sessions. The cache of recent patients is thread-safe on its own, since reading a
+     * patient's records under the read lock adds them to it.
+     */
+    private static final StoreLock lock = new StoreLock();
+
     /**
      * Updates the file paths for loading and saving medical record data by retrieving them from 
      * the {@link SystemInitialisation} class. 
@@ -46,45 +96,186 @@ public class MedicalRecordManager {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("MedicalRecordOriginal");
         updatedPath = SystemInitialisation.getFilePath("MedicalRecordUpdated");
+        changeLog = new ChangeLog(updatedPath, 1);
     }
 
     /**
      * Loads the medical records from a CSV file. Depending on whether it is the
      * first run or not,
-     * it loads either from the original or updated file.
+     * it loads either from the original or updated file. Any logged changes are
+     * replayed over the updated file before it is read.
+     * <p>
+     * Only the index of the file is loaded: the medical record ID, patient and
+     * prescription status of each row, read from the binary snapshot of the index when
+     * it is current or else by a pre-scan of the file. The records themselves are parsed
+     * when first used.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadMedicalRecords(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
 
-        medicalRecords.clear();
+            // a warm start reads the index snapshot when it is current
+            recordFile = new MedicalRecordFile(filePath);
+            List<MedicalRecordEntry> entries = isFirstRun ? null : BinarySnapshot.readMedicalRecordIndex(filePath);
+            if (entries == null) {
+                entries = recordFile.scan();
+            } else {
+                recordFile.index(entries);
+            }
+            index(entries);
 
-        Map<String, Integer> medicalRecordsColumnMapping = new HashMap<>();
-        medicalRecordsColumnMapping.put("MedicalR ID", 0);
-        medicalRecordsColumnMapping.put("Doctor ID", 1);
-        medicalRecordsColumnMapping.put("Patient ID", 2);
-        medicalRecordsColumnMapping.put("Diagnoses", 3);
-        medicalRecordsColumnMapping.put("Prescriptions", 4);
-        medicalRecordsColumnMapping.put("Treatment Plan", 5);
-        medicalRecordsColumnMapping.put("Prescription Status", 6);
+            // continue ID generation after the highest loaded ID
+            IDGenerator.seed("MR", new ArrayList<>(patientsByRecord.keySet()), medicalRID -> medicalRID);
 
-        List<MedicalRecord> medicalRecordsMapList = CSVread.readMedicalRecordCSV(filePath, medicalRecordsColumnMapping);
+            if (patientsByRecord.isEmpty()) {
+                System.out.println("No medical records were loaded.");
+            } else {
+                System.out.println("Medical records successfully loaded: " + patientsByRecord.size());
+            }
+        });
+    }
 
-        for (MedicalRecord record : medicalRecordsMapList) {
-            if (record instanceof MedicalRecord) {
-                medicalRecords.add(record);
+    /**
+     * Replaces the index of the medical records and empties the caches. Called with
+     * the write lock held.
+     * 
+     * @param entries the index entry of every medical record.
+     */
+    private static void index(List<MedicalRecordEntry> entries) {
+        patientsByRecord.clear();
+        pendingRecords.clear();
+        changedPatients.clear();
+        recentPatients.invalidateAll();
+        Map<String, String> patientKeys = new HashMap<>();
+        for (MedicalRecordEntry entry : entries) {
+            // each patient's key is stored once, however many records they have
+            String patientKey = patientKeys.computeIfAbsent(MedicalRecordFile.patientKey(entry.getPatientID()),
+                    key -> key);
+            patientsByRecord.put(entry.getMedicalRID(), patientKey);
+            if (entry.getStatus() == PrescriptionStatus.PENDING) {
+                pendingRecords.add(entry.getMedicalRID());
             }
         }
+    }
 
-        if (medicalRecords.isEmpty()) {
-            System.out.println("No medical records were loaded.");
-        } else {
-            System.out.println("Medical records successfully loaded: " + medicalRecords.size());
+    /**
+     * Returns the medical records of a patient, parsing them from the file if they are
+     * not in memory. Called with the lock held; the returned list must not be changed
+     * unless the patient has been marked as changed.
+     * 
+     * @param patientID the ID of the patient.
+     * @return the patient's medical records.
+     */
+    private static List<MedicalRecord> recordsOf(String patientID) {
+        String patientKey = MedicalRecordFile.patientKey(patientID);
+        List<MedicalRecord> records = changedPatients.get(patientKey);
+        if (records != null) {
+            return records;
         }
+        records = recentPatients.get(patientKey);
+        if (records != null) {
+            return records;
+        }
+
+        // another session may have parsed the same patient meanwhile, keep its records
+        List<MedicalRecord> parsed = recordFile.read(patientKey);
+        records = recentPatients.putIfAbsent(patientKey, parsed);
+        return records != null ? records : parsed;
+    }
+
+    /**
+     * Marks a patient's medical records as changed, moving them out of the cache so that
+     * they are kept until the next snapshot. Called with the write lock held.
+     * 
+     * @param patientID the ID of the patient.
+     * @return the patient's medical records, which may then be changed.
+     */
+    private static List<MedicalRecord> changeRecordsOf(String patientID) {
+        String patientKey = MedicalRecordFile.patientKey(patientID);
+        List<MedicalRecord> records = recordsOf(patientKey);
+        recentPatients.invalidate(patientKey);
+        changedPatients.put(patientKey, records);
+        return records;
+    }
+
+    /**
+     * Weighs the medical records of a patient for the cache by the length of their rows
+     * in the file, as recorded by the index. Records are only cached while the file
+     * holds them as they are, so nothing needs to be formatted to weigh them.
+     * 
+     * @param patientKey the key of the patient.
+     * @param records    the patient's medical records.
+     * @return the total length of the records' rows.
+     */
+    private static long weigh(String patientKey, List<MedicalRecord> records) {
+        return recordFile.weight(patientKey);
+    }
+
+    /**
+     * Returns the size, weight, hits, misses and evictions of the cache of patients'
+     * medical records.
+     * 
+     * @return a summary of the cache.
+     */
+    public static String getCacheStats() {
+        return recentPatients.toString();
+    }
+
+    /**
+     * Finds a medical record by its ID. Called with the lock held.
+     * 
+     * @param medicalRID the medical record ID.
+     * @return the medical record, or null if not found.
+     */
+    private static MedicalRecord find(String medicalRID) {
+        String patientKey = patientsByRecord.get(medicalRID);
+        if (patientKey == null) {
+            return null;
+        }
+        for (MedicalRecord record : recordsOf(patientKey)) {
+            if (record.getMedicalRID().equals(medicalRID)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns every medical record, reading the file in one pass without adding its
+     * patients to the cache. The records of patients in memory are returned in place of
+     * those read, so that each record is a single object. Called with the lock held.
+     * 
+     * @return every medical record, grouped by patient in the order of the file.
+     */
+    private static List<MedicalRecord> allRecords() {
+        List<MedicalRecord> records = new ArrayList<>();
+        Set<String> added = new HashSet<>();
+        for (MedicalRecord record : recordFile.readAll()) {
+            String patientKey = MedicalRecordFile.patientKey(record.getPatientID());
+            List<MedicalRecord> inMemory = changedPatients.get(patientKey);
+            if (inMemory == null) {
+                inMemory = recentPatients.peek(patientKey);
+            }
+            if (inMemory == null) {
+                records.add(record);
+            } else if (added.add(patientKey)) {
+                records.addAll(inMemory);
+            }
+        }
+        for (Map.Entry<String, List<MedicalRecord>> patient : changedPatients.entrySet()) {
+            if (added.add(patient.getKey())) {
+                records.addAll(patient.getValue());
+            }
+        }
+        return records;
     }
 
     /**
@@ -95,13 +286,7 @@ public class MedicalRecordManager {
      * @return a list of medical records associated with the patient.
      */
     public static List<MedicalRecord> getMedicalRecordsByPatient(String patientID) {
-        List<MedicalRecord> patientRecords = new ArrayList<>();
-        for (MedicalRecord record : medicalRecords) {
-            if (record.getPatientID().equalsIgnoreCase(patientID)) {
-                patientRecords.add(record);
-            }
-        }
-        return patientRecords;
+        return lock.read(() -> new ArrayList<>(recordsOf(patientID)));
     }
 
     /**
@@ -111,12 +296,7 @@ public class MedicalRecordManager {
      * @return the medical record associated with the ID, or null if not found.
      */
     public static MedicalRecord findMedicalRecordbyID(String medicalRID) {
-        for (MedicalRecord record : medicalRecords) {
-            if (record.getMedicalRID().equals(medicalRID)) {
-                return record;
-            }
-        }
-        return null;
+        return lock.read(() -> find(medicalRID));
     }
 
     /**
@@ -128,12 +308,14 @@ public class MedicalRecordManager {
      *         not found.
      */
     public static MedicalRecord getMedicalRecord(String doctorID, String patientID) {
-        for (MedicalRecord record : medicalRecords) {
-            if (record.getDoctorID().equalsIgnoreCase(doctorID) && record.getPatientID().equalsIgnoreCase(patientID)) {
-                return record;
+        return lock.read(() -> {
+            for (MedicalRecord record : recordsOf(patientID)) {
+                if (record.getDoctorID().equalsIgnoreCase(doctorID)) {
+                    return record;
+                }
             }
-        }
-        return null;
+            return null;
+        });
     }
 
     /**
@@ -144,26 +326,58 @@ public class MedicalRecordManager {
      * @return a list of medical records associated with the doctor and patient.
      */
     public static List<MedicalRecord> getMedicalRecords(String doctorID, String patientID) {
-        List<MedicalRecord> records = new ArrayList<>();
-        for (MedicalRecord record : medicalRecords) {
-            if (record.getDoctorID().equalsIgnoreCase(doctorID) && record.getPatientID().equalsIgnoreCase(patientID)) {
-                records.add(record);
+        return lock.read(() -> {
+            List<MedicalRecord> records = new ArrayList<>();
+            for (MedicalRecord record : recordsOf(patientID)) {
+                if (record.getDoctorID().equalsIgnoreCase(doctorID)) {
+                    records.add(record);
+                }
             }
-        }
-        return records;
+            return records;
+        });
+    }
+
+    /**
+     * Generates the ID of a new medical record from the sequence seeded when the
+     * records were loaded, without reading the file.
+     * 
+     * @return the next medical record ID.
+     */
+    public static String nextMedicalRID() {
+        return IDGenerator.generateID("MR", new ArrayList<String>(), medicalRID -> medicalRID, 3);
     }
 
     /**
-     * Gets the list of all medical records.
+     * Gets a copy of the list of all medical records. This reads the whole file.
      * 
      * @return a list of all medical records.
      */
     public static List<MedicalRecord> getMedicalRecords() {
-        return medicalRecords;
+        return lock.read(MedicalRecordManager::allRecords);
+    }
+
+    /**
+     * Gets the medical records whose prescriptions are pending, parsing only the records
+     * of their patients.
+     * 
+     * @return the pending medical records, in the order they were found.
+     */
+    public static List<MedicalRecord> getPendingMedicalRecords() {
+        return lock.read(() -> {
+            List<MedicalRecord> pending = new ArrayList<>();
+            for (String medicalRID : pendingRecords) {
+                MedicalRecord record = find(medicalRID);
+                if (record != null && record.getStatus() == PrescriptionStatus.PENDING) {
+                    pending.add(record);
+                }
+            }
+            return pending;
+        });
     }
 
     /** Displays all medical records currently loaded. */
     public static void displayMedicalRecords() {
+        List<MedicalRecord> medicalRecords = getMedicalRecords();
         if (medicalRecords.isEmpty()) {
             System.out.println("\nThe medical records is currently empty.");
         } else {
@@ -179,14 +393,11 @@ public class MedicalRecordManager {
      * {@code PENDING}).
      */
     public static void displayPendingMR() {
-        boolean found = false;
-        for (MedicalRecord record : medicalRecords) {
-            if (record.getStatus() == PrescriptionStatus.PENDING) {
-                System.out.println(record.getRecordDetails());
-                found = true;
-            }
+        List<MedicalRecord> pending = getPendingMedicalRecords();
+        for (MedicalRecord record : pending) {
+            System.out.println(record.getRecordDetails());
         }
-        if (!found) {
+        if (pending.isEmpty()) {
             System.out.println("No pending medical records found.");
         }
     }
@@ -197,7 +408,7 @@ public class MedicalRecordManager {
      */
     public static void displayDispensedMR() {
         boolean found = false;
-        for (MedicalRecord record : medicalRecords) {
+        for (MedicalRecord record : getMedicalRecords()) {
             if (record.getStatus() == PrescriptionStatus.DISPENSED) {
                 System.out.println(record.getRecordDetails());
                 found = true;
@@ -211,9 +422,9 @@ public class MedicalRecordManager {
     /**
      * Updates the prescription status of a medical record to DISPENSED and adjusts
      * the inventory.
-     * If the prescription status is already PENDING, the method will attempt to
-     * deduct the prescribed
-     * medicines from the inventory and update the record's status.
+     * If the prescription status is PENDING, the prescribed medicines are deducted
+     * from the inventory as one transaction and the record's status is updated.
+     * Nothing is deducted unless every medicine has enough stock.
      * 
      * @param record the medical record to update.
      */
@@ -221,36 +432,155 @@ public class MedicalRecordManager {
         if (record == null) {
             return;
         }
+        dispense(List.of(record));
+    }
 
-        if (record.getStatus().equals(PrescriptionStatus.PENDING)) {
-
-            // Update the inventory
-            Map<String, Integer> prescriptions = record.getPrescriptions();
-            for (Map.Entry<String, Integer> entry : prescriptions.entrySet()) {
-                String medicineName = entry.getKey();
-                int deduct = entry.getValue();
+    /**
+     * Dispenses every pending medical record in one batch.
+     * <p>
+     * The prescriptions are deducted from the inventory in one transaction and the
+     * dispensed records are saved with a single write. A record whose prescription
+     * cannot be met from the remaining stock stays pending.
+     * 
+     * @return the number of medical records dispensed.
+     */
+    public static int dispenseAllPending() {
+        List<MedicalRecord> pending = getPendingMedicalRecords();
+        if (pending.isEmpty()) {
+            System.out.println("No pending medical records found.");
+            return 0;
+        }
+        int dispensed = dispense(pending);
+        System.out.println(dispensed + " of " + pending.size() + " pending medical records dispensed.");
+        return dispensed;
+    }
 
-                InventoryItem item = InventoryManager.findItemByName(medicineName);
-                if (item != null) {
-                    // Deduct the quantity from the inventory
-                    int newAmt = item.getQuantity() - deduct;
-                    InventoryManager.deductItemStock(item, newAmt);
+    /**
+     * Dispenses the pending medical records among the given records.
+     * <p>
+     * The records are first claimed by marking them as dispensed, so that no other
+     * session dispenses them too. Their prescriptions are then deducted from the
+     * inventory in one transaction, the records whose prescriptions could not be met
+     * are returned to pending, and the dispensed records are saved with a single write
+     * to the change log. The quantities dispensed are passed to the
+     * {@link ReplenishEngine}, which may request more stock.
+     * 
+     * @param records the medical records to dispense.
+     * @return the number of medical records dispensed.
+     */
+    private static int dispense(List<MedicalRecord> records) {
+        List<MedicalRecord> claimed = lock.write(() -> {
+            List<MedicalRecord> pending = new ArrayList<>();
+            for (MedicalRecord given : records) {
+                // claim the record held by the manager, as the given one may be a stale copy
+                MedicalRecord record = find(given.getMedicalRID());
+                if (record != null && record.getStatus() == PrescriptionStatus.PENDING) {
+                    changeRecordsOf(record.getPatientID());
                     record.setStatus(PrescriptionStatus.DISPENSED);
-                    System.out.println(
-                            "The medicine for Meidical Record " + record.getMedicalRID() + " has been dispensed.");
-                    System.out.println("Deducted " + deduct + " of " + medicineName + " from inventory.");
-                    duplicateMedicalRecord();
+                    pendingRecords.remove(record.getMedicalRID());
+                    pending.add(record);
+                }
+            }
+            return pending;
+        });
+
+        List<Map<String, Integer>> prescriptions = new ArrayList<>();
+        for (MedicalRecord record : claimed) {
+            prescriptions.add(record.getPrescriptions());
+        }
+        List<String> problems = InventoryManager.deductStock(prescriptions);
+
+        List<MedicalRecord> dispensed = new ArrayList<>();
+        lock.write(() -> {
+            Map<String, String> rows = new LinkedHashMap<>();
+            for (int i = 0; i < claimed.size(); i++) {
+                MedicalRecord record = claimed.get(i);
+                if (problems.get(i) != null) {
+                    record.setStatus(PrescriptionStatus.PENDING);
+                    pendingRecords.add(record.getMedicalRID());
                 } else {
-                    System.out.println("Failed to deduct " + deduct + " of " + medicineName + " from inventory." +
-                            medicineName + " does not exist in our inventory");
+                    dispensed.add(record);
+                    rows.put(record.getMedicalRID(), record.toCSVRow());
                 }
             }
+            changeLog.updateAll(rows);
+        });
+
+        for (int i = 0; i < claimed.size(); i++) {
+            MedicalRecord record = claimed.get(i);
+            if (problems.get(i) != null) {
+                System.out.println("Failed to dispense the medicine for Medical Record " + record.getMedicalRID()
+                        + ". " + problems.get(i) + ".");
+                continue;
+            }
+            System.out.println("The medicine for Medical Record " + record.getMedicalRID() + " has been dispensed.");
+            for (Map.Entry<String, Integer> entry : record.getPrescriptions().entrySet()) {
+                System.out.println("Deducted " + entry.getValue() + " of " + entry.getKey() + " from inventory.");
+            }
+        }
+
+        Map<Medicine, Integer> quantities = new EnumMap<>(Medicine.class);
+        for (MedicalRecord record : dispensed) {
+            for (Map.Entry<String, Integer> entry : record.getPrescriptions().entrySet()) {
+                quantities.merge(Medicine.valueOf(entry.getKey()), entry.getValue(), Integer::sum);
+            }
         }
+        if (!quantities.isEmpty()) {
+            ReplenishEngine.recordDispense(quantities);
+        }
+        return dispensed.size();
     }
 
     /** Duplicates the current medical record list into the updated CSV file. */
     public static void duplicateMedicalRecord() {
-        CSVwrite.writeCSVList(updatedPath, medicalRecords);
+        lock.read(() -> changeLog.rewrite(allRecords()));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file, indexes the merged file and
+     * writes a binary snapshot of its index beside it, to be read on the next start.
+     * The records of changed patients are then held in the cache like any others, since
+     * the file now holds their changes.
+     */
+    public static void saveSnapshot() {
+        lock.write(() -> {
+            changeLog.replay();
+            recordFile = new MedicalRecordFile(updatedPath);
+            BinarySnapshot.writeMedicalRecordIndex(updatedPath, recordFile.scan());
+            for (Map.Entry<String, List<MedicalRecord>> patient : changedPatients.entrySet()) {
+                recentPatients.put(patient.getKey(), patient.getValue());
+            }
+            changedPatients.clear();
+        });
+    }
+
+    /**
+     * Saves the changes made to a single medical record by appending it to the
+     * change log, instead of rewriting the whole medical record CSV file.
+     * 
+     * @param record the medical record that has been modified.
+     */
+    public static void updateMedicalRecord(MedicalRecord record) {
+        lock.write(() -> {
+            String medicalRID = record.getMedicalRID();
+            String patientKey = MedicalRecordFile.patientKey(record.getPatientID());
+            String previousPatient = patientsByRecord.put(medicalRID, patientKey);
+            if (previousPatient != null && !previousPatient.equals(patientKey)) {
+                changeRecordsOf(previousPatient).removeIf(stored -> stored.getMedicalRID().equals(medicalRID));
+            }
+            // keep the given record, as it holds the changes even if it is a stale copy
+            List<MedicalRecord> records = changeRecordsOf(patientKey);
+            records.replaceAll(stored -> stored.getMedicalRID().equals(medicalRID) ? record : stored);
+            if (!records.contains(record)) {
+                records.add(record);
+            }
+            if (record.getStatus() == PrescriptionStatus.PENDING) {
+                pendingRecords.add(medicalRID);
+            } else {
+                pendingRecords.remove(medicalRID);
+            }
+            changeLog.update(medicalRID, record.toCSVRow());
+        });
     }
 
     /**
@@ -259,8 +589,14 @@ public class MedicalRecordManager {
      * @param record the medical record to add.
      */
     public static void addMedicalRecord(MedicalRecord record) {
-        medicalRecords.add(record);
-        duplicateMedicalRecord();
+        lock.write(() -> {
+            changeRecordsOf(record.getPatientID()).add(record);
+            patientsByRecord.put(record.getMedicalRID(), MedicalRecordFile.patientKey(record.getPatientID()));
+            if (record.getStatus() == PrescriptionStatus.PENDING) {
+                pendingRecords.add(record.getMedicalRID());
+            }
+            changeLog.insert(record.getMedicalRID(), record.toCSVRow());
+        });
     }
 
     /**
@@ -272,13 +608,20 @@ public class MedicalRecordManager {
      * @param patientID the ID of the patient.
      */
     public static void removeMedicalRecord(String doctorID, String patientID) {
-        MedicalRecord record = getMedicalRecord(doctorID, patientID);
+        MedicalRecord record = lock.write(() -> {
+            MedicalRecord found = getMedicalRecord(doctorID, patientID);
+            if (found != null) {
+                changeRecordsOf(patientID).remove(found);
+                patientsByRecord.remove(found.getMedicalRID());
+                pendingRecords.remove(found.getMedicalRID());
+                changeLog.delete(found.getMedicalRID());
+            }
+            return found;
+        });
         if (record != null) {
             System.out.println("Deleted medical record");
-            medicalRecords.remove(record);
         } else {
             System.out.println("Medical record not found.");
         }
-        duplicateMedicalRecord();
     }
 }
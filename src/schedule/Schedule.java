@@ -2,6 +2,7 @@ package schedule;
 
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * The Schedule class represents the schedule of a doctor for a specific date.
@@ -17,8 +18,11 @@ public class Schedule {
     /** The date of the schedule */
     LocalDate date;
 
-    /** The list of available time slots for the doctor on the given date */
-    List<LocalTime> timeSlots;
+    /**
+     * The available time slots for the doctor on the given date, kept in time order.
+     * The set is concurrent, so sessions may book and free slots while others read them.
+     */
+    NavigableSet<LocalTime> timeSlots;
 
     /**
      * Default constructor that initializes the schedule with an empty doctor ID, the current date, and an empty list of time slots.
@@ -26,7 +30,7 @@ public class Schedule {
     public Schedule() {
         this.doctorID = "";
         this.date = LocalDate.now();
-        this.timeSlots = new ArrayList<>();
+        this.timeSlots = new ConcurrentSkipListSet<>();
     }
 
     /**
@@ -40,7 +44,7 @@ public class Schedule {
     public Schedule(String doctorID, LocalDate date, List<LocalTime> timeSlots) {
         this.doctorID = doctorID;
         this.date = date;
-        this.timeSlots = new ArrayList<>(timeSlots);
+        this.timeSlots = new ConcurrentSkipListSet<>(timeSlots);
     }
 
     // getter and setter methods
@@ -84,10 +88,10 @@ public class Schedule {
     /**
      * Gets the list of time slots for this schedule.
      * 
-     * @return The list of available time slots
+     * @return A copy of the available time slots, in time order
      */
     public List<LocalTime> getTimeSlots() {
-        return timeSlots;
+        return new ArrayList<>(timeSlots);
     }
 
     /**
@@ -96,7 +100,7 @@ public class Schedule {
      * @param timeSlots The list of time slots to set
      */
     public void setTimeSlots(List<LocalTime> timeSlots) {
-        this.timeSlots = new ArrayList<>(timeSlots);
+        this.timeSlots = new ConcurrentSkipListSet<>(timeSlots);
     }
 
     /**
@@ -127,14 +131,12 @@ public class Schedule {
     }
 
     /**
-     * Adds a time slot to the schedule. The time slots are automatically sorted after adding a new time slot.
+     * Adds a time slot to the schedule. The time slots are kept in time order.
      * 
      * @param timeSlot The time slot to add
      */
     public void addTimeSlot(LocalTime timeSlot) {
         this.timeSlots.add(timeSlot);
-        // sort the time slots
-        Collections.sort(this.timeSlots);
     }
 
     /**
@@ -145,4 +147,51 @@ public class Schedule {
     public void removeTimeSlot(LocalTime timeSlot) {
         this.timeSlots.remove(timeSlot);
     }
+
+    /**
+     * Claims a time slot by removing it from the schedule. The removal is a single
+     * atomic operation on the concurrent set of time slots, so when several sessions
+     * claim the same slot at once, exactly one of them succeeds.
+     * 
+     * @param timeSlot The time slot to claim
+     * @return {@code true} if this call claimed the slot, {@code false} if it was not available
+     */
+    public boolean claimTimeSlot(LocalTime timeSlot) {
+        return this.timeSlots.remove(timeSlot);
+    }
+
+    /**
+     * Gets the latest time slot of the schedule.
+     * 
+     * @return The last time slot, or {@code null} if there are no time slots
+     */
+    public LocalTime getLastTimeSlot() {
+        return timeSlots.floor(LocalTime.MAX); // unlike last(), safe if the slots are emptied meanwhile
+    }
+
+    /**
+     * Checks whether the schedule contains the given time slot.
+     * 
+     * @param timeSlot The time slot to look for
+     * @return {@code true} if the time slot is available, {@code false} otherwise
+     */
+    public boolean hasTimeSlot(LocalTime timeSlot) {
+        return timeSlots.contains(timeSlot);
+    }
+
+    /**
+     * Checks whether any time slot lies less than the given number of minutes away
+     * from the given time. Only the nearest slots on either side need to be checked,
+     * since the time slots are kept in time order.
+     * 
+     * @param time    The time to check against
+     * @param minutes The minimum gap required between two time slots
+     * @return {@code true} if a time slot is too close to the given time, {@code false} otherwise
+     */
+    public boolean hasTimeSlotWithin(LocalTime time, long minutes) {
+        LocalTime before = timeSlots.floor(time);
+        LocalTime after = timeSlots.ceiling(time);
+        return (before != null && Duration.between(before, time).toMinutes() < minutes)
+                || (after != null && Duration.between(time, after).toMinutes() < minutes);
+    }
 }
@@ -4,8 +4,8 @@ import java.util.*;
 
 import main.SystemInitialisation;
 
-import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import utility.*;
 import user.Doctor;
@@ -20,8 +20,17 @@ import user.Doctor;
  */
 public class ScheduleManager {
 
-    /** The list of schedules for all doctors */
-    private static List<Schedule> schedules = new ArrayList<>();
+    /** The schedules for all doctors, in the order they were added */
+    private static Set<Schedule> schedules = new LinkedHashSet<>();
+
+    /** The schedules of each doctor by date, keyed by the upper-cased doctor ID and kept in sync with {@link #schedules} */
+    private static Map<String, NavigableMap<LocalDate, Schedule>> schedulesByDoctor = new HashMap<>();
+
+    /** The schedules grouped by date in date order, so that expired dates can be dropped from the front */
+    private static NavigableMap<LocalDate, Set<Schedule>> schedulesByDate = new TreeMap<>();
+
+    /** The earliest time at which a schedule can expire, or {@code null} if it has to be worked out again */
+    private static volatile LocalDateTime nextExpiry = null;
 
     /** The file path for the original schedule list */
     private static String originalPath;
@@ -29,6 +38,12 @@ public class ScheduleManager {
     /** The file path for the updated schedule list */
     private static String updatedPath;
 
+    /** The change log recording schedule changes made since the last snapshot */
+    private static ChangeLog changeLog;
+
+    /** Guards the schedules, their indexes and the change log against concurrent sessions. */
+    private static final StoreLock lock = new StoreLock();
+
     /**
      * Updates the file paths for loading and saving schedule data by retrieving them from 
      * the {@link SystemInitialisation} class. 
@@ -47,55 +62,202 @@ public class ScheduleManager {
     public static void setFilePaths() {
         originalPath = SystemInitialisation.getFilePath("ScheduleOriginal");
         updatedPath = SystemInitialisation.getFilePath("ScheduleUpdated");
+        // a schedule is identified by its Doctor ID and Date columns
+        changeLog = new ChangeLog(updatedPath, 2);
     }
 
-    /** Removes any schedules that are in the past. */
+    /**
+     * Removes any schedules that are in the past.
+     * <p>
+     * A schedule expires once its date has passed, or on its own date once its last
+     * time slot has passed. The earliest such time is remembered, so calls made before
+     * then return at once, and an expiry pass only visits past dates and today's
+     * schedules.
+     */
     public static void removeInvalidSchedules() {
-        // remove schedules that are in the past
-        schedules.removeIf(schedule -> schedule.getDate().isBefore(java.time.LocalDate.now()));
-        schedules.removeIf(schedule -> schedule.getDate().isEqual(java.time.LocalDate.now())
-                && schedule.getTimeSlots().stream().allMatch(time -> time.isBefore(java.time.LocalTime.now())));
+        LocalDateTime now = LocalDateTime.now();
+        if (nextExpiry != null && now.isBefore(nextExpiry)) {
+            return; // nothing can have expired yet
+        }
+        lock.write(() -> {
+            if (nextExpiry != null && now.isBefore(nextExpiry)) {
+                return; // another session has just removed them
+            }
+            LocalDate today = now.toLocalDate();
+
+            // every schedule on an earlier date has expired
+            NavigableMap<LocalDate, Set<Schedule>> pastDates = schedulesByDate.headMap(today, false);
+            for (Set<Schedule> dateSchedules : pastDates.values()) {
+                for (Schedule schedule : dateSchedules) {
+                    schedules.remove(schedule);
+                    unindexDoctorSchedule(schedule);
+                }
+            }
+            pastDates.clear();
+
+            // today's schedules expire once their last time slot has passed; the new
+            // expiry is only published once it is final, for the sessions reading it
+            LocalDateTime expiry = today.plusDays(1).atStartOfDay();
+            Set<Schedule> todaySchedules = schedulesByDate.get(today);
+            if (todaySchedules != null) {
+                Iterator<Schedule> iterator = todaySchedules.iterator();
+                while (iterator.hasNext()) {
+                    Schedule schedule = iterator.next();
+                    LocalTime lastTimeSlot = schedule.getLastTimeSlot();
+                    if (lastTimeSlot == null || lastTimeSlot.isBefore(now.toLocalTime())) {
+                        iterator.remove();
+                        schedules.remove(schedule);
+                        unindexDoctorSchedule(schedule);
+                    } else if (today.atTime(lastTimeSlot).isBefore(expiry)) {
+                        expiry = today.atTime(lastTimeSlot);
+                    }
+                }
+                if (todaySchedules.isEmpty()) {
+                    schedulesByDate.remove(today);
+                }
+            }
+            nextExpiry = expiry;
+        });
+    }
+
+    /**
+     * Adds a schedule to the per-doctor and per-date indexes.
+     * 
+     * @param schedule The schedule to index
+     */
+    private static void indexSchedule(Schedule schedule) {
+        schedulesByDoctor.computeIfAbsent(schedule.getDoctorID().toUpperCase(), id -> new TreeMap<>())
+                .put(schedule.getDate(), schedule);
+        schedulesByDate.computeIfAbsent(schedule.getDate(), date -> new LinkedHashSet<>()).add(schedule);
+        nextExpiry = null; // the new schedule may expire sooner
+    }
+
+    /**
+     * Removes a schedule from the per-doctor and per-date indexes.
+     * 
+     * @param schedule The schedule to remove
+     */
+    private static void unindexSchedule(Schedule schedule) {
+        unindexDoctorSchedule(schedule);
+        Set<Schedule> dateSchedules = schedulesByDate.get(schedule.getDate());
+        if (dateSchedules != null && dateSchedules.remove(schedule) && dateSchedules.isEmpty()) {
+            schedulesByDate.remove(schedule.getDate());
+        }
+    }
+
+    /**
+     * Removes a schedule from the per-doctor index only.
+     * 
+     * @param schedule The schedule to remove
+     */
+    private static void unindexDoctorSchedule(Schedule schedule) {
+        NavigableMap<LocalDate, Schedule> doctorSchedules = schedulesByDoctor.get(schedule.getDoctorID().toUpperCase());
+        if (doctorSchedules != null && doctorSchedules.remove(schedule.getDate(), schedule)
+                && doctorSchedules.isEmpty()) {
+            schedulesByDoctor.remove(schedule.getDoctorID().toUpperCase());
+        }
+    }
+
+    /**
+     * Finds the schedule of a doctor on a given date.
+     * 
+     * @param doctorID The ID of the doctor
+     * @param date     The date of the schedule
+     * @return The schedule, or {@code null} if the doctor has no schedule on that date
+     */
+    public static Schedule findSchedule(String doctorID, LocalDate date) {
+        return lock.read(() -> {
+            NavigableMap<LocalDate, Schedule> doctorSchedules = schedulesByDoctor.get(doctorID.toUpperCase());
+            return doctorSchedules == null ? null : doctorSchedules.get(date);
+        });
     }
 
     /**
      * Loads the schedules from the CSV file (original or updated based on the first
-     * run).
+     * run). Any logged changes are replayed over the updated file before it is read.
      * 
      * @param isFirstRun {@code true} if the application is running for the first
      *                   time;
      *                   {@code false} otherwise.
      */
     public static void loadSchedules(boolean isFirstRun) {
-        // Load data from the file
-        String filePath = isFirstRun ? originalPath : updatedPath;
+        lock.write(() -> {
+            // Load data from the file
+            String filePath = isFirstRun ? originalPath : updatedPath;
+            if (!isFirstRun) {
+                changeLog.replay();
+            }
 
-        schedules.clear();
+            schedules.clear();
+            schedulesByDoctor.clear();
+            schedulesByDate.clear();
+            nextExpiry = null;
 
-        Map<String, Integer> schedulesColumnMapping = new HashMap<>();
-        schedulesColumnMapping.put("Doctor ID", 0);
-        schedulesColumnMapping.put("Date", 1);
-        schedulesColumnMapping.put("Time Slots", 2);
+            Map<String, Integer> schedulesColumnMapping = new HashMap<>();
+            schedulesColumnMapping.put("Doctor ID", 0);
+            schedulesColumnMapping.put("Date", 1);
+            schedulesColumnMapping.put("Time Slots", 2);
 
-        List<Schedule> schedulesMapList = CSVread.readScheduleCSV(filePath, schedulesColumnMapping);
+            // a warm start reads the binary snapshot when it is current
+            List<Schedule> schedulesMapList = isFirstRun ? null : BinarySnapshot.readSchedules(filePath);
+            if (schedulesMapList == null) {
+                schedulesMapList = CSVread.readScheduleCSV(filePath, schedulesColumnMapping);
+            }
 
-        for (Schedule schedule : schedulesMapList) {
-            if (schedule instanceof Schedule) {
-                schedules.add(schedule);
+            for (Schedule schedule : schedulesMapList) {
+                if (schedule instanceof Schedule) {
+                    schedules.add(schedule);
+                    indexSchedule(schedule);
+                }
             }
-        }
 
-        if (schedules.isEmpty()) {
-            System.out.println("No schedules were loaded.");
-        } else {
-            System.out.println("Schedules successfully loaded: " + schedules.size());
-        }
-        removeInvalidSchedules();
+            if (schedules.isEmpty()) {
+                System.out.println("No schedules were loaded.");
+            } else {
+                System.out.println("Schedules successfully loaded: " + schedules.size());
+            }
+            removeInvalidSchedules();
+        });
     }
 
     /** Duplicates the current list of schedules to the updated CSV file. */
     public static void duplicateSchedule() {
         removeInvalidSchedules();
-        CSVwrite.writeCSVList(updatedPath, schedules);
+        lock.read(() -> changeLog.rewrite(new ArrayList<>(schedules)));
+    }
+
+    /**
+     * Merges the change log into the updated CSV file and writes a binary snapshot
+     * of the schedules beside it, to be read on the next start.
+     */
+    public static void saveSnapshot() {
+        lock.read(() -> {
+            changeLog.replay();
+            BinarySnapshot.writeSchedules(updatedPath, new ArrayList<>(schedules));
+        });
+    }
+
+    /**
+     * Returns the key identifying a schedule in the change log.
+     * 
+     * @param schedule The schedule to identify
+     * @return The Doctor ID and Date of the schedule, comma separated
+     */
+    private static String scheduleKey(Schedule schedule) {
+        return schedule.getDoctorID() + "," + schedule.getDate();
+    }
+
+    /**
+     * Saves the changes made to the time slots of a single schedule by appending
+     * it to the change log, instead of rewriting the whole schedule CSV file.
+     * 
+     * @param schedule The schedule that has been modified
+     */
+    public static void updateSchedule(Schedule schedule) {
+        lock.write(() -> {
+            nextExpiry = null; // the last time slot may have changed
+            changeLog.update(scheduleKey(schedule), schedule.toCSVRow());
+        });
     }
 
     /**
@@ -103,7 +265,7 @@ public class ScheduleManager {
      * Removes any invalid schedules before displaying.
      */
     public static void displaySchedules() {
-        removeInvalidSchedules();
+        List<Schedule> schedules = getSchedules();
         if (schedules.isEmpty()) {
             System.out.println("\nThe schedules is currently empty.");
         } else {
@@ -122,13 +284,10 @@ public class ScheduleManager {
      */
     public static List<Schedule> getScheduleOfDoctor(String doctorID) {
         removeInvalidSchedules();
-        List<Schedule> doctorSchedules = new ArrayList<>();
-        for (Schedule schedule : schedules) {
-            if (schedule.getDoctorID().equalsIgnoreCase(doctorID)) {
-                doctorSchedules.add(schedule);
-            }
-        }
-        return doctorSchedules;
+        return lock.read(() -> {
+            NavigableMap<LocalDate, Schedule> doctorSchedules = schedulesByDoctor.get(doctorID.toUpperCase());
+            return doctorSchedules == null ? new ArrayList<>() : new ArrayList<>(doctorSchedules.values());
+        });
     }
 
     /**
@@ -141,13 +300,8 @@ public class ScheduleManager {
      */
     public static boolean isDoctorAvailable(String doctorID, LocalDate date, LocalTime time) {
         removeInvalidSchedules();
-        for (Schedule schedule : schedules) {
-            if (schedule.getDoctorID().equalsIgnoreCase(doctorID) && schedule.getDate().isEqual(date)
-                    && schedule.getTimeSlots().contains(time)) {
-                return true;
-            }
-        }
-        return false;
+        Schedule schedule = findSchedule(doctorID, date);
+        return schedule != null && schedule.hasTimeSlot(time);
     }
 
     /**
@@ -157,31 +311,140 @@ public class ScheduleManager {
      */
     public static List<Schedule> getSchedules() {
         removeInvalidSchedules();
-        return schedules;
+        return lock.read(() -> new ArrayList<>(schedules));
     }
 
     /**
-     * Adds a new schedule to the system and duplicates the schedule list in the
+     * Adds a new schedule to the system and records it in the change log of the
      * updated CSV file.
+     * <p>
+     * If another session has added a schedule for the same doctor and date in the
+     * meantime, the time slots are merged into that schedule instead.
      * 
      * @param schedule The new schedule to add
      */
     public static void addSchedule(Schedule schedule) {
         removeInvalidSchedules();
-        schedules.add(schedule);
-        duplicateSchedule();
+        lock.write(() -> {
+            Schedule existing = findSchedule(schedule.getDoctorID(), schedule.getDate());
+            if (existing != null) {
+                for (LocalTime timeSlot : schedule.getTimeSlots()) {
+                    existing.addTimeSlot(timeSlot);
+                }
+                updateSchedule(existing);
+                return;
+            }
+            schedules.add(schedule);
+            indexSchedule(schedule);
+            changeLog.insert(scheduleKey(schedule), schedule.toCSVRow());
+        });
     }
 
     /**
-     * Removes a schedule from the system and duplicates the schedule list in the
-     * updated CSV file.
+     * Claims an available time slot of a doctor so that it can be booked, and records
+     * the change in the change log of the updated CSV file.
+     * <p>
+     * The slot is claimed by an atomic removal from the schedule's time slots rather
+     * than under the lock of the schedules, so sessions booking different slots never
+     * wait for each other, and when several sessions claim the same slot exactly one
+     * succeeds. The claim is only kept if the schedule is still in the system once it
+     * has been recorded.
+     * 
+     * @param doctorID The ID of the doctor
+     * @param date     The date of the time slot
+     * @param time     The time slot to claim
+     * @return {@code true} if this call claimed the slot, {@code false} if the doctor is
+     *         not available at that time or another session claimed the slot first
+     */
+    public static boolean claimTimeSlot(String doctorID, LocalDate date, LocalTime time) {
+        removeInvalidSchedules();
+        Schedule schedule = findSchedule(doctorID, date);
+        if (schedule == null || !schedule.claimTimeSlot(time)) {
+            return false;
+        }
+        return lock.write(() -> {
+            if (!schedules.contains(schedule)) {
+                return false; // the schedule was removed meanwhile, along with the slot
+            }
+            // a schedule without time slots is removed, unless a slot was released meanwhile
+            if (schedule.getTimeSlots().isEmpty()) {
+                removeSchedule(schedule);
+            } else {
+                updateSchedule(schedule);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Returns a time slot to a doctor's schedule, creating the schedule for that date
+     * if the doctor has none, and records the change in the change log of the updated
+     * CSV file.
+     * 
+     * @param doctorID The ID of the doctor
+     * @param date     The date of the time slot
+     * @param time     The time slot to return
+     */
+    public static void releaseTimeSlot(String doctorID, LocalDate date, LocalTime time) {
+        removeInvalidSchedules();
+        lock.write(() -> {
+            Schedule schedule = findSchedule(doctorID, date);
+            if (schedule != null) {
+                schedule.addTimeSlot(time);
+                updateSchedule(schedule);
+            } else {
+                addSchedule(new Schedule(doctorID, date, List.of(time)));
+            }
+        });
+    }
+
+    /**
+     * Adds time slots to a doctor's schedule for a date, creating the schedule if the
+     * doctor has none, and records the change in the change log of the updated CSV file.
+     * <p>
+     * The slots are merged under the lock of the schedules, so a schedule that another
+     * session empties or removes meanwhile is never written back with stale slots.
+     * 
+     * @param doctorID  The ID of the doctor
+     * @param date      The date of the time slots
+     * @param timeSlots The time slots to add
+     * @return The time slots added, leaving out those the schedule already had
+     */
+    public static List<LocalTime> addTimeSlots(String doctorID, LocalDate date, List<LocalTime> timeSlots) {
+        removeInvalidSchedules();
+        return lock.write(() -> {
+            List<LocalTime> added = new ArrayList<>();
+            Schedule schedule = findSchedule(doctorID, date);
+            if (schedule == null) {
+                addSchedule(new Schedule(doctorID, date, timeSlots));
+                added.addAll(timeSlots);
+                return added;
+            }
+            for (LocalTime timeSlot : timeSlots) {
+                if (!schedule.hasTimeSlot(timeSlot)) {
+                    schedule.addTimeSlot(timeSlot);
+                    added.add(timeSlot);
+                }
+            }
+            updateSchedule(schedule);
+            return added;
+        });
+    }
+
+    /**
+     * Removes a schedule from the system and records the removal in the change
+     * log of the updated CSV file.
      * 
      * @param schedule The schedule to remove
      */
     public static void removeSchedule(Schedule schedule) {
         removeInvalidSchedules();
-        schedules.remove(schedule);
-        duplicateSchedule();
+        lock.write(() -> {
+            if (schedules.remove(schedule)) {
+                unindexSchedule(schedule);
+                changeLog.delete(scheduleKey(schedule));
+            }
+        });
     }
 
     /**
@@ -194,17 +457,8 @@ public class ScheduleManager {
      * @return {@code true} if a conflict exists, {@code false} otherwise
      */
     public static boolean checkDuplicateSchedule(LocalDate date, LocalTime time, Doctor doctor) {
-        // loop through the entire schedules list
-        for (Schedule schedule : schedules) {
-            // if a schedule for the Doctor with date passed is found
-            if (schedule.getDoctorID().equals(doctor.getHospitalID()) && schedule.getDate().equals(date)) {
-                // check the timeSlots
-                if (schedule.getTimeSlots().contains(time)) {
-                    return true; // Conflict found
-                }
-            }
-        }
-        return false; // no conflicts
+        Schedule schedule = findSchedule(doctor.getHospitalID(), date);
+        return schedule != null && schedule.hasTimeSlot(time);
     }
 
     /**
@@ -218,20 +472,11 @@ public class ScheduleManager {
      *         {@code false} otherwise
      */
     public static boolean checkInterval(LocalDate date, LocalTime time, Doctor doctor) {
-        for (Schedule schedule : schedules) {
-            if (schedule.getDoctorID().equals(doctor.getHospitalID()) &&
-                    schedule.getDate().equals(date)) {
-                // check whether incoming timeSlot has a 1hr difference between before and after
-                // time
-                // example before < incoming < after, 1hr interval
-                for (LocalTime existingTime : schedule.getTimeSlots()) {
-                    if (Math.abs(Duration.between(existingTime, time).toMinutes()) < 60) {
-                        return true; // Conflict found
-                    }
-                }
-            }
-        }
-        return false; // No conflict
+        Schedule schedule = findSchedule(doctor.getHospitalID(), date);
+        // check whether incoming timeSlot has a 1hr difference between before and after
+        // time
+        // example before < incoming < after, 1hr interval
+        return schedule != null && schedule.hasTimeSlotWithin(time, 60);
     }
 
     /**
@@ -271,12 +516,35 @@ public class ScheduleManager {
     }
 
     public static void removeDaySchedule(LocalDate date, Doctor doctor){
-        schedules.removeIf(schedule -> 
-        schedule.getDoctorID().equalsIgnoreCase(doctor.getHospitalID()) && 
-        schedule.getDate().isEqual(date));
+        removeDaySchedules(Map.of(doctor.getHospitalID(), Set.of(date)));
 
         System.out.println("All availability for " + date + " has been removed for Doctor " + doctor.getHospitalID() + ".");
-        // Save the updated schedule list to the file
-        ScheduleManager.duplicateSchedule();
+    }
+
+    /**
+     * Removes the schedules of several doctors on several days at once, such as when
+     * leave requests are approved together. Each schedule is found through the
+     * doctor's index, and the removals are saved with a single write to the change log.
+     * 
+     * @param daysByDoctor The days to clear for each doctor ID
+     * @return The number of schedules removed
+     */
+    public static int removeDaySchedules(Map<String, Set<LocalDate>> daysByDoctor) {
+        return lock.write(() -> {
+            List<String> removed = new ArrayList<>();
+            for (Map.Entry<String, Set<LocalDate>> entry : daysByDoctor.entrySet()) {
+                for (LocalDate date : entry.getValue()) {
+                    Schedule schedule = findSchedule(entry.getKey(), date);
+                    if (schedule != null) {
+                        schedules.remove(schedule);
+                        unindexSchedule(schedule);
+                        removed.add(scheduleKey(schedule));
+                    }
+                }
+            }
+            // Save the removals to the file
+            changeLog.deleteAll(removed);
+            return removed.size();
+        });
     }
 }
\ No newline at end of file
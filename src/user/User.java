@@ -1,5 +1,7 @@
 package user;
 
+import utility.PasswordHasher;
+
 /**
  * Represents a user in the HMS
  * Parent Class for all users in our system
@@ -127,10 +129,12 @@ public class User {
 
     /**
      * Updates password of the user
-     * @param password
+     * <p>
+     * Only the salted hash of a password is stored, so the account managers hash a new
+     * password with {@link PasswordHasher} before setting it.
+     * @param password the new password, hashed by {@link PasswordHasher}
      */
     public void setPassword(String password) {
-        password.trim(); //ensure consistency
         this.password = password;
     }
 
@@ -9,6 +9,7 @@ import accounts.DoctorsAcc;
 import accounts.PatientsAcc;
 import appointment.Appointment;
 import appointment.AppointmentManager;
+import appointment.ApptStatus;
 import interfaces.AdminApptInterface;
 import medicalrecord.MedicalRecord;
 import medicalrecord.MedicalRecordManager;
@@ -199,7 +200,8 @@ public class AdminApptUI implements AdminApptInterface{
 
     /**
      * Displays the main menu to filter appointment outcomes and handles user input.
-     * Allows the admin to view outcomes by various criteria such as all outcomes or by patient ID.
+     * Allows the admin to view outcomes by various criteria such as all outcomes or by patient ID,
+     * or the outcomes recorded on completed appointments.
      * 
      * @param sc A {@link Scanner} object to read user input.
      */
@@ -210,7 +212,8 @@ public class AdminApptUI implements AdminApptInterface{
             System.out.printf("%s\n", "-".repeat(36));
             System.out.println("1. View All Exisiting Appointment Outcomes");
             System.out.println("2. View by PatientID");
-            System.out.println("3. Go Back");
+            System.out.println("3. View Completed Appointment Outcomes");
+            System.out.println("4. Go Back");
             System.out.print("Choice: ");
             try {
                 choice = sc.nextInt();
@@ -229,6 +232,9 @@ public class AdminApptUI implements AdminApptInterface{
                     selectPatientOutcomes(sc);
                     break;
                 case 3:
+                    viewCompletedApptOutcomes();
+                    break;
+                case 4:
                     return;
                 default:
                     System.out.println("Invalid choice, please try again.");
@@ -244,6 +250,22 @@ public class AdminApptUI implements AdminApptInterface{
         MedicalRecordManager.displayMedicalRecords();
     }
 
+    /**
+     * Displays the outcomes recorded on every completed appointment, including those
+     * closed before the application started.
+     */
+    public void viewCompletedApptOutcomes(){
+        List<Appointment> completed = AppointmentManager.getPastAppointmentsByStatus(ApptStatus.COMPLETED);
+        if (completed.isEmpty()) {
+            System.out.println("\nThere are no completed appointments.");
+        } else {
+            System.out.println("\nThe outcomes of completed appointments are:");
+            for (Appointment appt : completed) {
+                System.out.println(appt.getApptInfo());
+            }
+        }
+    }
+
     /**
      * Filters appointment outcomes by a specific patient based on PatientID.
      * 
@@ -15,6 +15,7 @@ import user.Administrator;
 import user.Role;
 import utility.PasswordResetManager;
 import utility.PasswordResetRequest;
+import utility.Session;
 
 /**
  * The class implements the {@link AdminMenu} interface to provide a UI for administrators. 
@@ -60,7 +61,7 @@ public class AdminUI implements AdminMenu{
      */
     public void displayMenu() {
         int choice = -1;
-        Scanner sc = new Scanner(System.in);
+        Scanner sc = Session.current().getScanner();
         do {
             System.out.println("\n|-------- Admin Menu --------|");
             System.out.printf("%s\n", "-".repeat(30));
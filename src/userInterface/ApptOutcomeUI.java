@@ -24,17 +24,27 @@ public class ApptOutcomeUI implements ApptOutcomeInterface {
     /**
      * Allows the user to update the medication status of a medical record.
      * Displays the current pending prescriptions and prompts the user to select a medical record 
-     * to update its status to "dispensed".
+     * to update its status to "dispensed", or to dispense every pending prescription at once.
      * 
      * @param sc A {@link Scanner} object to read user input.
      */
     public void updateApptMedication(Scanner sc){
         System.out.println("\nCurrent Pending Prescriptions: ");
         MedicalRecordManager.displayPendingMR();
-        MedicalRecord medicalRecord = selectMRhelper(sc);
+        System.out.println("Enter ALL to dispense every pending prescription.");
+        System.out.print("Enter MedicalR ID to update Prescription Status: ");
+        String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("ALL")) {
+            MedicalRecordManager.dispenseAllPending();
+            return;
+        }
+
+        MedicalRecord medicalRecord = MedicalRecordManager.findMedicalRecordbyID(input);
         if(medicalRecord!=null){
             //update status to dispensed
             MedicalRecordManager.updateMRStatus(medicalRecord);
+        } else {
+            System.out.println("Medical Record not found.");
         }
     }
 
@@ -19,7 +19,6 @@ import medicalrecord.PrescriptionStatus;
 import schedule.Schedule;
 import schedule.ScheduleManager;
 import user.Doctor;
-import utility.IDGenerator;
 
 /**
  * The class implements {@link DocApptInterface} to provide a UI for managing
@@ -211,12 +210,10 @@ public class DocApptUI implements DocApptInterface {
      */
     public void acceptAppointmentRequest(Appointment appointment, Doctor doctor) {
         System.out.println("Accept Appointment Request");
-        // set the appointment status to scheduled
-        appointment.acceptAppointment();
-        // save to file
-        AppointmentManager.duplicateAppointments();
-        // set availability for the doctor at this time slot: removing the time slot
-        scheduleInterface.removeSchedule(appointment.getDate(), appointment.getTime(), doctor);
+        // claim the doctor's time slot and set the appointment status to scheduled, saved to file by the manager
+        if (!AppointmentManager.acceptAppointment(appointment)) {
+            System.out.println("The time slot is no longer available, the request cannot be accepted.");
+        }
     }
 
     /**
@@ -229,7 +226,7 @@ public class DocApptUI implements DocApptInterface {
         System.out.println("Decline Appointment Request");
         appointment.cancelAppointment();
         // save to file
-        AppointmentManager.duplicateAppointments();
+        AppointmentManager.updateAppointment(appointment);
     }
 
     /**
@@ -330,8 +327,7 @@ public class DocApptUI implements DocApptInterface {
         AppointmentManager.completeAppointment(appointment);
 
         // create new Medical Record to signify Appointment Completed
-        String medicalRID = IDGenerator.generateID("MR", MedicalRecordManager.getMedicalRecords(),
-                MedicalRecord::getMedicalRID, 3);
+        String medicalRID = MedicalRecordManager.nextMedicalRID();
         record.setMedicalRID(medicalRID);
         record.setDoctorID(appointment.getDoctor().getHospitalID());
         record.setPatientID(appointment.getPatient().getHospitalID());
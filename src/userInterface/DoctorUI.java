@@ -15,6 +15,7 @@ import main.HMSApp;
 import medicalrecord.MedicalRecord;
 import user.Doctor;
 import user.Patient;
+import utility.Session;
 
 /**
  * The class implements the {@link DoctorMenu} interface to provide a UI for
@@ -62,7 +63,7 @@ public class DoctorUI implements DoctorMenu {
      * Implements the {@link CommonMenu#displayMenu()} method
      */
     public void displayMenu() {
-        Scanner sc = new Scanner(System.in);
+        Scanner sc = Session.current().getScanner();
         int choice = -1;
 
         do {
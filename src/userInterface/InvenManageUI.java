@@ -172,8 +172,7 @@ public class InvenManageUI implements InvenManageInterface{
      */
     public void deductStock(Scanner sc, Medicine medicine){
         try {
-            //pass the name as a string
-            InventoryItem itemName = InventoryManager.findItemByName(medicine.name()); //returns itemName
+            InventoryItem itemName = InventoryManager.findItem(medicine); //returns itemName
             if(itemName!=null){
                 int currentQuantity = itemName.getQuantity();
                 System.out.println("\nThe current quantity of " + itemName.getItemName() + " is: " + currentQuantity);
@@ -1,7 +1,10 @@
 package userInterface;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
 import leave.*;
 import user.Doctor;
@@ -42,7 +45,7 @@ public class LeaveUI implements LeaveInterface {
                     continue; // Prompt user to enter the date again
                 }
                 break; // Exit loop if date is valid
-            } catch (Exception e) {
+            } catch (DateTimeParseException e) {
                 //catches incorrect date format
                 System.out.println("Invalid date format. Please enter the date in the format yyyy-mm-dd.");
             }
@@ -87,20 +90,40 @@ public class LeaveUI implements LeaveInterface {
     /**
      * Manages leave requests by allowing approval or rejection.
      * <p>
-     * This method displays all leave requests, prompts the user to select a specific
-     * request by ID, and provides options to approve or reject the request.
+     * This method displays all leave requests, prompts the user to select one or more
+     * requests by ID, or every pending request, and provides options to approve or
+     * reject them together.
      *
      * @param sc A {@link Scanner} object for user input.
      */
     public void manageLeaveRequests(Scanner sc){
         displayAllLeaveRequests();
         System.out.println("\nEnter the leave request ID you would like to manage");
+        System.out.println("Separate several IDs with commas, or enter ALL for every pending request.");
         System.out.print("Leave ID: ");
-        String leaveID = sc.nextLine().trim();
+        String input = sc.nextLine().trim();
+        List<String> leaveIDs = new ArrayList<>();
+        if (input.equalsIgnoreCase("ALL")) {
+            for (Leave leave : LeaveManager.getLeaves()) {
+                if (leave.getLeaveStatus() == LeaveStatus.PENDING) {
+                    leaveIDs.add(leave.getLeaveID());
+                }
+            }
+            if (leaveIDs.isEmpty()) {
+                System.out.println("There are no pending leave requests.");
+                return;
+            }
+        } else {
+            for (String leaveID : input.split(",")) {
+                if (!leaveID.isBlank()) {
+                    leaveIDs.add(leaveID.trim());
+                }
+            }
+        }
         int choice = -1;
         
         do {
-            System.out.println("\nLeave Request: " + leaveID);
+            System.out.println("\nLeave Request: " + String.join(", ", leaveIDs));
             System.out.printf("%s\n", "-".repeat(27));
             System.out.println("1. Approve");
             System.out.println("2. Reject");
@@ -117,10 +140,10 @@ public class LeaveUI implements LeaveInterface {
 
             switch (choice) {
                 case 1:
-                    approveLeaveRequests(leaveID);
+                    approveLeaveRequests(leaveIDs);
                     break;
                 case 2:
-                    rejectLeaveRequests(leaveID);
+                    rejectLeaveRequests(leaveIDs);
                     break;
                 case 3:
                     return;
@@ -132,21 +155,23 @@ public class LeaveUI implements LeaveInterface {
     }
 
     /**
-     * Approves a specific leave request.
+     * Approves the selected leave requests together.
      *
-     * @param leaveID The ID of the leave request to approve.
+     * @param leaveIDs The IDs of the leave requests to approve.
      */
-    public void approveLeaveRequests(String leaveID){
-        LeaveManager.approveLeave(leaveID);
+    public void approveLeaveRequests(List<String> leaveIDs){
+        LeaveManager.approveLeaves(leaveIDs);
     }
 
     /**
-     * Rejects a specific leave request.
+     * Rejects the selected leave requests.
      *
-     * @param leaveID The ID of the leave request to reject.
+     * @param leaveIDs The IDs of the leave requests to reject.
      */
-    public void rejectLeaveRequests(String leaveID){
-        LeaveManager.rejectLeave(leaveID);
+    public void rejectLeaveRequests(List<String> leaveIDs){
+        for (String leaveID : leaveIDs) {
+            LeaveManager.rejectLeave(leaveID);
+        }
     }
 
     /**
@@ -197,7 +197,7 @@ public class MedicalRecordUI implements MedicalRecInterface {
                     break;
             }
         }
-        MedicalRecordManager.duplicateMedicalRecord();
+        MedicalRecordManager.updateMedicalRecord(record);
         System.out.println("Record updated successfully.");
     }
 }
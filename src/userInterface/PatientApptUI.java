@@ -3,7 +3,6 @@ package userInterface;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
@@ -139,8 +138,11 @@ public class PatientApptUI implements PatientApptInterface {
                 continue; // Restart the loop to prompt the user again
             }
 
-            // check if the doctor is available at entered date and time
-            if (!ScheduleManager.isDoctorAvailable(doctorID, date, time)) {
+            // check if the doctor is available at entered date and time. A scheduled
+            // appointment is booked at once, which fails if another session booked the slot first
+            boolean available = ScheduleManager.isDoctorAvailable(doctorID, date, time)
+                    && (isRequest || AppointmentManager.scheduleAppointment(doctorID, patient.getHospitalID(), date, time));
+            if (!available) {
                 System.out.println("\nDoctor is not available at the specified time.");
                 System.out.println("Do you want to try again?");
                 System.out.println("1. Yes");
@@ -165,10 +167,7 @@ public class PatientApptUI implements PatientApptInterface {
             break;
         }
 
-        if (!isRequest) {
-            // Schedule an appointment at the specified date and time
-            AppointmentManager.scheduleAppointment(doctorID, patient.getHospitalID(), date, time);
-        } else {
+        if (isRequest) {
             // Request an appointment at the specified date and time
             AppointmentManager.requestAppointment(doctorID, patient.getHospitalID(), date, time);
         }
@@ -227,10 +226,8 @@ public class PatientApptUI implements PatientApptInterface {
         // select an available time slot. If the time slot is selected, cancel the
         // previous appointment
         if (selectTimeSlot(sc, doctor.getHospitalID(), patient, false)) {
-            // cancel the previous appointment
+            // cancel the previous appointment, saved to file by the manager
             AppointmentManager.removeAppointment(appt);
-            // save to file
-            AppointmentManager.duplicateAppointments();
         }
     }
 
@@ -286,15 +283,9 @@ public class PatientApptUI implements PatientApptInterface {
      */
     public void viewScheduledAppointments(Patient patient) {
         System.out.println("\nViewing Scheduled Appointments");
-        // get all appointments for the patient
-        List<Appointment> patientAppts = AppointmentManager.getAppointmentsByPatient(patient.getHospitalID());
-        // filter out the scheduled appointments
-        List<Appointment> scheduledAppts = new ArrayList<>();
-        for (Appointment appt : patientAppts) {
-            if (appt.getStatus() == ApptStatus.SCHEDULED) {
-                scheduledAppts.add(appt);
-            }
-        }
+        // get the scheduled appointments for the patient
+        List<Appointment> scheduledAppts = AppointmentManager.getAppointmentsByPatient(patient.getHospitalID(),
+                ApptStatus.SCHEDULED);
         if (scheduledAppts.isEmpty()) {
             System.out.println("No appointments found.");
         } else {
@@ -311,14 +302,8 @@ public class PatientApptUI implements PatientApptInterface {
      * @param patient The patient whose past appointments outcomes are to be viewed.
      */
     public void viewPastApptOutcomes(Patient patient) {
-        List<Appointment> patientAppts = AppointmentManager.getAppointmentsByPatient(patient.getHospitalID());
-
-        List<Appointment> pastAppts = new ArrayList<>();
-        for (Appointment appt : patientAppts) {
-            if (appt.getStatus() == ApptStatus.COMPLETED) {
-                pastAppts.add(appt);
-            }
-        }
+        List<Appointment> pastAppts = AppointmentManager.getPastAppointmentsByPatient(patient.getHospitalID(),
+                ApptStatus.COMPLETED);
 
         if (pastAppts.isEmpty()) {
             System.out.println("No past appointments found for " + patient.getName());
@@ -9,6 +9,7 @@ import interfaces.PatientApptInterface;
 import interfaces.PatientMenu;
 import main.HMSApp;
 import user.Patient;
+import utility.Session;
 
 /**
  * The class implements the {@link PatientMenu} interface to provide a UI for patients. 
@@ -46,7 +47,7 @@ public class PatientUI implements PatientMenu{
      */
     public void displayMenu() {
         int choice=-1;
-        Scanner sc = new Scanner(System.in);
+        Scanner sc = Session.current().getScanner();
         do {
             System.out.println("\nPatient Menu ");
             System.out.printf("%s\n", "-".repeat(27));
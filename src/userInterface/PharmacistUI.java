@@ -11,6 +11,7 @@ import interfaces.ReplenishManageInterface;
 import inventory.ReplenishManager;
 import main.HMSApp;
 import user.Pharmacist;
+import utility.Session;
 
 /**
  * The class implements the {@link PharmacistMenu} interface to provide a UI for pharmacists. 
@@ -55,7 +56,7 @@ public class PharmacistUI implements PharmacistMenu {
      */
     public void displayMenu() {
         int choice = -1;
-        Scanner sc = new Scanner(System.in);
+        Scanner sc = Session.current().getScanner();
         do {
             System.out.println("\nPharmacist Menus are listed Below");
             System.out.printf("%s\n", "-".repeat(27));
@@ -3,6 +3,7 @@ package userInterface;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -107,21 +108,22 @@ public class ScheduleUI implements ScheduleInterface {
                     continue; // Prompt user to enter the date again
                 }
                 break; // Exit loop if date is valid
-            } catch (Exception e) {
+            } catch (DateTimeParseException e) {
                 // catches incorrect date format
                 System.out.println("Invalid date format. Please enter the date in the format yyyy-mm-dd.");
             }
         }
 
         while (true) {
+            System.out.println("\nSet schedule for " + dateStr);
+            System.out.println("Enter the time slots comma seperated (HH:mm, HH:mm 1-hour intervals)");
+            System.out.print("Enter your available timeslot: ");
+
+            // get user input in a line, then seperate time by commas (,)
+            String timeSlots = sc.nextLine();
+
             // catch any unexpected errors
             try {
-                System.out.println("\nSet schedule for " + dateStr);
-                System.out.println("Enter the time slots comma seperated (HH:mm, HH:mm 1-hour intervals)");
-                System.out.print("Enter your available timeslot: ");
-
-                // get user input in a line, then seperate time by commas (,)
-                String timeSlots = sc.nextLine();
                 List<String> newTimeSlotsStr = Arrays.asList(timeSlots.split(", "));
                 List<LocalTime> newTimeSlots = new ArrayList<>();
                 boolean isValidInput = true;
@@ -205,23 +207,9 @@ public class ScheduleUI implements ScheduleInterface {
      */
     public void addSchedule(LocalDate date, LocalTime time, Doctor doctor) {
         if (ScheduleManager.checkValidTime(date, time)) {
-            List<Schedule> schedules = ScheduleManager.getScheduleOfDoctor(doctor.getHospitalID());
-            boolean isDateInSchedule = false;
-            for (Schedule schedule : schedules) {
-                if (schedule.getDate().isEqual(date)) {
-                    isDateInSchedule = true;
-                    schedule.addTimeSlot(time);
-                    break;
-                }
-            }
-            if (!isDateInSchedule) {
-                Schedule newSchedule = new Schedule(doctor.getHospitalID(), date, List.of(time));
-                ScheduleManager.addSchedule(newSchedule);
-            }
+            // added to the schedule of that date, or a new schedule, saved to file by the manager
+            ScheduleManager.releaseTimeSlot(doctor.getHospitalID(), date, time);
             System.out.println("Time slot added successfully.");
-
-            // save to file
-            ScheduleManager.duplicateSchedule();
         }
     }
 
@@ -238,46 +226,11 @@ public class ScheduleUI implements ScheduleInterface {
      * @param doctor    The {@link Doctor} whose schedule is being updated.
      */
     public void addSchedule(LocalDate date, List<LocalTime> timeSlots, Doctor doctor) {
-        // storing the valid time slots
-        List<LocalTime> validTimeSlots = new ArrayList<>();
-
-        // checking if the date is already in the schedule
-        boolean isDateInSchedule = false;
-        List<Schedule> schedules = ScheduleManager.getScheduleOfDoctor(doctor.getHospitalID());
-        for (Schedule schedule : schedules) {
-            if (schedule.getDate().isEqual(date)) {
-                isDateInSchedule = true;
-                // if the date is already in the schedule, add the new time slots to the
-                // existing time slots
-                for (LocalTime timeSlot : timeSlots) {
-                    boolean isTimeSlotValid = true;
-
-                    List<LocalTime> existingTimeSlots = schedule.getTimeSlots();
-                    for (LocalTime existingTimeSlot : existingTimeSlots) {
-                        if (timeSlot.equals(existingTimeSlot)) {
-                            isTimeSlotValid = false; // existed
-                            break;
-                        }
-                    }
-                    if (isTimeSlotValid) {
-                        schedule.addTimeSlot(timeSlot); // add the new time slot
-                        validTimeSlots.add(timeSlot);
-                    }
-                }
-            }
-        }
-        // if the date is not in the schedule, create a new schedule
-        if (!isDateInSchedule) {
-            Schedule newSchedule = new Schedule(doctor.getHospitalID(), date, timeSlots);
-            ScheduleManager.addSchedule(newSchedule);
-            validTimeSlots.addAll(timeSlots);
-        }
+        // merged into the schedule of that date, or a new schedule, saved to file by the manager
+        List<LocalTime> validTimeSlots = ScheduleManager.addTimeSlots(doctor.getHospitalID(), date, timeSlots);
 
         System.out.println("\nTime slots added successfully (excluding invalid time slots) are:");
         System.out.println(validTimeSlots);
-
-        // save to file
-        ScheduleManager.duplicateSchedule();
     }
 
     /**
@@ -288,24 +241,11 @@ public class ScheduleUI implements ScheduleInterface {
      * @param doctor The {@link Doctor} whose schedule is being updated.
      */
     public void removeSchedule(LocalDate date, LocalTime time, Doctor doctor) {
-        List<Schedule> schedules = ScheduleManager.getScheduleOfDoctor(doctor.getHospitalID());
-        Schedule scheduleToRemove = null;
-        for (Schedule schedule : schedules) {
-            if (schedule.getDate().isEqual(date)) {
-                scheduleToRemove = schedule;
-                break;
-            }
-        }
-        if (scheduleToRemove == null) {
-            System.out.println("No time slot found for this date.");
-        } else {
-            scheduleToRemove.removeTimeSlot(time);
-            if (scheduleToRemove.getTimeSlots().isEmpty()) {
-                ScheduleManager.removeSchedule(scheduleToRemove);
-            }
+        // an emptied schedule is removed, saved to file by the manager
+        if (ScheduleManager.claimTimeSlot(doctor.getHospitalID(), date, time)) {
             System.out.println("Time slot removed successfully.");
-            // save to file
-            ScheduleManager.duplicateSchedule();
+        } else {
+            System.out.println("No time slot found for this date.");
         }
     }
 }
@@ -0,0 +1,672 @@
+package utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import accounts.DoctorsAcc;
+import accounts.PatientEntry;
+import accounts.PatientsAcc;
+import appointment.*;
+import inventory.*;
+import leave.*;
+import medicalrecord.*;
+import schedule.*;
+import user.*;
+
+/**
+ * Reads and writes compact binary snapshots of the stores, kept beside each
+ * {@code (Updated).csv} file so that a warm restart can skip parsing text.
+ * <p>
+ * A snapshot is written when the app shuts down cleanly and is only read back while it
+ * is at least as new as its CSV file. Any change written to the CSV file afterwards, such
+ * as a compacted change log, makes the snapshot stale and the CSV file is read instead.
+ * <p>
+ * Dates are stored as epoch days, times as minutes of the day and enums as ordinals.
+ * IDs are stored once per file in a string table and interned when read, so rows that
+ * refer to the same doctor or patient share one string. Changing the fields of a store
+ * or the order of an enum constant requires bumping {@link #VERSION}; snapshots of any
+ * other version are ignored.
+ */
+public class BinarySnapshot {
+
+    /** Marks the start of every snapshot file ("HMSB"). */
+    private static final int MAGIC = 0x484D5342;
+
+    /** The version of the snapshot format. */
+    private static final int VERSION = 4;
+
+    /** Stored in place of a date that is not set. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * Writes one object into a snapshot.
+     *
+     * @param <T> The type of object written.
+     */
+    @FunctionalInterface
+    private interface RecordWriter<T> {
+        void write(SnapshotOutput output, T object) throws IOException;
+    }
+
+    /**
+     * Reads one object from a snapshot.
+     *
+     * @param <T> The type of object read.
+     */
+    @FunctionalInterface
+    private interface RecordReader<T> {
+        T read(SnapshotInput input) throws IOException;
+    }
+
+    /**
+     * Returns the path of the snapshot kept beside a CSV file.
+     *
+     * @param csvPath The path to the CSV file.
+     * @return The CSV path with its {@code .csv} extension replaced by {@code .bin}.
+     */
+    public static String snapshotPath(String csvPath) {
+        return csvPath.endsWith(".csv")
+                ? csvPath.substring(0, csvPath.length() - ".csv".length()) + ".bin"
+                : csvPath + ".bin";
+    }
+
+    /**
+     * Checks whether a CSV file has a snapshot beside it.
+     *
+     * @param csvPath The path to the CSV file.
+     * @return {@code true} if the snapshot exists.
+     */
+    public static boolean exists(String csvPath) {
+        return new File(snapshotPath(csvPath)).isFile();
+    }
+
+    /**
+     * Checks whether the snapshot of a CSV file can be read instead of the CSV file.
+     *
+     * @param csvPath The path to the CSV file.
+     * @return {@code true} if the snapshot exists and is at least as new as the CSV file.
+     */
+    public static boolean isCurrent(String csvPath) {
+        File snapshot = new File(snapshotPath(csvPath));
+        File csv = new File(csvPath);
+        return snapshot.isFile() && (!csv.exists() || snapshot.lastModified() >= csv.lastModified());
+    }
+
+    // users
+
+    /**
+     * Writes a snapshot of {@link User} objects, including the extra fields of
+     * {@link Patient} objects.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @param users   The users to write.
+     */
+    public static void writeUsers(String csvPath, List<? extends User> users) {
+        write(csvPath, users, (output, user) -> {
+            output.writeID(user.getHospitalID());
+            output.writeText(user.getName());
+            output.writeEnum(user.getRole());
+            output.writeText(user.getGender());
+            output.writeInt(user.getAge());
+            output.writeText(user.getPassword());
+            if (user instanceof Patient) {
+                Patient patient = (Patient) user;
+                output.writeText(patient.getDateOB());
+                output.writeText(patient.getBloodType());
+                output.writeText(patient.getEmail());
+            }
+        });
+    }
+
+    /**
+     * Reads a snapshot of users, creating objects of the given type in the same way
+     * as {@link CSVread#readCSV(String, Map, String)}.
+     *
+     * @param csvPath    The path to the CSV file the snapshot belongs to.
+     * @param objectType The type of object to create ("Patient", "Doctor", etc.).
+     * @return The users, or {@code null} if the snapshot is missing, stale or unreadable.
+     */
+    public static List<Object> readUsers(String csvPath, String objectType) {
+        Role[] roles = Role.values();
+        return read(csvPath, input -> {
+            String hospitalID = input.readID();
+            String name = input.readText();
+            Role role = roles[input.readInt()];
+            String gender = input.readText();
+            int age = input.readInt();
+            String password = input.readText();
+
+            switch (objectType) {
+                case "Patient":
+                    return new Patient(hospitalID, name, role, gender, age, password,
+                            input.readText(), input.readText(), input.readText());
+                case "Doctor":
+                    return new Doctor(hospitalID, name, role, gender, age, password);
+                case "Pharmacist":
+                    return new Pharmacist(hospitalID, name, role, gender, age, password);
+                case "Administrator":
+                    return new Administrator(hospitalID, name, role, gender, age, password);
+                default:
+                    return new User(hospitalID, name, role, gender, age, password);
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot of the index of the patient CSV file, holding the hospital ID,
+     * email and offset of each row but none of the rest of the profile.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @param entries The index entry of every row.
+     */
+    public static void writePatientIndex(String csvPath, List<PatientEntry> entries) {
+        write(csvPath, entries, (output, entry) -> {
+            output.writeID(entry.getHospitalID());
+            output.writeText(entry.getEmail());
+            output.writeLong(entry.getOffset());
+            output.writeInt(entry.getLength());
+        });
+    }
+
+    /**
+     * Reads a snapshot of the index of the patient CSV file.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The index entry of every row, or {@code null} if the snapshot is missing,
+     *         stale or unreadable.
+     */
+    public static List<PatientEntry> readPatientIndex(String csvPath) {
+        return read(csvPath, input -> new PatientEntry(input.readID(), input.readText(), input.readLong(),
+                input.readInt()));
+    }
+
+    // inventory
+
+    /**
+     * Writes a snapshot of {@link InventoryItem} objects.
+     *
+     * @param csvPath   The path to the CSV file the snapshot belongs to.
+     * @param inventory The items to write.
+     */
+    public static void writeInventory(String csvPath, List<InventoryItem> inventory) {
+        write(csvPath, inventory, (output, item) -> {
+            output.writeEnum(item.getItemName());
+            output.writeInt(item.getQuantity());
+            output.writeInt(item.getMinimumQuantity());
+        });
+    }
+
+    /**
+     * Reads a snapshot of {@link InventoryItem} objects.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The items, or {@code null} if the snapshot is missing, stale or unreadable.
+     */
+    public static List<InventoryItem> readInventory(String csvPath) {
+        Medicine[] medicines = Medicine.values();
+        return read(csvPath, input -> new InventoryItem(
+                medicines[input.readInt()], input.readInt(), input.readInt()));
+    }
+
+    /**
+     * Writes a snapshot of {@link ReplenishRequest} objects.
+     *
+     * @param csvPath  The path to the CSV file the snapshot belongs to.
+     * @param requests The requests to write.
+     */
+    public static void writeReplenish(String csvPath, List<ReplenishRequest> requests) {
+        write(csvPath, requests, (output, request) -> {
+            output.writeID(request.getRequestID());
+            output.writeText(request.getItemName());
+            output.writeInt(request.getReplenishQuantity());
+            output.writeText(request.getRequestedBy());
+            output.writeDate(request.getRequestDate());
+            output.writeEnum(request.getRequestStatus());
+            output.writeDate(request.getApprovalDate());
+        });
+    }
+
+    /**
+     * Reads a snapshot of {@link ReplenishRequest} objects.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The requests, or {@code null} if the snapshot is missing, stale or unreadable.
+     */
+    public static List<ReplenishRequest> readReplenish(String csvPath) {
+        RequestStatus[] statuses = RequestStatus.values();
+        return read(csvPath, input -> new ReplenishRequest(input.readID(), input.readText(), input.readInt(),
+                input.readText(), input.readDate(), statuses[input.readInt()], input.readDate()));
+    }
+
+    // medical records
+
+    /**
+     * Writes a snapshot of the index of the medical record CSV file, holding the ID,
+     * patient, prescription status and offset of each row but none of its clinical text.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @param entries The index entry of every row.
+     */
+    public static void writeMedicalRecordIndex(String csvPath, List<MedicalRecordEntry> entries) {
+        write(csvPath, entries, (output, entry) -> {
+            output.writeID(entry.getMedicalRID());
+            output.writeID(entry.getPatientID());
+            output.writeEnum(entry.getStatus());
+            output.writeLong(entry.getOffset());
+            output.writeInt(entry.getLength());
+        });
+    }
+
+    /**
+     * Reads a snapshot of the index of the medical record CSV file.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The index entry of every row, or {@code null} if the snapshot is missing,
+     *         stale or unreadable.
+     */
+    public static List<MedicalRecordEntry> readMedicalRecordIndex(String csvPath) {
+        PrescriptionStatus[] statuses = PrescriptionStatus.values();
+        return read(csvPath, input -> {
+            String medicalRID = input.readID();
+            String patientID = input.readID();
+            int status = input.readInt();
+            return new MedicalRecordEntry(medicalRID, patientID, status >= 0 ? statuses[status] : null,
+                    input.readLong(), input.readInt());
+        });
+    }
+
+    // schedules
+
+    /**
+     * Writes a snapshot of {@link Schedule} objects.
+     *
+     * @param csvPath   The path to the CSV file the snapshot belongs to.
+     * @param schedules The schedules to write.
+     */
+    public static void writeSchedules(String csvPath, List<Schedule> schedules) {
+        write(csvPath, schedules, (output, schedule) -> {
+            output.writeID(schedule.getDoctorID());
+            output.writeDate(schedule.getDate());
+            List<LocalTime> timeSlots = schedule.getTimeSlots();
+            output.writeInt(timeSlots.size());
+            for (LocalTime timeSlot : timeSlots) {
+                output.writeTime(timeSlot);
+            }
+        });
+    }
+
+    /**
+     * Reads a snapshot of {@link Schedule} objects.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The schedules, or {@code null} if the snapshot is missing, stale or unreadable.
+     */
+    public static List<Schedule> readSchedules(String csvPath) {
+        return read(csvPath, input -> {
+            String doctorID = input.readID();
+            LocalDate date = input.readDate();
+            int slotCount = input.readInt();
+            List<LocalTime> timeSlots = new ArrayList<>(slotCount);
+            for (int i = 0; i < slotCount; i++) {
+                timeSlots.add(input.readTime());
+            }
+            return new Schedule(doctorID, date, timeSlots);
+        });
+    }
+
+    // appointments
+
+    /**
+     * Writes a snapshot of {@link Appointment} objects. The doctor and patient are stored
+     * by their IDs.
+     *
+     * @param csvPath      The path to the CSV file the snapshot belongs to.
+     * @param appointments The appointments to write.
+     */
+    public static void writeAppointments(String csvPath, List<Appointment> appointments) {
+        write(csvPath, appointments, (output, appt) -> {
+            output.writeID(appt.getAppointmentID());
+            output.writeID(appt.getPatient() != null ? appt.getPatient().getHospitalID() : null);
+            output.writeID(appt.getDoctor() != null ? appt.getDoctor().getHospitalID() : null);
+            output.writeDate(appt.getDate());
+            output.writeTime(appt.getTime());
+            output.writeEnum(appt.getStatus());
+            output.writeText(appt.getConsultationNotes());
+            output.writeText(appt.getPrescribedMedications());
+            output.writeText(appt.getServiceType());
+        });
+    }
+
+    /**
+     * Reads a snapshot of {@link Appointment} objects, looking up the doctor and patient
+     * of each appointment by ID. Doctors and patients must already be loaded.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The appointments, or {@code null} if the snapshot is missing, stale or
+     *         unreadable.
+     */
+    public static List<Appointment> readAppointments(String csvPath) {
+        ApptStatus[] statuses = ApptStatus.values();
+        return read(csvPath, input -> {
+            String appointmentID = input.readID();
+            String patientID = input.readID();
+            String doctorID = input.readID();
+            LocalDate date = input.readDate();
+            LocalTime time = input.readTime();
+            ApptStatus status = statuses[input.readInt()];
+
+            Doctor doctor = doctorID != null ? DoctorsAcc.findDoctorById(doctorID) : null;
+            Patient patient = patientID != null ? PatientsAcc.findPatientById(patientID) : null;
+
+            Appointment appointment = new Appointment(doctor, patient, date, time, appointmentID, status);
+            appointment.setConsultationNotes(input.readText());
+            appointment.setPrescribedMedications(input.readText());
+            appointment.setServiceType(input.readText());
+            return appointment;
+        });
+    }
+
+    // leave
+
+    /**
+     * Writes a snapshot of {@link Leave} objects. The staff member is stored by ID.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @param leaves  The leave requests to write.
+     */
+    public static void writeLeaves(String csvPath, List<Leave> leaves) {
+        write(csvPath, leaves, (output, leave) -> {
+            output.writeID(leave.getLeaveID());
+            output.writeID(leave.getStaff() != null ? leave.getStaff().getHospitalID() : null);
+            output.writeDate(leave.getDate());
+            output.writeEnum(leave.getLeaveStatus());
+            output.writeText(leave.getReason());
+        });
+    }
+
+    /**
+     * Reads a snapshot of {@link Leave} objects, looking up each doctor by ID. Doctors
+     * must already be loaded.
+     *
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @return The leave requests, or {@code null} if the snapshot is missing, stale or
+     *         unreadable.
+     */
+    public static List<Leave> readLeaves(String csvPath) {
+        LeaveStatus[] statuses = LeaveStatus.values();
+        return read(csvPath, input -> {
+            String leaveID = input.readID();
+            String staffID = input.readID();
+            LocalDate date = input.readDate();
+            LeaveStatus status = statuses[input.readInt()];
+            String reason = input.readText();
+
+            // only doctors take leave for now, as in CSVread
+            Doctor doctor = null;
+            if (staffID != null && !staffID.isEmpty() && staffID.charAt(0) == 'D') {
+                doctor = DoctorsAcc.findDoctorById(staffID);
+            }
+            return new Leave(leaveID, doctor, date, status, reason);
+        });
+    }
+
+    // file handling
+
+    /**
+     * Writes a snapshot to a temporary file and moves it into place, so an interrupted
+     * write never leaves a partial snapshot behind.
+     *
+     * @param <T>     The type of object written.
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @param objects The objects to write.
+     * @param writer  Writes the fields of one object.
+     */
+    private static <T> void write(String csvPath, List<? extends T> objects, RecordWriter<T> writer) {
+        String path = snapshotPath(csvPath);
+        String tempPath = path + ".tmp";
+        try {
+            try (SnapshotOutput output = new SnapshotOutput(tempPath)) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(objects.size());
+                for (T object : objects) {
+                    writer.write(output, object);
+                }
+            }
+            Files.move(Paths.get(tempPath), Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            new File(tempPath).delete();
+        }
+    }
+
+    /**
+     * Reads a snapshot if it is current.
+     *
+     * @param <T>     The type of object read.
+     * @param csvPath The path to the CSV file the snapshot belongs to.
+     * @param reader  Reads the fields of one object.
+     * @return The objects, or {@code null} if the snapshot is missing, stale or unreadable,
+     *         in which case the CSV file should be read instead.
+     */
+    private static <T> List<T> read(String csvPath, RecordReader<T> reader) {
+        if (!isCurrent(csvPath)) {
+            return null;
+        }
+
+        try (SnapshotInput input = new SnapshotInput(snapshotPath(csvPath))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null; // written by another version, read the CSV file instead
+            }
+            int count = input.readInt();
+            List<T> objects = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                objects.add(reader.read(input));
+            }
+            return objects;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Snapshot " + snapshotPath(csvPath) + " could not be read, reading CSV instead.");
+            return null;
+        }
+    }
+
+    /**
+     * The output stream of a snapshot, storing each ID once in a string table.
+     */
+    private static class SnapshotOutput extends DataOutputStream {
+
+        /** The index of every ID written so far. */
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        /**
+         * Opens a snapshot file for writing.
+         *
+         * @param path The path to the file.
+         * @throws IOException If the file cannot be created.
+         */
+        SnapshotOutput(String path) throws IOException {
+            super(new BufferedOutputStream(new FileOutputStream(path)));
+        }
+
+        /**
+         * Writes an ID as its index in the string table, followed by the ID itself the
+         * first time it is written. {@code null} is written as -1.
+         *
+         * @param id The ID to write.
+         * @throws IOException If the write fails.
+         */
+        void writeID(String id) throws IOException {
+            if (id == null) {
+                writeInt(-1);
+                return;
+            }
+            Integer index = ids.get(id);
+            if (index != null) {
+                writeInt(index);
+            } else {
+                writeInt(ids.size());
+                writeUTF(id);
+                ids.put(id, ids.size());
+            }
+        }
+
+        /**
+         * Writes a string, storing {@code null} as an empty string as the CSV files do.
+         *
+         * @param text The string to write.
+         * @throws IOException If the write fails.
+         */
+        void writeText(String text) throws IOException {
+            writeUTF(text != null ? text : "");
+        }
+
+        /**
+         * Writes a list of strings.
+         *
+         * @param texts The strings to write, {@code null} for an empty list.
+         * @throws IOException If the write fails.
+         */
+        void writeTextList(List<String> texts) throws IOException {
+            writeInt(texts != null ? texts.size() : 0);
+            if (texts != null) {
+                for (String text : texts) {
+                    writeText(text);
+                }
+            }
+        }
+
+        /**
+         * Writes a date as its epoch day.
+         *
+         * @param date The date to write, may be {@code null}.
+         * @throws IOException If the write fails.
+         */
+        void writeDate(LocalDate date) throws IOException {
+            writeInt(date != null ? (int) date.toEpochDay() : NO_DATE);
+        }
+
+        /**
+         * Writes a time as its minute of the day. Seconds are dropped, as in the CSV files.
+         *
+         * @param time The time to write, may be {@code null}.
+         * @throws IOException If the write fails.
+         */
+        void writeTime(LocalTime time) throws IOException {
+            writeShort(time != null ? time.getHour() * 60 + time.getMinute() : -1);
+        }
+
+        /**
+         * Writes an enum constant as its ordinal, or -1 for {@code null}.
+         *
+         * @param value The constant to write.
+         * @throws IOException If the write fails.
+         */
+        void writeEnum(Enum<?> value) throws IOException {
+            writeInt(value != null ? value.ordinal() : -1);
+        }
+    }
+
+    /**
+     * The input stream of a snapshot, resolving IDs through its string table.
+     */
+    private static class SnapshotInput extends DataInputStream {
+
+        /** The IDs read so far, by their index in the string table. */
+        private final List<String> ids = new ArrayList<>();
+
+        /**
+         * Opens a snapshot file for reading.
+         *
+         * @param path The path to the file.
+         * @throws IOException If the file cannot be opened.
+         */
+        SnapshotInput(String path) throws IOException {
+            super(new BufferedInputStream(new FileInputStream(path)));
+        }
+
+        /**
+         * Reads an ID written by {@link SnapshotOutput#writeID(String)}, interning it the
+         * first time it appears.
+         *
+         * @return The ID, or {@code null}.
+         * @throws IOException If the read fails or the file is corrupt.
+         */
+        String readID() throws IOException {
+            int index = readInt();
+            if (index < 0) {
+                return null;
+            }
+            if (index < ids.size()) {
+                return ids.get(index);
+            }
+            if (index != ids.size()) {
+                throw new IOException("Invalid ID index " + index);
+            }
+            String id = readUTF().intern();
+            ids.add(id);
+            return id;
+        }
+
+        /**
+         * Reads a string.
+         *
+         * @return The string.
+         * @throws IOException If the read fails.
+         */
+        String readText() throws IOException {
+            return readUTF();
+        }
+
+        /**
+         * Reads a list of strings.
+         *
+         * @return The strings.
+         * @throws IOException If the read fails.
+         */
+        List<String> readTextList() throws IOException {
+            int count = readInt();
+            List<String> texts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                texts.add(readText());
+            }
+            return texts;
+        }
+
+        /**
+         * Reads a date stored as its epoch day.
+         *
+         * @return The date, or {@code null} if it was not set.
+         * @throws IOException If the read fails.
+         */
+        LocalDate readDate() throws IOException {
+            int epochDay = readInt();
+            return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+        }
+
+        /**
+         * Reads a time stored as its minute of the day.
+         *
+         * @return The time, or {@code null} if it was not set.
+         * @throws IOException If the read fails.
+         */
+        LocalTime readTime() throws IOException {
+            int minuteOfDay = readShort();
+            return minuteOfDay >= 0 ? LocalTime.of(minuteOfDay / 60, minuteOfDay % 60) : null;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package utility;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import interfaces.Weigher;
+
+/**
+ * A thread-safe cache of the most recently used values, bounded both by the number of
+ * entries and by their total weight.
+ * <p>
+ * Each entry is weighed by a {@link Weigher} when it is added. Once either bound is
+ * exceeded, the least recently used entries are evicted until both hold again, so the
+ * memory held by the cache stays within a budget however many keys there are. A value
+ * heavier than the whole budget is not cached at all.
+ * <p>
+ * The cache counts its hits, misses and evictions, which {@link #toString()} reports
+ * together with its size and weight.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class BoundedCache<K, V> {
+
+    /** The entries in order of use, the least recently used first. */
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The largest number of entries kept. */
+    private final int maxEntries;
+
+    /** The largest total weight of the entries kept. */
+    private final long maxWeight;
+
+    /** Weighs each entry when it is added. */
+    private final Weigher<K, V> weigher;
+
+    /** The total weight of the entries. */
+    private long weight;
+
+    /** The number of lookups that found their key. */
+    private long hits;
+
+    /** The number of lookups that did not find their key. */
+    private long misses;
+
+    /** The number of entries evicted to keep within the bounds. */
+    private long evictions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries The largest number of entries kept.
+     * @param maxWeight  The largest total weight of the entries kept.
+     * @param weigher    Weighs each entry when it is added.
+     */
+    public BoundedCache(int maxEntries, long maxWeight, Weigher<K, V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value of a key and marks it as the most recently used, counting a hit
+     * or a miss.
+     *
+     * @param key The key to look up.
+     * @return The value, or {@code null} if the key is not cached.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Returns the value of a key without counting the lookup, for scans that only reuse
+     * the values already cached and should not skew the counters.
+     *
+     * @param key The key to look up.
+     * @return The value, or {@code null} if the key is not cached.
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Adds a value unless the key is already cached, in which case the cached value is
+     * kept and marked as the most recently used. The value is weighed before the cache
+     * is locked, so the weigher may take other locks.
+     *
+     * @param key   The key to add.
+     * @param value The value to add.
+     * @return The value already cached, or {@code null} if the given value is to be used.
+     */
+    public V putIfAbsent(K key, V value) {
+        long valueWeight = weigher.weigh(key, value);
+        synchronized (this) {
+            Entry<V> cached = entries.get(key);
+            if (cached != null) {
+                return cached.value;
+            }
+            add(key, value, valueWeight);
+            return null;
+        }
+    }
+
+    /**
+     * Adds a value, replacing any value cached for the key.
+     *
+     * @param key   The key to add.
+     * @param value The value to add.
+     */
+    public void put(K key, V value) {
+        long valueWeight = weigher.weigh(key, value);
+        synchronized (this) {
+            invalidate(key);
+            add(key, value, valueWeight);
+        }
+    }
+
+    /**
+     * Removes a key, so that its value is read afresh when next needed.
+     *
+     * @param key The key to remove.
+     * @return The value that was cached, or {@code null} if the key was not cached.
+     */
+    public synchronized V invalidate(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        weight -= entry.weight;
+        return entry.value;
+    }
+
+    /** Removes every entry, keeping the counters. */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the number of entries cached.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the entries cached.
+     *
+     * @return The total weight.
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of lookups that found their key.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find their key.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries evicted to keep within the bounds.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the size, weight and counters of the cache.
+     *
+     * @return A summary of the cache, for example
+     *         {@code "12/1000 entries, weight 5400/8000000, 30 hits, 12 misses, 0 evictions"}.
+     */
+    @Override
+    public synchronized String toString() {
+        return entries.size() + "/" + maxEntries + " entries, weight " + weight + "/" + maxWeight + ", "
+                + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * Adds an entry for a key that is not cached and evicts the least recently used
+     * entries while either bound is exceeded.
+     *
+     * @param key         The key to add.
+     * @param value       The value to add.
+     * @param valueWeight The weight of the value.
+     */
+    private void add(K key, V value, long valueWeight) {
+        if (valueWeight > maxWeight) {
+            evictions++; // too heavy to keep, it is evicted at once
+            return;
+        }
+        entries.put(key, new Entry<>(value, valueWeight));
+        weight += valueWeight;
+
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Entry<V> evicted = eldest.next().getValue();
+            eldest.remove();
+            weight -= evicted.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * A cached value and its weight.
+     *
+     * @param <V> The type of the value.
+     */
+    private static class Entry<V> {
+
+        /** The cached value. */
+        final V value;
+
+        /** The weight of the value when it was added. */
+        final long weight;
+
+        /**
+         * Creates an entry.
+         *
+         * @param value  The cached value.
+         * @param weight The weight of the value.
+         */
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
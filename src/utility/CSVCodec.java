@@ -0,0 +1,21 @@
+package utility;
+
+/**
+ * Converts objects of one class into a CSV row.
+ * <p>
+ * {@link CSVwrite} keeps one codec per class, so the columns of a class are
+ * worked out once instead of every time an object is written.
+ *
+ * @param <T> The type of object the codec writes.
+ */
+@FunctionalInterface
+public interface CSVCodec<T> {
+
+    /**
+     * Converts an object into a CSV row.
+     *
+     * @param object The object to convert.
+     * @return The object's data as a CSV row, without a trailing newline.
+     */
+    String toCSVRow(T object);
+}
@@ -0,0 +1,22 @@
+package utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads CSV text one row at a time, splitting each row into its fields.
+ * <p>
+ * Implementations follow RFC 4180: quoted fields may contain commas, line breaks
+ * and escaped quotes ({@code ""}), and the surrounding quotes are removed. Blank
+ * rows are skipped.
+ */
+public interface CSVRowReader extends Closeable {
+
+    /**
+     * Reads the next row, skipping rows that are blank.
+     *
+     * @return The fields of the row, or {@code null} at the end of the input.
+     * @throws IOException If the input cannot be read.
+     */
+    String[] nextRow() throws IOException;
+}
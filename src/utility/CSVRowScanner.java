@@ -0,0 +1,263 @@
+package utility;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import interfaces.CSVRowHandler;
+
+/**
+ * Finds where each row of a CSV file starts and ends without parsing the whole row,
+ * so that a store can index the file and read single rows later by seeking to them.
+ * <p>
+ * The bytes of the file are split into rows and fields as {@link CSVTokenizer} splits
+ * its characters, so that both accept the same files: a quoted field may hold commas,
+ * line breaks and escaped quotes, and rows end at {@code \n}, {@code \r\n} or
+ * {@code \r} outside quotes. The first row that is not blank is the header and is
+ * skipped, as are blank rows and rows with too few fields. Only the fields asked for
+ * are decoded.
+ * <p>
+ * The quotes, commas and line breaks are ASCII, which never occurs inside the bytes of
+ * another UTF-8 character, so the file can be split before it is decoded.
+ */
+public class CSVRowScanner {
+
+    /** The number of bytes read from the file at a time. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The columns of the fields to decode. */
+    private final int[] columns;
+
+    /** The smallest number of fields of a row that is handled. */
+    private final int minColumns;
+
+    /** Receives each row. */
+    private final CSVRowHandler handler;
+
+    /** The decoded fields of the row being read, by position in {@link #columns}. */
+    private final String[] fields;
+
+    /** The bytes of the field being read, without its quotes. */
+    private byte[] value = new byte[64];
+
+    /** The number of bytes in {@link #value}. */
+    private int valueLength;
+
+    /** The column of the field being read. */
+    private int column;
+
+    /** The offset of the next byte. */
+    private long position;
+
+    /** The offset the row being read starts at. */
+    private long rowStart;
+
+    /** Whether the scanner is inside a quoted section of a field. */
+    private boolean quoted;
+
+    /** Whether the last byte was a quote inside a quoted section. */
+    private boolean quoteSeen;
+
+    /** Whether the last row ended with {@code \r}, which a {@code \n} may follow. */
+    private boolean carriageReturn;
+
+    /** Whether the header is still to be skipped. */
+    private boolean header = true;
+
+    /**
+     * Creates a scanner at the start of a file.
+     *
+     * @param columns    The columns of the fields to decode.
+     * @param minColumns The smallest number of fields of a row that is handled.
+     * @param handler    Receives each row.
+     */
+    private CSVRowScanner(int[] columns, int minColumns, CSVRowHandler handler) {
+        this.columns = columns;
+        this.minColumns = minColumns;
+        this.handler = handler;
+        this.fields = new String[columns.length];
+    }
+
+    /**
+     * Scans a whole CSV file, passing each row to a handler in the order of the file.
+     *
+     * @param path       The path of the CSV file.
+     * @param columns    The columns of the fields to decode for each row.
+     * @param minColumns The smallest number of fields of a row that is handled; shorter
+     *                   rows are skipped as malformed.
+     * @param handler    Receives each row.
+     * @return The number of bytes scanned, the length of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long scan(String path, int[] columns, int minColumns, CSVRowHandler handler)
+            throws IOException {
+        try (InputStream input = new FileInputStream(path)) {
+            return scan(input, columns, minColumns, handler);
+        }
+    }
+
+    /**
+     * Scans CSV bytes from a stream to its end, passing each row to a handler in order.
+     * The stream is not closed.
+     *
+     * @param input      The stream of CSV bytes.
+     * @param columns    The columns of the fields to decode for each row.
+     * @param minColumns The smallest number of fields of a row that is handled; shorter
+     *                   rows are skipped as malformed.
+     * @param handler    Receives each row.
+     * @return The number of bytes scanned.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static long scan(InputStream input, int[] columns, int minColumns, CSVRowHandler handler)
+            throws IOException {
+        CSVRowScanner scanner = new CSVRowScanner(columns, minColumns, handler);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                scanner.accept(buffer[i]);
+            }
+        }
+        scanner.finish();
+        return scanner.position;
+    }
+
+    /**
+     * Reads the bytes of a row found by a scan.
+     *
+     * @param channel The channel of the file.
+     * @param offset  The offset the row starts at.
+     * @param length  The number of bytes in the row, without its line break.
+     * @return The row, or {@code null} if it runs past the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static String readRow(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) <= 0) {
+                return null;
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next byte of the file.
+     *
+     * @param b The byte.
+     */
+    private void accept(byte b) {
+        long offset = position++;
+        if (carriageReturn) {
+            carriageReturn = false;
+            if (b == '\n') {
+                rowStart = position; // \r\n ends the row as one line break
+                return;
+            }
+        }
+        if (quoteSeen) {
+            quoteSeen = false;
+            if (b == '"') {
+                append(b); // escaped quote
+                return;
+            }
+            quoted = false;
+        }
+        if (quoted) {
+            if (b == '"') {
+                quoteSeen = true;
+            } else {
+                append(b);
+            }
+            return;
+        }
+
+        switch (b) {
+            case ',':
+                endField();
+                break;
+            case '"':
+                quoted = true;
+                break;
+            case '\r':
+                carriageReturn = true;
+                endRow(offset);
+                break;
+            case '\n':
+                endRow(offset);
+                break;
+            default:
+                append(b);
+        }
+    }
+
+    /** Ends the last row if the file does not end with a line break. */
+    private void finish() {
+        if (rowStart < position) {
+            endRow(position);
+        }
+    }
+
+    /**
+     * Adds a byte to the field being read.
+     *
+     * @param b The byte.
+     */
+    private void append(byte b) {
+        if (valueLength == value.length) {
+            value = Arrays.copyOf(value, valueLength * 2);
+        }
+        value[valueLength++] = b;
+    }
+
+    /** Ends the field being read, keeping its value if it is to be decoded. */
+    private void endField() {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == column) {
+                fields[i] = value();
+            }
+        }
+        column++;
+        valueLength = 0;
+    }
+
+    /**
+     * Ends the row being read and passes it to the handler, unless it is blank, the
+     * header or too short.
+     *
+     * @param end The offset of the line break ending the row.
+     */
+    private void endRow(long end) {
+        boolean blank = column == 0 && value().isEmpty();
+        endField();
+        int rowColumns = column;
+        String[] rowFields = fields.clone();
+        Arrays.fill(fields, null);
+        long start = rowStart;
+        rowStart = end + 1;
+        column = 0;
+        if (blank) {
+            return;
+        }
+        if (header) {
+            header = false;
+            return;
+        }
+        if (rowColumns >= minColumns) {
+            handler.row(start, (int) (end - start), rowFields);
+        }
+    }
+
+    /**
+     * Decodes the field being read.
+     *
+     * @return The decoded field, trimmed.
+     */
+    private String value() {
+        return new String(value, 0, valueLength, StandardCharsets.UTF_8).trim();
+    }
+}
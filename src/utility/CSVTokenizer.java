@@ -0,0 +1,171 @@
+package utility;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits CSV text into rows of fields in a single pass, following RFC 4180.
+ * <p>
+ * Fields are separated by commas and rows by {@code \n} or {@code \r\n}. A field
+ * wrapped in double quotes may contain commas, line breaks and escaped quotes
+ * ({@code ""}); the surrounding quotes are removed from the returned value.
+ * Unquoted fields are returned exactly as written, so callers still trim them.
+ * <p>
+ * The input is read through one reusable character buffer and each field is built
+ * in one reusable {@link StringBuilder}, so the only objects created per row are the
+ * field strings and the returned array.
+ */
+public class CSVTokenizer implements CSVRowReader {
+
+    /** The number of characters read from the underlying reader at a time. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The reader supplying the CSV text. */
+    private final Reader reader;
+
+    /** The reusable buffer of characters read from {@link #reader}. */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /** The number of valid characters in {@link #buffer}. */
+    private int limit = 0;
+
+    /** The position of the next character to read from {@link #buffer}. */
+    private int position = 0;
+
+    /** The reusable builder holding the field being read. */
+    private final StringBuilder field = new StringBuilder();
+
+    /** The reusable list holding the fields of the row being read. */
+    private final List<String> fields = new ArrayList<>();
+
+    /**
+     * Constructs a tokenizer over the given reader.
+     *
+     * @param reader The reader supplying the CSV text.
+     */
+    public CSVTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next row, skipping rows that are blank.
+     *
+     * @return The fields of the row, or {@code null} at the end of the input.
+     * @throws IOException If the underlying reader fails.
+     */
+    @Override
+    public String[] nextRow() throws IOException {
+        while (true) {
+            if (!readRow()) {
+                return null;
+            }
+            if (fields.size() > 1 || !fields.get(0).trim().isEmpty()) {
+                return fields.toArray(new String[0]);
+            }
+        }
+    }
+
+    /**
+     * Reads one row into {@link #fields}.
+     * <p>
+     * Runs of ordinary characters are copied from the buffer in one call, so only
+     * separators, quotes and line breaks are handled one character at a time.
+     *
+     * @return {@code false} if the input had already ended.
+     * @throws IOException If the underlying reader fails.
+     */
+    private boolean readRow() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        if (!fill()) {
+            return false;
+        }
+
+        boolean quoted = false; // inside a quoted section of the field
+        while (fill()) {
+            int start = position;
+            if (quoted) {
+                // copy everything up to the next quote
+                while (position < limit && buffer[position] != '"') {
+                    position++;
+                }
+                field.append(buffer, start, position - start);
+                if (position == limit) {
+                    continue; // refill and keep reading the quoted section
+                }
+                position++; // skip the quote
+                if (fill() && buffer[position] == '"') {
+                    field.append('"'); // escaped quote
+                    position++;
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+
+            // copy everything up to the next separator, quote or line break
+            char c = 0;
+            while (position < limit) {
+                c = buffer[position];
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    break;
+                }
+                position++;
+            }
+            field.append(buffer, start, position - start);
+            if (position == limit) {
+                continue; // refill and keep reading the field
+            }
+            position++; // skip the special character
+
+            if (c == ',') {
+                endField();
+            } else if (c == '"') {
+                quoted = true;
+            } else {
+                if (c == '\r' && fill() && buffer[position] == '\n') {
+                    position++; // \r\n ends the row as one line break
+                }
+                endField();
+                return true;
+            }
+        }
+        endField(); // the input ended without a final line break
+        return true;
+    }
+
+    /** Adds the field being read to the row and starts a new field. */
+    private void endField() {
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    /**
+     * Makes sure the buffer has at least one unread character, refilling it from the
+     * underlying reader when it runs out.
+     *
+     * @return {@code false} if the input has ended.
+     * @throws IOException If the underlying reader fails.
+     */
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        int read = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return limit > 0;
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException If the underlying reader fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,8 +1,10 @@
 package utility;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -34,6 +36,27 @@ import leave.*;
  */
 public class CSVread {
 
+    /**
+     * Files at least this large are read through {@link MappedCSVReader}; smaller files
+     * are streamed through {@link CSVTokenizer}, where mapping would cost more than it saves.
+     */
+    private static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Opens a CSV file for reading, memory-mapping it if it is large.
+     *
+     * @param fileString The path to the CSV file.
+     * @return A reader returning the rows of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    private static CSVRowReader openCSV(String fileString) throws IOException {
+        File file = new File(fileString);
+        if (file.length() >= MAPPED_READ_THRESHOLD) {
+            return new MappedCSVReader(fileString);
+        }
+        return new CSVTokenizer(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
     /**
      * Extracts common fields for both {@link User} and {@link Patient}.
      * This method extracts shared properties like hospital ID, name, role, gender,
@@ -72,21 +95,18 @@ public class CSVread {
      *         {@code objectType}.
      */
     public static List<Object> readCSV(String fileString, Map<String, Integer> columnMapping, String objectType) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<Object> records = new ArrayList<>();
 
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line to skip the header
-            reader.readLine();
+            reader.nextRow();
 
             // Continuously read the next line
-            while ((line = reader.readLine()) != null) {
-                // Array of Strings, split at commas
-                String[] row = line.split(",");
-
+            while ((row = reader.nextRow()) != null) {
                 // Extract common fields using the helper method
                 User baseUser = extractCommonFields(row, columnMapping);
 
@@ -97,17 +117,7 @@ public class CSVread {
                 }
                 // Handling Patient objects
                 else if (objectType.equals("Patient") && row.length >= 9) {
-                    Patient patient = new Patient(
-                            baseUser.getHospitalID(),
-                            baseUser.getName(),
-                            baseUser.getRole(),
-                            baseUser.getGender(),
-                            baseUser.getAge(),
-                            baseUser.getPassword(),
-                            row[columnMapping.get("dateOB")].trim(),
-                            row[columnMapping.get("bloodType")].trim(),
-                            row[columnMapping.get("contactInfo")].trim());
-                    records.add(patient); // Add the patient
+                    records.add(parsePatient(row, columnMapping)); // Add the patient
                 }
 
                 // Handle Doctor objects, change the row.length for the amount of parameters in
@@ -161,6 +171,28 @@ public class CSVread {
         return records; // Return the list of records (depends on the class of objects)
     }
 
+    /**
+     * Parses a single row of a patient CSV file into a {@link Patient}.
+     *
+     * @param row           The fields of the row.
+     * @param columnMapping A map that associates column names with their index
+     *                      positions in the CSV.
+     * @return The {@link Patient} holding the row's data.
+     */
+    public static Patient parsePatient(String[] row, Map<String, Integer> columnMapping) {
+        User baseUser = extractCommonFields(row, columnMapping);
+        return new Patient(
+                baseUser.getHospitalID(),
+                baseUser.getName(),
+                baseUser.getRole(),
+                baseUser.getGender(),
+                baseUser.getAge(),
+                baseUser.getPassword(),
+                row[columnMapping.get("dateOB")].trim(),
+                row[columnMapping.get("bloodType")].trim(),
+                row[columnMapping.get("contactInfo")].trim());
+    }
+
     /**
      * Reads an inventory CSV file and maps the rows to a list of
      * {@link InventoryItem} objects.
@@ -173,21 +205,18 @@ public class CSVread {
      * @return A list of {@link InventoryItem} objects created from the CSV data.
      */
     public static List<InventoryItem> readItemCSV(String fileString, Map<String, Integer> columnMapping) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<InventoryItem> inventory = new ArrayList<>();
 
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line to skip the header
-            reader.readLine();
+            reader.nextRow();
 
             // Continuously read the next line
-            while ((line = reader.readLine()) != null) {
-                // Array of Strings, split at commas
-                String[] row = line.split(",");
-
+            while ((row = reader.nextRow()) != null) {
                 InventoryItem item = new InventoryItem(
                         Medicine.valueOf(row[columnMapping.get("Medicine Name")].trim()),
                         Integer.parseInt(row[columnMapping.get("Initial Stock")].trim()),
@@ -222,22 +251,19 @@ public class CSVread {
      * @return A list of {@link ReplenishRequest} objects created from the CSV data.
      */
     public static List<ReplenishRequest> readReplenishCSV(String fileString, Map<String, Integer> columnMapping) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<ReplenishRequest> replenishList = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd"); // Corrected date format
 
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line to skip the header
-            reader.readLine();
+            reader.nextRow();
 
             // Continuously read the next line
-            while ((line = reader.readLine()) != null) {
-                // Array of Strings, split at commas
-                String[] row = line.split(",");
-
+            while ((row = reader.nextRow()) != null) {
                 // System.out.println("Processing row: " + line);
                 // System.out.println("Row length: " + row.length);
 
@@ -300,76 +326,19 @@ public class CSVread {
      * @return A list of {@link MedicalRecord} objects containing the parsed data.
      */
     public static List<MedicalRecord> readMedicalRecordCSV(String fileString, Map<String, Integer> columnMapping) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<MedicalRecord> medicalRecords = new ArrayList<>();
 
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line to skip the header
-            reader.readLine();
+            reader.nextRow();
     
             // Continuously read the next line
-            while ((line = reader.readLine()) != null) {
-                // Skip empty lines
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-
-                // Array of Strings, split at commas (prescriptions field may use colons
-                // internally)
-                String[] row = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-
-                // Parse fields from the CSV row based on column mapping
-                String medicalRID = row[columnMapping.get("MedicalR ID")].trim();
-                String doctorID = row[columnMapping.get("Doctor ID")].trim();
-                String patientID = row[columnMapping.get("Patient ID")].trim();
-
-                String diagnosesString = row[columnMapping.get("Diagnoses")].replace("\"", "");
-                List<String> diagnoses = Arrays.asList(diagnosesString.split(";"));
-
-                String prescriptionsString = row[columnMapping.get("Prescriptions")].replace("\"", "");
-                List<String> prescriptionsList = Arrays.asList(prescriptionsString.split(";"));
-
-                String treatmentPlanString = row[columnMapping.get("Treatment Plan")].replace("\"", "");
-                List<String> treatmentPlans = Arrays.asList(treatmentPlanString.split(";"));
-
-                PrescriptionStatus status = null;
-                try {
-                    status = PrescriptionStatus
-                            .valueOf(row[columnMapping.get("Prescription Status")].trim().toUpperCase());
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Invalid Prescription Status: " + row[columnMapping.get("Prescription Status")]);
-                }
-
-                // Parse prescriptions into a Map<String, Integer>
-                Map<String, Integer> prescriptions = new HashMap<>();
-                if (!prescriptionsString.isEmpty()) {
-                    for (String item : prescriptionsList) {
-                        String[] parts = item.trim().split(": ");
-
-                        if (parts.length != 2) {
-                            System.err.println("Invalid prescription format: " + item);
-                            continue; // Skip invalid entries
-                        }
-
-                        if (parts.length == 2) {
-                            String medication = parts[0];
-                            try {
-                                int quantity = Integer.parseInt(parts[1]);
-                                prescriptions.put(medication, quantity);
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid prescription quantity: " + item);
-                            }
-                        }
-                    }
-                }
-
-                // Create a new MedicalRecord object
-                MedicalRecord record = new MedicalRecord(medicalRID, doctorID, patientID, diagnoses, prescriptions,
-                        treatmentPlans, status);
-                medicalRecords.add(record);
+            while ((row = reader.nextRow()) != null) {
+                medicalRecords.add(parseMedicalRecord(row, columnMapping));
             }
 
         } catch (Exception e) {
@@ -386,6 +355,65 @@ public class CSVread {
         return medicalRecords; // Return the list of MedicalRecord objects
     }
 
+    /**
+     * Parses a single row of a medical record CSV file into a {@link MedicalRecord}.
+     * 
+     * @param row           The fields of the row.
+     * @param columnMapping A map that associates column names to their respective
+     *                      indices in the CSV file.
+     * @return The {@link MedicalRecord} holding the row's data.
+     */
+    public static MedicalRecord parseMedicalRecord(String[] row, Map<String, Integer> columnMapping) {
+        // Parse fields from the CSV row based on column mapping
+        String medicalRID = row[columnMapping.get("MedicalR ID")].trim();
+        String doctorID = row[columnMapping.get("Doctor ID")].trim();
+        String patientID = row[columnMapping.get("Patient ID")].trim();
+
+        String diagnosesString = row[columnMapping.get("Diagnoses")];
+        List<String> diagnoses = Arrays.asList(diagnosesString.split(";"));
+
+        String prescriptionsString = row[columnMapping.get("Prescriptions")];
+        List<String> prescriptionsList = Arrays.asList(prescriptionsString.split(";"));
+
+        String treatmentPlanString = row[columnMapping.get("Treatment Plan")];
+        List<String> treatmentPlans = Arrays.asList(treatmentPlanString.split(";"));
+
+        PrescriptionStatus status = null;
+        try {
+            status = PrescriptionStatus
+                    .valueOf(row[columnMapping.get("Prescription Status")].trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid Prescription Status: " + row[columnMapping.get("Prescription Status")]);
+        }
+
+        // Parse prescriptions into a Map<String, Integer>
+        Map<String, Integer> prescriptions = new HashMap<>();
+        if (!prescriptionsString.isEmpty()) {
+            for (String item : prescriptionsList) {
+                String[] parts = item.trim().split(": ");
+
+                if (parts.length != 2) {
+                    System.err.println("Invalid prescription format: " + item);
+                    continue; // Skip invalid entries
+                }
+
+                if (parts.length == 2) {
+                    String medication = parts[0];
+                    try {
+                        int quantity = Integer.parseInt(parts[1]);
+                        prescriptions.put(medication, quantity);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Invalid prescription quantity: " + item);
+                    }
+                }
+            }
+        }
+
+        // Create a new MedicalRecord object
+        return new MedicalRecord(medicalRID, doctorID, patientID, diagnoses, prescriptions, treatmentPlans,
+                status);
+    }
+
     /**
      * Reads a CSV file containing schedule information and parses it into a list of
      * {@link Schedule} objects.
@@ -398,27 +426,25 @@ public class CSVread {
      * @return A list of {@link Schedule} objects containing the parsed data.
      */
     public static List<Schedule> readScheduleCSV(String fileString, Map<String, Integer> columnMapping) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<Schedule> schedules = new ArrayList<>();
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line
-            reader.readLine();
-
-            while ((line = reader.readLine()) != null) {
-                String[] row = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+            reader.nextRow();
 
+            while ((row = reader.nextRow()) != null) {
                 if (row.length < columnMapping.size()) {
-                    System.err.println("Skipping malformed row: " + line);
+                    System.err.println("Skipping malformed row: " + String.join(",", row));
                     continue;
                 }
 
                 // Parse fields from the CSV row based on column mapping
                 String doctorID = row[columnMapping.get("Doctor ID")].trim();
                 LocalDate date = LocalDate.parse(row[columnMapping.get("Date")].trim());
-                String timeSlotsString = row[columnMapping.get("Time Slots")].replace("\"", "").trim();
+                String timeSlotsString = row[columnMapping.get("Time Slots")].trim();
 
                 List<LocalTime> timeSlots = new ArrayList<>();
                 for (String timeSlot : timeSlotsString.split(";")) {
@@ -460,21 +486,18 @@ public class CSVread {
      * @return A list of {@link Appointment} objects containing the parsed data.
      */
     public static List<Appointment> readApptCSV(String fileString, Map<String, Integer> columnMapping) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<Appointment> appointments = new ArrayList<>();
 
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line to skip the header
-            reader.readLine();
+            reader.nextRow();
 
             // Continuously read the next line
-            while ((line = reader.readLine()) != null) {
-                // Array of Strings, split at commas
-                String[] row = line.split(",");
-
+            while ((row = reader.nextRow()) != null) {
                 // Extract appointment fields based on column mapping
                 String appointmentID = row[columnMapping.get("AppointmentID")].trim();
                 String patientID = row[columnMapping.get("PatientID")].trim();
@@ -531,22 +554,19 @@ public class CSVread {
      * @return A {@link List} of {@link Leave} objects parsed from the CSV file.
      */
     public static List<Leave> readLeaveCSV(String fileString, Map<String, Integer> columnMapping) {
-        BufferedReader reader = null;
-        String line = "";
+        CSVRowReader reader = null;
+        String[] row;
         List<Leave> leaves = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         
         try {
-            reader = new BufferedReader(new FileReader(fileString));
+            reader = openCSV(fileString);
 
             // Read the first line to skip the header
-            reader.readLine();
+            reader.nextRow();
 
             // Continuously read the next line
-            while ((line = reader.readLine()) != null) {
-                // Array of Strings, split at commas
-                String[] row = line.split(",");
-
+            while ((row = reader.nextRow()) != null) {
                 // Parse fields from the CSV row based on column mapping
                 String leaveID = row[columnMapping.get("leaveID")].trim();
                 String staffID = row[columnMapping.get("staffID")].trim();
@@ -8,13 +8,21 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 //import appointmentManager.Appointment;
 import inventory.InventoryItem;
+import inventory.ReplenishRequest;
 import leave.Leave;
 import medicalrecord.MedicalRecord;
 import schedule.Schedule;
 import appointment.Appointment;
+import user.Administrator;
+import user.Doctor;
+import user.Patient;
+import user.Pharmacist;
+import user.User;
 
 /**
  * A utility class that provides methods for writing objects and lists of objects to a CSV file. 
@@ -25,6 +33,34 @@ import appointment.Appointment;
  */
 public class CSVwrite {
 
+    /** The codec used for each class, registered up front or built once on first use. */
+    private static final Map<Class<?>, CSVCodec<Object>> codecs = new ConcurrentHashMap<>();
+
+    static {
+        register(InventoryItem.class, InventoryItem::toCSVRow);
+        register(MedicalRecord.class, MedicalRecord::toCSVRow);
+        register(Schedule.class, Schedule::toCSVRow);
+        register(Appointment.class, Appointment::toCSVFormat);
+        register(Leave.class, Leave::toCSVFormat);
+
+        // user based classes, in the same column order as their fields
+        register(Administrator.class, CSVwrite::userColumns);
+        register(Doctor.class, CSVwrite::userColumns);
+        register(Pharmacist.class, CSVwrite::userColumns);
+        register(Patient.class, patient -> userColumns(patient)
+                + "," + text(patient.getDateOB())
+                + "," + text(patient.getBloodType())
+                + "," + text(patient.getEmail()));
+
+        register(ReplenishRequest.class, request -> text(request.getRequestID())
+                + "," + text(request.getItemName())
+                + "," + request.getReplenishQuantity()
+                + "," + text(request.getRequestedBy())
+                + "," + text(request.getRequestDate())
+                + "," + text(request.getRequestStatus())
+                + "," + text(request.getApprovalDate()));
+    }
+
     /**
      * Writes a single object to a CSV file. The method checks the type of the object
      * and writes its data into the CSV file in the appropriate format.
@@ -46,35 +82,8 @@ public class CSVwrite {
             // all data
             output = new FileWriter(filePath, true);
 
-            // handles InventoryItem
-            if (object instanceof InventoryItem) {
-                output.write(((InventoryItem) object).toCSVRow() + '\n');
-            }
-            // handles all User based classes
-            else {
-                List<String> data = new ArrayList<>();
-
-                // get all class&inherited fields
-                for (Field field : getAllFields(object.getClass())) {
-                    field.setAccessible(true); // Allows access to private fields
-                    Object value = field.get(object);
-
-                    // Convert data to readable format and check for null values
-                    if (value != null && value.getClass().isArray()) {
-                        data.add(Arrays.toString((Object[]) value)); // Convert array to string
-                    } else if (value != null) {
-                        data.add(value.toString()); // Convert other fields to string
-                    } else {
-                        data.add(""); // Empty string if null
-                    }
-                }
-
-                // write only the data values (not field names) as a CSV row
-                output.write(String.join(",", data) + "\n");
-                // output.write("\n");
-                // System.out.println("Data written successfully!");
-            }
-        } catch (IOException | IllegalAccessException e) {
+            output.write(toCSVRow(object) + "\n");
+        } catch (IOException e) {
             e.printStackTrace();
         } finally {
             if (output != null) {
@@ -126,49 +135,10 @@ public class CSVwrite {
 
             // Write each object data as a new row
             for (T object : objects) {
-                // handles InventoryItem
-                if (object instanceof InventoryItem) {
-                    output.write(((InventoryItem) object).toCSVRow() + "\n");
-                }
-                // handles MedicalRecord
-                else if (object instanceof MedicalRecord) {
-                    MedicalRecord record = (MedicalRecord) object;
-                    output.write(record.toCSVRow() + "\n"); // Use toCSVRow from MedicalRecord
-                }
-                // handles Schedule
-                else if (object instanceof Schedule) {
-                    output.write(((Schedule) object).toCSVRow() + "\n");
-                }
-                // handles Appointments
-                else if (object instanceof Appointment) {
-                    output.write(((Appointment) object).toCSVFormat() + "\n");
-                } 
-                // handles Leave
-                else if (object instanceof Leave){
-                    output.write(((Leave) object).toCSVFormat() + "\n");
-                }
-                // handles user based classes
-                else {
-                    List<String> data = new ArrayList<>();
-
-                    // Get all class & inherited fields
-                    for (Field field : getAllFields(object.getClass())) {
-                        field.setAccessible(true);
-                        Object value = field.get(object);
-
-                        if (value != null && value.getClass().isArray()) {
-                            data.add(Arrays.toString((Object[]) value));
-                        } else if (value != null) {
-                            data.add(value.toString());
-                        } else {
-                            data.add("");
-                        }
-                    }
-                    output.write(String.join(",", data) + "\n");
-                }
+                output.write(toCSVRow(object) + "\n");
             }
 
-        } catch (IOException | IllegalAccessException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         } finally {
             if (output != null) {
@@ -181,6 +151,90 @@ public class CSVwrite {
         }
     }
 
+    /**
+     * Converts a single object into a CSV row. The method checks the type of the object
+     * and uses its own CSV format where one exists; all other classes (the {@code User}
+     * based classes and {@code ReplenishRequest}) are written field by field.
+     * 
+     * @param object The object to convert.
+     * @return The object's data as a CSV row, without a trailing newline.
+     */
+    public static String toCSVRow(Object object) {
+        return codecs.computeIfAbsent(object.getClass(), CSVwrite::reflectiveCodec).toCSVRow(object);
+    }
+
+    /**
+     * Registers the codec used to write objects of the given class.
+     * 
+     * @param <T>   The type of object the codec writes.
+     * @param clazz The exact class of the objects.
+     * @param codec The codec converting an object of that class into a CSV row.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void register(Class<T> clazz, CSVCodec<? super T> codec) {
+        codecs.put(clazz, (CSVCodec<Object>) codec);
+    }
+
+    /**
+     * Writes the columns shared by every {@link User}.
+     * 
+     * @param user The user to write.
+     * @return The hospital ID, name, role, gender, age and password of the user.
+     */
+    private static String userColumns(User user) {
+        return text(user.getHospitalID())
+                + "," + text(user.getName())
+                + "," + text(user.getRole())
+                + "," + text(user.getGender())
+                + "," + user.getAge()
+                + "," + text(user.getPassword());
+    }
+
+    /**
+     * Converts a single column value to text.
+     * 
+     * @param value The value of the column.
+     * @return The value as text, or an empty string if it is {@code null}.
+     */
+    private static String text(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * Builds a codec for a class that has no registered codec, writing every field
+     * of the class hierarchy in declaration order. The fields are looked up and made
+     * accessible once, when the codec is built.
+     * 
+     * @param clazz The class to build a codec for.
+     * @return A codec writing the fields of the class.
+     */
+    private static CSVCodec<Object> reflectiveCodec(Class<?> clazz) {
+        List<Field> fields = getAllFields(clazz);
+        for (Field field : fields) {
+            field.setAccessible(true); // Allows access to private fields
+        }
+
+        return object -> {
+            List<String> data = new ArrayList<>(fields.size());
+            try {
+                for (Field field : fields) {
+                    Object value = field.get(object);
+
+                    // Convert data to readable format and check for null values
+                    if (value != null && value.getClass().isArray()) {
+                        data.add(Arrays.toString((Object[]) value)); // Convert array to string
+                    } else {
+                        data.add(text(value));
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+            // only the data values (not field names) make up the CSV row
+            return String.join(",", data);
+        };
+    }
+
     /**
      * Retrieves all fields from the class hierarchy of the given class, including fields from 
      * its superclasses. This method uses reflection to get both declared fields of the class 
@@ -0,0 +1,400 @@
+package utility;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An append-only write-ahead log for a single {@code (Updated).csv} snapshot.
+ * <p>
+ * Instead of rewriting the whole snapshot after every change, managers append one
+ * {@link LogOperation} record keyed by the row ID. The log is replayed over the snapshot
+ * when the store is loaded, and is merged back into the snapshot on a background thread
+ * once it reaches {@link #COMPACTION_THRESHOLD} records.
+ * <p>
+ * Each record is stored on its own line as {@code OPERATION<TAB>key<TAB>row}, with the
+ * line breaks and backslashes of the row escaped, since a quoted field may span lines.
+ * The key of a snapshot row is made of its first {@code keyColumns} columns, so it must
+ * match the key passed by the manager when logging a change. The snapshot is split into
+ * rows and columns by a {@link CSVRowScanner}, so quoted fields holding commas or line
+ * breaks keep their rows whole and their keys right.
+ */
+public class ChangeLog {
+
+    /** The number of log records after which the log is compacted into the snapshot. */
+    private static final int COMPACTION_THRESHOLD = 500;
+
+    /** Separates the operation, key and row of a log record. */
+    private static final String SEPARATOR = "\t";
+
+    /** A single background thread shared by all change logs for compaction. */
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ChangeLog-Compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The path to the CSV snapshot this log applies to. */
+    private final String snapshotPath;
+
+    /** The path to the log file, stored beside the snapshot. */
+    private final String logPath;
+
+    /** The number of leading columns that make up the key of a snapshot row. */
+    private final int keyColumns;
+
+    /** The number of records appended since the last compaction. */
+    private int pendingRecords = 0;
+
+    /** Whether a background compaction has already been submitted. */
+    private boolean compactionQueued = false;
+
+    /**
+     * Constructs a change log for the given snapshot.
+     *
+     * @param snapshotPath The path to the {@code (Updated).csv} snapshot.
+     * @param keyColumns   The number of leading columns that identify a row
+     *                     (e.g. 1 for an ID, 2 for Doctor ID and Date).
+     */
+    public ChangeLog(String snapshotPath, int keyColumns) {
+        this.snapshotPath = snapshotPath;
+        this.logPath = snapshotPath + ".log";
+        this.keyColumns = keyColumns;
+    }
+
+    /**
+     * Records a newly added row.
+     *
+     * @param key The key of the row.
+     * @param row The row in CSV format.
+     */
+    public void insert(String key, String row) {
+        append(LogOperation.INSERT, key, row);
+    }
+
+    /**
+     * Records a modified row.
+     *
+     * @param key The key of the row.
+     * @param row The row in CSV format.
+     */
+    public void update(String key, String row) {
+        append(LogOperation.UPDATE, key, row);
+    }
+
+    /**
+     * Records several modified rows with a single write to the log, so that a change
+     * spanning several rows is written at once.
+     *
+     * @param rows The row in CSV format for each key.
+     */
+    public synchronized void updateAll(Map<String, String> rows) {
+        StringBuilder records = new StringBuilder();
+        for (Map.Entry<String, String> row : rows.entrySet()) {
+            records.append(LogOperation.UPDATE).append(SEPARATOR).append(row.getKey()).append(SEPARATOR)
+                    .append(escape(row.getValue())).append('\n');
+        }
+        write(records.toString(), rows.size());
+    }
+
+    /**
+     * Records several removed rows with a single write to the log.
+     *
+     * @param keys The keys of the removed rows.
+     */
+    public synchronized void deleteAll(Collection<String> keys) {
+        StringBuilder records = new StringBuilder();
+        for (String key : keys) {
+            records.append(LogOperation.DELETE).append(SEPARATOR).append(key).append(SEPARATOR).append('\n');
+        }
+        write(records.toString(), keys.size());
+    }
+
+    /**
+     * Records a removed row.
+     *
+     * @param key The key of the row.
+     */
+    public void delete(String key) {
+        append(LogOperation.DELETE, key, "");
+    }
+
+    /**
+     * Appends a single record to the end of the log.
+     *
+     * @param operation The type of change.
+     * @param key       The key of the row that changed.
+     * @param row       The row in CSV format, empty for {@link LogOperation#DELETE}.
+     */
+    public synchronized void append(LogOperation operation, String key, String row) {
+        write(operation + SEPARATOR + key + SEPARATOR + escape(row) + "\n", 1);
+    }
+
+    /**
+     * Writes records to the end of the log.
+     * <p>
+     * Queues a background compaction when the log reaches {@link #COMPACTION_THRESHOLD} records.
+     *
+     * @param records The records, one per line.
+     * @param count   The number of records.
+     */
+    private synchronized void write(String records, int count) {
+        if (count == 0) {
+            return;
+        }
+        try (Writer output = new OutputStreamWriter(new FileOutputStream(logPath, true), StandardCharsets.UTF_8)) {
+            output.write(records);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        pendingRecords += count;
+        if (pendingRecords >= COMPACTION_THRESHOLD && !compactionQueued) {
+            compactionQueued = true;
+            compactor.submit(this::compact);
+        }
+    }
+
+    /**
+     * Replays any outstanding log records over the snapshot so that the snapshot
+     * reflects every change. Called before a store is loaded from its snapshot.
+     */
+    public void replay() {
+        compact();
+    }
+
+    /**
+     * Rewrites the whole snapshot from the given list and discards the log, since
+     * the snapshot now already contains every change. An empty list leaves only the
+     * header.
+     * <p>
+     * The snapshot is written to a temporary file and moved into place, and the log is
+     * only discarded once that has succeeded, so a failed rewrite loses no change.
+     *
+     * @param <T>     The type of object stored in the snapshot.
+     * @param objects The complete, current list of objects.
+     */
+    public synchronized <T> void rewrite(List<T> objects) {
+        try {
+            String header = readHeader();
+            StringBuilder rows = new StringBuilder();
+            for (T object : objects) {
+                rows.append(CSVwrite.toCSVRow(object)).append('\n');
+            }
+            replaceSnapshot(header, rows);
+            new File(logPath).delete();
+            pendingRecords = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Merges the log into the snapshot and removes the log.
+     * <p>
+     * The snapshot is written to a temporary file and moved into place, so an
+     * interrupted compaction leaves both the snapshot and the log intact. Replaying
+     * the same log twice is harmless because every record overwrites or removes its key.
+     */
+    public synchronized void compact() {
+        compactionQueued = false;
+        File log = new File(logPath);
+        if (!log.exists() || log.length() == 0) {
+            pendingRecords = 0;
+            return;
+        }
+
+        Map<String, String> rows = new LinkedHashMap<>();
+
+        try {
+            // load the current snapshot keyed by row, keeping each row as it was written
+            byte[] snapshot = Files.readAllBytes(Paths.get(snapshotPath));
+            String header = headerOf(snapshot);
+            int[] columns = new int[keyColumns];
+            for (int i = 0; i < keyColumns; i++) {
+                columns[i] = i;
+            }
+            CSVRowScanner.scan(new ByteArrayInputStream(snapshot), columns, 1, (offset, length, fields) -> rows
+                    .put(keyOf(fields), new String(snapshot, (int) offset, length, StandardCharsets.UTF_8)));
+
+            // apply every record in the order it was written
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] record = line.split(SEPARATOR, 3);
+                    if (record.length < 3) {
+                        continue; // skip a partially written record
+                    }
+                    if (LogOperation.valueOf(record[0]) == LogOperation.DELETE) {
+                        rows.remove(record[1]);
+                    } else {
+                        rows.put(record[1], unescape(record[2]));
+                    }
+                }
+            }
+
+            // write the merged snapshot, then swap it in
+            StringBuilder merged = new StringBuilder();
+            for (String row : rows.values()) {
+                merged.append(row).append('\n');
+            }
+            replaceSnapshot(header, merged);
+            log.delete();
+            pendingRecords = 0;
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it into place.
+     *
+     * @param header The header row, or {@code null} if the snapshot has none.
+     * @param rows   The rows, each followed by a line break.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    private void replaceSnapshot(String header, CharSequence rows) throws IOException {
+        String tempPath = snapshotPath + ".tmp";
+        try (Writer output = new OutputStreamWriter(new FileOutputStream(tempPath, false), StandardCharsets.UTF_8)) {
+            if (header != null) {
+                output.write(header + "\n");
+            }
+            output.append(rows);
+        }
+        Files.move(Paths.get(tempPath), Paths.get(snapshotPath), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the header row of the snapshot.
+     *
+     * @return The first row that is not blank, or {@code null} if there is none.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    private String readHeader() throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(snapshotPath), StandardCharsets.UTF_8))) {
+            return firstRow(reader);
+        }
+    }
+
+    /**
+     * Returns the header row of a snapshot held in memory.
+     *
+     * @param snapshot The bytes of the snapshot.
+     * @return The first row that is not blank, or {@code null} if there is none.
+     * @throws IOException If the bytes cannot be read.
+     */
+    private static String headerOf(byte[] snapshot) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(snapshot), StandardCharsets.UTF_8))) {
+            return firstRow(reader);
+        }
+    }
+
+    /**
+     * Reads lines until one that is not blank, the header of a CSV file.
+     *
+     * @param reader The reader of the file.
+     * @return The first line that is not blank, or {@code null} if there is none.
+     * @throws IOException If the reader fails.
+     */
+    private static String firstRow(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the key of a snapshot row from its leading columns.
+     *
+     * @param fields The decoded and trimmed key columns of the row, {@code null} for a
+     *               column the row does not have.
+     * @return The key columns joined by commas.
+     */
+    private static String keyOf(String[] fields) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < fields.length && fields[i] != null; i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(fields[i]);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Escapes the backslashes and line breaks of a row, so that its record stays on one
+     * line of the log.
+     *
+     * @param row The row in CSV format.
+     * @return The row with {@code \\}, {@code \n} and {@code \r} escaped.
+     */
+    private static String escape(String row) {
+        if (row.indexOf('\\') < 0 && row.indexOf('\n') < 0 && row.indexOf('\r') < 0) {
+            return row;
+        }
+        StringBuilder escaped = new StringBuilder(row.length() + 8);
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Reverses {@link #escape(String)}.
+     *
+     * @param row The escaped row read from the log.
+     * @return The row in CSV format.
+     */
+    private static String unescape(String row) {
+        if (row.indexOf('\\') < 0) {
+            return row;
+        }
+        StringBuilder unescaped = new StringBuilder(row.length());
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '\\' && i + 1 < row.length()) {
+                char next = row.charAt(++i);
+                unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -1,18 +1,54 @@
 package utility;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Functional interface for generating an ID for an object
+ * Generates unique IDs made of a prefix and a zero-padded number.
  * <p>
- * This interface is used in conjunction with the {@link IDExtractor} class.
+ * Each prefix has its own {@link AtomicLong} sequence holding the highest number handed
+ * out so far. The sequence is seeded once from the existing objects when their store is
+ * loaded, so generating an ID afterwards takes constant time and is safe when IDs are
+ * generated from several threads at once. Numbers are never reused, even after the
+ * object holding the highest ID has been removed.
+ * <p>
+ * This class is used in conjunction with the {@link IDExtractor} interface.
  */
 public class IDGenerator {
+
+    /** The highest number handed out for each prefix. */
+    private static final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Seeds the sequence of a prefix from a list of existing objects, so that the next
+     * ID generated follows the highest existing ID. Called when a store is loaded.
+     * <p>
+     * The sequence never moves backwards, so seeding again after more IDs have been
+     * generated keeps the higher number.
+     *
+     * @param prefix   The prefix of the IDs (e.g., "P", "D", "A").
+     * @param objects  The list of existing objects.
+     * @param idGetter A functional interface to extract IDs as strings from objects.
+     */
+    public static <T> void seed(String prefix, List<T> objects, IDExtractor<T> idGetter) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Prefix cannot be null or empty");
+        }
+
+        long maxID = findMaxID(prefix, objects, idGetter);
+        sequences.computeIfAbsent(prefix, key -> new AtomicLong()).accumulateAndGet(maxID, Math::max);
+    }
+
     /**
-     * Generates a new unique ID based on the prefix and the list of existing objects.
-     * 
+     * Generates a new unique ID for the prefix.
+     * <p>
+     * If the prefix has not been seeded yet, its sequence is first seeded from the given
+     * list; afterwards the list is not read again.
+     *
      * @param prefix     The prefix for the ID (e.g., "P", "D", "A").
-     * @param objects    The list of objects to check for existing IDs.
+     * @param objects    The list of objects to seed the sequence from if needed.
      * @param idGetter   A functional interface to extract IDs as strings from objects.
      * @param numDigits  The number of digits for the numeric part of the ID.
      * @return           A new unique ID in the format prefix + padded number.
@@ -23,26 +59,27 @@ public class IDGenerator {
             throw new IllegalArgumentException("Prefix cannot be null or empty");
         }
 
-        int maxID = findMaxID(prefix, objects, idGetter);
-        return prefix + String.format("%0" + numDigits + "d", maxID + 1);
+        AtomicLong sequence = sequences.computeIfAbsent(prefix,
+                key -> new AtomicLong(findMaxID(prefix, objects, idGetter)));
+        return prefix + String.format("%0" + numDigits + "d", sequence.incrementAndGet());
     }
 
     /**
      * Finds the maximum numeric ID with the given prefix in a list of objects.
-     * 
+     *
      * @param prefix    The prefix for filtering IDs.
      * @param objects   The list of objects to check for IDs.
      * @param idGetter  A functional interface to extract IDs as strings from objects.
      * @return          The maximum numeric value of IDs with the given prefix.
      */
-    private static <T> int findMaxID(String prefix, List<T> objects, IDExtractor<T> idGetter) {
-        int maxID = 0;
+    private static <T> long findMaxID(String prefix, List<T> objects, IDExtractor<T> idGetter) {
+        long maxID = 0;
 
         for (T obj : objects) {
             String id = idGetter.getID(obj);
             if (id != null && id.startsWith(prefix)) {
                 try {
-                    int numericPart = Integer.parseInt(id.substring(prefix.length()));
+                    long numericPart = Long.parseLong(id.substring(prefix.length()));
                     maxID = Math.max(maxID, numericPart);
                 } catch (NumberFormatException e) {
                     // Skip invalid IDs that don't match the numeric pattern.
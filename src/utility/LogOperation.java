@@ -0,0 +1,16 @@
+package utility;
+
+/**
+ * Represents the type of change recorded in a {@link ChangeLog}.
+ */
+public enum LogOperation {
+
+    /** A new row has been added to the store. */
+    INSERT,
+
+    /** An existing row has been modified. */
+    UPDATE,
+
+    /** A row has been removed from the store. */
+    DELETE
+}
@@ -0,0 +1,235 @@
+package utility;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a UTF-8 CSV file through memory-mapped windows of the file, following the
+ * same rules as {@link CSVTokenizer}.
+ * <p>
+ * Separators, quotes and line breaks are all single bytes in UTF-8 and never occur
+ * inside a multi-byte character, so rows and fields are found by scanning the mapped
+ * bytes directly. Only the bytes of each field are copied and decoded into a string;
+ * whole lines are never decoded.
+ * <p>
+ * Files larger than {@link #WINDOW_SIZE} are mapped one window at a time. A row that
+ * runs past the end of a window is read again from the start of the next window.
+ */
+public class MappedCSVReader implements CSVRowReader {
+
+    /** The largest part of the file mapped at a time. */
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    /** The channel of the file being read. */
+    private final FileChannel channel;
+
+    /** The size of the file in bytes. */
+    private final long fileSize;
+
+    /** The mapped window of the file currently being read. */
+    private MappedByteBuffer buffer;
+
+    /** The position in the file of the first byte of {@link #buffer}. */
+    private long base = 0;
+
+    /** The number of bytes in {@link #buffer}. */
+    private int limit = 0;
+
+    /** The position of the next byte to read from {@link #buffer}. */
+    private int position = 0;
+
+    /** Whether {@link #buffer} reaches the end of the file. */
+    private boolean lastWindow = false;
+
+    /** The reusable buffer holding the bytes of the field being read. */
+    private byte[] field = new byte[256];
+
+    /** The number of bytes in {@link #field}. */
+    private int fieldLength = 0;
+
+    /** The reusable list holding the fields of the row being read. */
+    private final List<String> fields = new ArrayList<>();
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param fileString The path to the CSV file.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public MappedCSVReader(String fileString) throws IOException {
+        this.channel = FileChannel.open(Paths.get(fileString), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        map(0);
+    }
+
+    /**
+     * Reads the next row, skipping rows that are blank.
+     *
+     * @return The fields of the row, or {@code null} at the end of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    @Override
+    public String[] nextRow() throws IOException {
+        while (true) {
+            if (position >= limit) {
+                if (lastWindow) {
+                    return null;
+                }
+                map(base + position);
+            }
+
+            int rowStart = position;
+            if (!readRow()) {
+                // the row runs past the end of the window, read it again from a new window
+                if (rowStart == 0) {
+                    throw new IOException("CSV row is larger than " + WINDOW_SIZE + " bytes.");
+                }
+                map(base + rowStart);
+                continue;
+            }
+            if (fields.size() > 1 || !fields.get(0).trim().isEmpty()) {
+                return fields.toArray(new String[0]);
+            }
+        }
+    }
+
+    /**
+     * Reads one row of the current window into {@link #fields}.
+     *
+     * @return {@code false} if the window ended before the row did and more of the
+     *         file remains, in which case the row has to be read again.
+     */
+    private boolean readRow() {
+        fields.clear();
+        fieldLength = 0;
+
+        boolean quoted = false; // inside a quoted section of the field
+        while (position < limit) {
+            int start = position;
+            if (quoted) {
+                // copy everything up to the next quote
+                while (position < limit && buffer.get(position) != '"') {
+                    position++;
+                }
+                append(start, position);
+                if (position == limit) {
+                    break;
+                }
+                position++; // skip the quote
+                if (position < limit && buffer.get(position) == '"') {
+                    appendQuote(); // escaped quote
+                    position++;
+                } else if (position == limit && !lastWindow) {
+                    return false; // the next byte may be an escaped quote
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+
+            // copy everything up to the next separator, quote or line break
+            byte c = 0;
+            while (position < limit) {
+                c = buffer.get(position);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    break;
+                }
+                position++;
+            }
+            append(start, position);
+            if (position == limit) {
+                break;
+            }
+            position++; // skip the special character
+
+            if (c == ',') {
+                endField();
+            } else if (c == '"') {
+                quoted = true;
+            } else {
+                if (c == '\r') {
+                    if (position < limit && buffer.get(position) == '\n') {
+                        position++; // \r\n ends the row as one line break
+                    } else if (position == limit && !lastWindow) {
+                        return false; // the next byte may be the \n of \r\n
+                    }
+                }
+                endField();
+                return true;
+            }
+        }
+        if (!lastWindow) {
+            return false;
+        }
+        endField(); // the file ended without a final line break
+        return true;
+    }
+
+    /**
+     * Copies a range of the window into {@link #field}.
+     *
+     * @param start The position of the first byte to copy.
+     * @param end   The position after the last byte to copy.
+     */
+    private void append(int start, int end) {
+        int length = end - start;
+        ensureCapacity(length);
+        buffer.get(start, field, fieldLength, length);
+        fieldLength += length;
+    }
+
+    /** Adds a double quote to {@link #field}. */
+    private void appendQuote() {
+        ensureCapacity(1);
+        field[fieldLength++] = '"';
+    }
+
+    /**
+     * Grows {@link #field} so that it can hold the given number of extra bytes.
+     *
+     * @param extra The number of bytes about to be added.
+     */
+    private void ensureCapacity(int extra) {
+        if (fieldLength + extra > field.length) {
+            field = Arrays.copyOf(field, Math.max(field.length * 2, fieldLength + extra));
+        }
+    }
+
+    /** Decodes the field being read, adds it to the row and starts a new field. */
+    private void endField() {
+        fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+        fieldLength = 0;
+    }
+
+    /**
+     * Maps the window of the file starting at the given position.
+     *
+     * @param offset The position in the file of the start of the window.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void map(long offset) throws IOException {
+        long size = Math.min(WINDOW_SIZE, fileSize - offset);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        base = offset;
+        limit = (int) size;
+        position = 0;
+        lastWindow = offset + size >= fileSize;
+    }
+
+    /**
+     * Closes the file. The mapped window is released once it is garbage collected.
+     *
+     * @throws IOException If the file fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
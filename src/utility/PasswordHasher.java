@@ -0,0 +1,220 @@
+package utility;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hashes and verifies passwords with PBKDF2 (HMAC-SHA256) and a random salt per user.
+ * <p>
+ * A hashed password is stored as {@code pbkdf2$<iterations>$<salt>$<hash>}, with the
+ * salt and hash in Base64, so it fits in a CSV column and records the cost it was
+ * hashed with. Passwords that do not have this form are plain text from before
+ * hashing was introduced; they are still accepted and are replaced by a hash the next
+ * time they are written.
+ * <p>
+ * PBKDF2 is slow on purpose, so hashing and verification run on a dedicated, bounded
+ * pool of worker threads rather than on the threads serving users. The cost and the size of the
+ * pool can be set with the {@code hms.password.iterations},
+ * {@code hms.password.threads} and {@code hms.password.queue} system properties.
+ */
+public class PasswordHasher {
+
+    /** The PBKDF2 variant used to derive hashes. */
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /** The prefix marking a hashed password. */
+    private static final String PREFIX = "pbkdf2";
+
+    /** Separates the parts of a hashed password. */
+    private static final String SEPARATOR = "$";
+
+    /** The number of PBKDF2 iterations used for new hashes. */
+    public static final int ITERATIONS = Integer.getInteger("hms.password.iterations", 600_000);
+
+    /** The number of salt bytes generated for each password. */
+    private static final int SALT_BYTES = 16;
+
+    /** The number of bits in a derived hash. */
+    private static final int HASH_BITS = 256;
+
+    /** The number of worker threads hashing and verifying passwords. */
+    public static final int THREADS = Integer.getInteger("hms.password.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    /** The number of hashes and verifications that may wait for a worker before new ones are refused. */
+    private static final int QUEUE_CAPACITY = Integer.getInteger("hms.password.queue", 64);
+
+    /** The source of salts. */
+    private static final SecureRandom random = new SecureRandom();
+
+    /** The bounded pool hashing and verifying passwords. */
+    private static final ThreadPoolExecutor verifier = createVerifier();
+
+    /**
+     * A hash verified when no user matches a login, so that failed logins take as long
+     * whether or not the user exists.
+     */
+    private static final String DUMMY_HASH = hash("dummy password");
+
+    /**
+     * Hashes a password with a new random salt at the current cost, on the calling
+     * thread. Passwords entered by users are hashed with {@link #hashAsync(String)}
+     * instead.
+     *
+     * @param password The plain text password.
+     * @return The hashed password, ready to be stored.
+     */
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password, salt, ITERATIONS);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + SEPARATOR + ITERATIONS + SEPARATOR + encoder.encodeToString(salt) + SEPARATOR
+                + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Hashes a password on the worker pool.
+     *
+     * @param password The plain text password.
+     * @return A future completing with the hashed password, ready to be stored.
+     * @throws RejectedExecutionException If too many hashes and verifications are
+     *                                    already waiting.
+     */
+    public static CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> hash(password), verifier);
+    }
+
+    /**
+     * Checks whether a stored password is a hash rather than plain text.
+     *
+     * @param stored The stored password.
+     * @return {@code true} if it is a hash created by {@link #hash(String)}.
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + SEPARATOR);
+    }
+
+    /**
+     * Checks whether a stored password should be hashed again, because it is plain text
+     * or was hashed at a different cost.
+     *
+     * @param stored The stored password.
+     * @return {@code true} if the password should be hashed again.
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\" + SEPARATOR);
+        return parts.length != 4 || !parts[1].equals(String.valueOf(ITERATIONS));
+    }
+
+    /**
+     * Verifies a password on the worker pool.
+     *
+     * @param password The plain text password entered.
+     * @param stored   The stored password, or {@code null} if no user matched, in which
+     *                 case a dummy hash is verified and the result is {@code false}.
+     * @return A future completing with {@code true} if the password matches.
+     * @throws RejectedExecutionException If too many verifications are already waiting.
+     */
+    public static CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        if (stored == null) {
+            return CompletableFuture.supplyAsync(() -> {
+                matches(password, DUMMY_HASH);
+                return false;
+            }, verifier);
+        }
+        return CompletableFuture.supplyAsync(() -> matches(password, stored), verifier);
+    }
+
+    /**
+     * Verifies a password on the worker pool and waits for the result.
+     *
+     * @param password The plain text password entered.
+     * @param stored   The stored password, or {@code null} if no user matched.
+     * @return {@code true} if the password matches.
+     * @throws RejectedExecutionException If too many verifications are already waiting.
+     */
+    public static boolean verify(String password, String stored) {
+        return verifyAsync(password, stored).join();
+    }
+
+    /**
+     * Compares a password with a stored password on the calling thread.
+     *
+     * @param password The plain text password entered.
+     * @param stored   The stored hash or legacy plain text password.
+     * @return {@code true} if the password matches.
+     */
+    private static boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\" + SEPARATOR);
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(derive(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false; // corrupt hash
+        }
+    }
+
+    /**
+     * Derives a PBKDF2 hash.
+     *
+     * @param password   The plain text password.
+     * @param salt       The salt.
+     * @param iterations The number of iterations.
+     * @return The derived hash.
+     */
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Creates the bounded pool hashing and verifying passwords. Its threads are daemons, so they do
+     * not keep the application running.
+     *
+     * @return The pool.
+     */
+    private static ThreadPoolExecutor createVerifier() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "PasswordVerifier-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
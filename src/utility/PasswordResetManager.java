@@ -4,6 +4,7 @@ import user.*;
 import accounts.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Manages password reset requests and operations.
@@ -16,6 +17,9 @@ public class PasswordResetManager {
     /** A list to store all {@link PasswordRequest} objects */
     private static List<PasswordResetRequest> requests = new ArrayList<>();
     
+    /** Guards the list of requests against concurrent sessions */
+    private static final StoreLock lock = new StoreLock();
+
     /** The default password for every account */
     private static final String DEFAULT_PASSWORD = "password1234";
 
@@ -37,7 +41,7 @@ public class PasswordResetManager {
             return false; // Indicate failure;
         }
 
-        requests.add(request);
+        lock.write(() -> requests.add(request));
         System.out.println("Password reset request added: " + request);
         return true; // Indicate success
     }
@@ -48,6 +52,7 @@ public class PasswordResetManager {
      * If no requests are pending, a message is displayed.
      */
     public static void displayRequests() {
+        List<PasswordResetRequest> requests = lock.read(() -> new ArrayList<>(PasswordResetManager.requests));
         if (requests.isEmpty()) {
             System.out.println("No pending password reset requests.");
             return;
@@ -65,18 +70,25 @@ public class PasswordResetManager {
      * @return The approved {@link PasswordResetRequest}, or {@code null} if the index is invalid.
      */
     public static PasswordResetRequest approveRequest(int index) {
-        if (index < 0 || index >= requests.size()) {
+        PasswordResetRequest request = lock.write(() -> {
+            if (index < 0 || index >= requests.size()) {
+                return null;
+            }
+            return requests.remove(index);
+        });
+        if (request == null) {
             System.out.println("Invalid request index.");
-            return null;
         }
-        return requests.remove(index);
+        return request;
     }
 
     /**
      * Resets the password of a user to the default value.
      * <p>
      * The user type is determined based on their hospital ID prefix, and the password
-     * is updated in the corresponding account database.
+     * is updated in the corresponding account database. Like any other password write,
+     * the default password is stored as a salted hash, so an account still holding a
+     * plain text password is migrated by the reset.
      * 
      * @param hospitalID The hospital ID of the user whose password is to be reset.
      */
@@ -88,21 +100,26 @@ public class PasswordResetManager {
             return;
         }
 
-        switch (prefix) {
-            case "P1": // Patient
-                PatientsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
-                break;
-            case "D": // Doctor
-                DoctorsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
-                break;
-            case "A": // Administrator
-                AdminsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
-                break;
-            case "P": // Pharmacist
-                PharmacistsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
-                break;
-            default:
-                System.out.println("Unknown user type for hospital ID: " + hospitalID);
+        try {
+            switch (prefix) {
+                case "P1": // Patient
+                    PatientsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
+                    break;
+                case "D": // Doctor
+                    DoctorsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
+                    break;
+                case "A": // Administrator
+                    AdminsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
+                    break;
+                case "P": // Pharmacist
+                    PharmacistsAcc.updatePassword(hospitalID, DEFAULT_PASSWORD);
+                    break;
+                default:
+                    System.out.println("Unknown user type for hospital ID: " + hospitalID);
+            }
+        } catch (RejectedExecutionException e) {
+            System.out.println("Too many passwords are being changed. Please try again later.");
+            return;
         }
         System.out.println("Password reset to default ('" + DEFAULT_PASSWORD + "') for User: " + hospitalID);
     }
@@ -0,0 +1,116 @@
+package utility;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+import user.User;
+
+/**
+ * The input, output and logged-in user of one user session.
+ * <p>
+ * The console is a session of its own. When the application is served over the network,
+ * each connection runs as a further session on its own thread, and
+ * {@link #current()} returns the session of the calling thread, so the user interfaces
+ * read and print through their own connection without being passed it.
+ */
+public class Session {
+
+    /** The session of each thread serving a connection. */
+    private static final ThreadLocal<Session> current = new ThreadLocal<>();
+
+    /** The console session, used by threads that do not serve a connection. */
+    private static volatile Session console = new Session(System.in, System.out);
+
+    /** The scanner reading the user's input. */
+    private final Scanner scanner;
+
+    /** The stream printing to the user in the colour of their role. */
+    private final ColoredPrintStream out;
+
+    /** The user logged in to this session, or {@code null} if nobody is logged in. */
+    private volatile User loggedInUser;
+
+    /**
+     * Creates a session reading from and printing to the given streams.
+     *
+     * @param in  The stream the user's input is read from.
+     * @param out The stream printed to. It should flush itself, so that prompts are sent
+     *            before the input is read.
+     */
+    public Session(InputStream in, PrintStream out) {
+        this.scanner = new Scanner(in);
+        this.out = new ColoredPrintStream(out);
+    }
+
+    /**
+     * Makes a session the console session.
+     *
+     * @param session The console session.
+     */
+    public static void setConsole(Session session) {
+        console = session;
+    }
+
+    /**
+     * Returns the session of the calling thread.
+     *
+     * @return The session the calling thread serves, or the console session if it does
+     *         not serve a connection.
+     */
+    public static Session current() {
+        Session session = current.get();
+        return session != null ? session : console;
+    }
+
+    /**
+     * Runs an action as this session on the calling thread, so that
+     * {@link #current()} returns this session until the action ends.
+     *
+     * @param action The action to run, usually the menu of the application.
+     */
+    public void run(Runnable action) {
+        current.set(this);
+        try {
+            action.run();
+        } finally {
+            current.remove();
+        }
+    }
+
+    /**
+     * Returns the scanner reading the user's input.
+     *
+     * @return The scanner of this session.
+     */
+    public Scanner getScanner() {
+        return scanner;
+    }
+
+    /**
+     * Returns the stream printing to the user.
+     *
+     * @return The output of this session.
+     */
+    public ColoredPrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Returns the user logged in to this session.
+     *
+     * @return The logged-in {@link User}, or {@code null} if nobody is logged in.
+     */
+    public User getLoggedInUser() {
+        return loggedInUser;
+    }
+
+    /**
+     * Sets the user logged in to this session.
+     *
+     * @param user The {@link User} who logged in.
+     */
+    public void setLoggedInUser(User user) {
+        this.loggedInUser = user;
+    }
+}
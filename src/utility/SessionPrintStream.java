@@ -0,0 +1,202 @@
+package utility;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * A {@link PrintStream} that passes everything printed to it on to the output of the
+ * calling thread's {@link Session}.
+ * <p>
+ * It is installed as {@link System#out}, so the existing {@code System.out} calls print
+ * to the user of the session that makes them. Every method is passed on, so sessions
+ * never wait for each other on a shared stream.
+ */
+public class SessionPrintStream extends PrintStream {
+
+    /** Creates a stream printing to the session of the calling thread. */
+    public SessionPrintStream() {
+        super(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Returns the output of the calling thread's session.
+     *
+     * @return The stream to print to.
+     */
+    private static PrintStream out() {
+        return Session.current().getOut();
+    }
+
+    @Override
+    public void flush() {
+        out().flush();
+    }
+
+    @Override
+    public void close() {
+        out().close();
+    }
+
+    @Override
+    public boolean checkError() {
+        return out().checkError();
+    }
+
+    @Override
+    public void write(int b) {
+        out().write(b);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        out().write(buf, off, len);
+    }
+
+    @Override
+    public void write(byte[] buf) {
+        out().write(buf, 0, buf.length);
+    }
+
+    @Override
+    public void writeBytes(byte[] buf) {
+        out().write(buf, 0, buf.length);
+    }
+
+    @Override
+    public void print(boolean b) {
+        out().print(b);
+    }
+
+    @Override
+    public void print(char c) {
+        out().print(c);
+    }
+
+    @Override
+    public void print(int i) {
+        out().print(i);
+    }
+
+    @Override
+    public void print(long l) {
+        out().print(l);
+    }
+
+    @Override
+    public void print(float f) {
+        out().print(f);
+    }
+
+    @Override
+    public void print(double d) {
+        out().print(d);
+    }
+
+    @Override
+    public void print(char[] s) {
+        out().print(s);
+    }
+
+    @Override
+    public void print(String s) {
+        out().print(s);
+    }
+
+    @Override
+    public void print(Object obj) {
+        out().print(obj);
+    }
+
+    @Override
+    public void println() {
+        out().println();
+    }
+
+    @Override
+    public void println(boolean x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(char x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(int x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(long x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(float x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(double x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(char[] x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(String x) {
+        out().println(x);
+    }
+
+    @Override
+    public void println(Object x) {
+        out().println(x);
+    }
+
+    @Override
+    public PrintStream printf(String format, Object... args) {
+        out().printf(format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream printf(Locale l, String format, Object... args) {
+        out().printf(l, format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream format(String format, Object... args) {
+        out().format(format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream format(Locale l, String format, Object... args) {
+        out().format(l, format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq) {
+        out().append(csq);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq, int start, int end) {
+        out().append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(char c) {
+        out().append(c);
+        return this;
+    }
+}
@@ -0,0 +1,80 @@
+package utility;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * A read-write lock guarding the in-memory state of one store, such as its list, its
+ * indexes and its change log, so that several sessions can use the store at once.
+ * <p>
+ * Lookups and copies take the shared read lock, so any number of sessions can read at
+ * the same time; changes take the exclusive write lock. The lock is reentrant and a
+ * writer may also read, but a reader must never ask for the write lock.
+ * <p>
+ * Locks are only held while the store's collections are read or changed. Prompts,
+ * printing and password hashing happen outside them, so a slow user never blocks the
+ * other sessions.
+ */
+public class StoreLock {
+
+    /** The underlying lock. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Runs an action holding the read lock.
+     *
+     * @param action The action reading the store.
+     * @return The result of the action.
+     */
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an action holding the read lock.
+     *
+     * @param action The action reading the store.
+     */
+    public void read(Runnable action) {
+        lock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an action holding the write lock.
+     *
+     * @param action The action changing the store.
+     * @return The result of the action.
+     */
+    public <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an action holding the write lock.
+     *
+     * @param action The action changing the store.
+     */
+    public void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}